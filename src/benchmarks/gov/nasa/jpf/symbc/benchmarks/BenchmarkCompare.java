@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files (written with -rf csv) and fails if a
+ * benchmark got slower than the tolerance allows.
+ *
+ * usage: BenchmarkCompare baseline.csv results.csv [tolerance]
+ *
+ * The tolerance is relative, e.g. 0.2 accepts results up to 20% worse than the
+ * baseline. Benchmarks that are only in one of the files are listed but do not
+ * fail the comparison. Baselines are only meaningful on the machine they were
+ * recorded on, so none is checked in: 'ant benchmark benchmark-baseline'
+ * records src/benchmarks/baseline.csv (see build.xml).
+ */
+public class BenchmarkCompare {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("usage: BenchmarkCompare baseline.csv results.csv [tolerance]");
+			System.exit(1);
+		}
+		File baselineFile = new File(args[0]);
+		if (!baselineFile.exists()) {
+			System.err.println("no baseline " + baselineFile + "; record one on this machine with"
+					+ " 'ant benchmark benchmark-baseline' before making the changes to compare");
+			System.exit(1);
+		}
+		double tolerance = (args.length > 2) ? Double.parseDouble(args[2]) : 0.2;
+		Map<String, Result> baseline = read(baselineFile);
+		Map<String, Result> results = read(new File(args[1]));
+
+		int regressions = 0;
+		for (Map.Entry<String, Result> e : results.entrySet()) {
+			Result r = e.getValue();
+			Result b = baseline.get(e.getKey());
+			if (b == null) {
+				System.out.println(String.format("  new   %-70s %12.3f %s", e.getKey(), r.score, r.unit));
+				continue;
+			}
+			if (!b.unit.equals(r.unit)) {
+				System.out.println(String.format("  ???   %-70s unit changed from %s to %s", e.getKey(), b.unit, r.unit));
+				continue;
+			}
+			// time per op: lower is better; ops per time: higher is better
+			double change = r.unit.endsWith("/op") ? (r.score - b.score) / b.score : (b.score - r.score) / b.score;
+			boolean regressed = change > tolerance;
+			if (regressed)
+				regressions++;
+			System.out.println(String.format("  %s %-70s %12.3f -> %12.3f %s (%+.1f%%)", regressed ? "SLOWER" : "ok    ",
+					e.getKey(), b.score, r.score, r.unit, change * 100));
+		}
+		for (String key : baseline.keySet()) {
+			if (!results.containsKey(key))
+				System.out.println(String.format("  gone  %s", key));
+		}
+
+		if (regressions > 0) {
+			System.out.println(regressions + " benchmark(s) more than " + (int) (tolerance * 100)
+					+ "% slower than the baseline");
+			System.exit(2);
+		}
+	}
+
+	static class Result {
+		double score;
+		String unit;
+	}
+
+	/*
+	 * JMH writes: "Benchmark","Mode","Threads","Samples","Score","Score Error
+	 * (99.9%)","Unit","Param: x",... The key is the benchmark name with the
+	 * parameter values.
+	 */
+	static Map<String, Result> read(File f) throws IOException {
+		Map<String, Result> results = new LinkedHashMap<String, Result>();
+		BufferedReader r = new BufferedReader(new FileReader(f));
+		try {
+			String line = r.readLine();
+			if (line == null)
+				return results;
+			List<String> header = split(line);
+			int score = header.indexOf("Score");
+			int unit = header.indexOf("Unit");
+			while ((line = r.readLine()) != null) {
+				if (line.trim().length() == 0)
+					continue;
+				List<String> fields = split(line);
+				StringBuilder key = new StringBuilder(fields.get(0));
+				for (int i = unit + 1; i < fields.size() && i < header.size(); i++) {
+					key.append(' ').append(header.get(i).replace("Param: ", "")).append('=').append(fields.get(i));
+				}
+				Result res = new Result();
+				res.score = Double.parseDouble(fields.get(score));
+				res.unit = fields.get(unit);
+				results.put(key.toString(), res);
+			}
+		} finally {
+			r.close();
+		}
+		return results;
+	}
+
+	static List<String> split(String line) {
+		List<String> fields = new ArrayList<String>();
+		StringBuilder sb = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '"') {
+				quoted = !quoted;
+			} else if (c == ',' && !quoted) {
+				fields.add(sb.toString());
+				sb.setLength(0);
+			} else {
+				sb.append(c);
+			}
+		}
+		fields.add(sb.toString());
+		return fields;
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+
+/**
+ * Building and copying path conditions: this is done on every branch on a
+ * symbolic value, whether the solver is called or not.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathConditionBenchmark {
+
+	@Param({ "10", "50", "200" })
+	int length;
+
+	PathCondition pc;
+	SymbolicInteger y;
+	Constraint absent;
+
+	@Setup
+	public void setup() {
+		SyntheticPCs.configure("choco");
+		pc = SyntheticPCs.linear(length, 8);
+		y = new SymbolicInteger("y", -1000, 1000);
+		// not in pc, so hasConstraint has to walk the whole list
+		absent = new LinearIntegerConstraint(y, Comparator.EQ, new IntegerConstant(42));
+	}
+
+	@Benchmark
+	public PathCondition addDet() {
+		PathCondition copy = pc.make_copy();
+		copy._addDet(Comparator.GT, y, 0);
+		return copy;
+	}
+
+	@Benchmark
+	public PathCondition makeCopy() {
+		return pc.make_copy();
+	}
+
+	@Benchmark
+	public boolean hasConstraint() {
+		return pc.hasConstraint(absent);
+	}
+
+	@Benchmark
+	public PathCondition build() {
+		return SyntheticPCs.linear(length, 8);
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.nasa.jpf.symbc.numeric.PCParser;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicConstraintsGeneral;
+import gov.nasa.jpf.symbc.numeric.solvers.ProblemGeneral;
+import gov.nasa.jpf.symbc.numeric.solvers.SolverTranslator;
+import za.ac.sun.cs.green.Instance;
+
+/**
+ * Translation of path conditions into the solvers' representations, and the
+ * complete satisfiability check as done on every branch.
+ *
+ * The backends that need native libraries (cvc3, yices, z3) are only picked up
+ * if java.library.path points to them, e.g. -Djmh.args="-jvmArgs
+ * -Djava.library.path=lib/64bit -p dp=z3".
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+
+	@Param({ "choco", "coral", "z3" })
+	String dp;
+
+	@Param({ "10", "50" })
+	int length;
+
+	PathCondition pc;
+	SymbolicConstraintsGeneral solver;
+
+	@Setup
+	public void setup() {
+		SyntheticPCs.configure(dp);
+		pc = SyntheticPCs.linear(length, 8);
+		solver = new SymbolicConstraintsGeneral();
+	}
+
+	@Benchmark
+	public ProblemGeneral parse() {
+		ProblemGeneral pb = SyntheticPCs.newProblem(pc, solver);
+		ProblemGeneral result = PCParser.parse(pc, pb);
+		// the Z3 problems share one solver, which keeps the assertions otherwise
+		pb.cleanup();
+		return result;
+	}
+
+	@Benchmark
+	public boolean isSatisfiable() {
+		boolean result = solver.isSatisfiable(pc);
+		solver.cleanup();
+		return result;
+	}
+
+	@Benchmark
+	public Instance greenInstance() {
+		return SolverTranslator.createInstance(pc.header);
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.string.SymbolicIntegerGenerator;
+import gov.nasa.jpf.symbc.string.SymbolicStringConstraintsGeneral;
+import gov.nasa.jpf.symbc.string.graph.EdgeConcat;
+import gov.nasa.jpf.symbc.string.graph.EdgeNotEqual;
+import gov.nasa.jpf.symbc.string.graph.EdgeStartsWith;
+import gov.nasa.jpf.symbc.string.graph.PreProcessGraph;
+import gov.nasa.jpf.symbc.string.graph.StringGraph;
+import gov.nasa.jpf.symbc.string.graph.Vertex;
+import gov.nasa.jpf.symbc.string.translate.TranslateToAutomata2;
+
+/**
+ * Preprocessing and automata solving of string graphs. Both change the graph
+ * and the integer path condition, so a fresh pair is built before every call
+ * (outside of the measured time).
+ *
+ * The graphs are chains of symbolic strings s0, s1, ... where every s(i) starts
+ * with a constant, differs from another constant, and is concatenated with
+ * s(i+1) into a fresh symbolic string.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringGraphBenchmark {
+
+	@Param({ "2", "4", "8" })
+	int size;
+
+	StringGraph graph;
+	PathCondition pc;
+
+	@Setup(Level.Trial)
+	public void configure() {
+		SyntheticPCs.configure("choco");
+		SymbolicInstructionFactory.string_dp = new String[] { "automata" };
+		SymbolicStringConstraintsGeneral.timedOut = false;
+	}
+
+	@Setup(Level.Invocation)
+	public void setup() {
+		graph = chain(size);
+		pc = new PathCondition();
+	}
+
+	static StringGraph chain(int n) {
+		SymbolicIntegerGenerator sig = new SymbolicIntegerGenerator();
+		StringGraph g = new StringGraph();
+		Vertex[] s = new Vertex[n + 1];
+		for (int i = 0; i <= n; i++) {
+			s[i] = new Vertex("s" + i, sig);
+		}
+		for (int i = 0; i < n; i++) {
+			Vertex prefix = new Vertex("c" + i, "ab" + i, true);
+			Vertex other = new Vertex("d" + i, "xyz" + i, true);
+			Vertex concat = new Vertex("t" + i, sig);
+			g.addEdge(s[i], prefix, new EdgeStartsWith("StartsWith_" + i, s[i], prefix));
+			g.addEdge(s[i], other, new EdgeNotEqual("NotEqual_" + i, s[i], other));
+			g.addEdge(s[i], s[i + 1], concat, new EdgeConcat("Concat_" + i, s[i], s[i + 1], concat));
+		}
+		return g;
+	}
+
+	@Benchmark
+	public boolean preprocess() {
+		return PreProcessGraph.preprocess(graph, pc);
+	}
+
+	@Benchmark
+	public boolean automata() {
+		return PreProcessGraph.preprocess(graph, pc) && TranslateToAutomata2.isSat(graph, pc);
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.benchmarks;
+
+import java.util.Random;
+
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.IntegerExpression;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicConstraintsGeneral;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.solvers.ProblemGeneral;
+import gov.nasa.jpf.symbc.numeric.solvers.SolverRegistry;
+
+/**
+ * Path conditions for the benchmarks. They look like the ones symbolic
+ * execution of branchy integer code produces: linear comparisons between a few
+ * variables and constants, mostly satisfiable. A fixed seed keeps the inputs
+ * identical between runs, so that results can be compared with a baseline.
+ */
+public class SyntheticPCs {
+
+	static final long SEED = 0x5eed;
+
+	private static final Comparator[] COMPARATORS = { Comparator.LT, Comparator.LE, Comparator.GT,
+			Comparator.GE, Comparator.NE };
+
+	/**
+	 * Returns a path condition with the given number of constraints over the
+	 * given number of variables.
+	 */
+	public static PathCondition linear(int length, int vars) {
+		Random random = new Random(SEED);
+		SymbolicInteger[] x = new SymbolicInteger[vars];
+		for (int i = 0; i < vars; i++) {
+			x[i] = new SymbolicInteger("x" + i, -1000, 1000);
+		}
+		PathCondition pc = new PathCondition();
+		while (pc.count() < length) {
+			IntegerExpression l = x[random.nextInt(vars)];
+			if (random.nextBoolean()) {
+				l = l._plus(x[random.nextInt(vars)]);
+			}
+			Comparator c = COMPARATORS[random.nextInt(COMPARATORS.length)];
+			int k = random.nextInt(200) - 100;
+			if (c == Comparator.LT || c == Comparator.LE) {
+				k += 500; // keep most constraints satisfiable
+			} else if (c == Comparator.GT || c == Comparator.GE) {
+				k -= 500;
+			}
+			pc._addDet(c, l, k);
+		}
+		return pc;
+	}
+
+	/**
+	 * Makes sure the factory statics read by the solvers have sensible values
+	 * outside of a JPF run.
+	 */
+	public static void configure(String dp) {
+		SymbolicInstructionFactory.dp = new String[] { dp };
+		SymbolicInstructionFactory.maxPcLength = Integer.MAX_VALUE;
+		SymbolicInstructionFactory.maxPcMSec = 0;
+		SymbolicInstructionFactory.debugMode = false;
+		SymbolicInstructionFactory.regressMode = false;
+	}
+
+	/**
+	 * Returns a new problem of the backend configure chose, the way
+	 * SymbolicConstraintsGeneral creates one for every query.
+	 */
+	public static ProblemGeneral newProblem(PathCondition pc, SymbolicConstraintsGeneral scg) {
+		SolverRegistry.Backend backend = SolverRegistry.numeric();
+		if (!backend.solves())
+			throw new RuntimeException("## Error: no benchmark support for symbolic.dp=" + backend.name);
+		return backend.create(pc, scg);
+	}
+}
@@ -40,7 +40,7 @@ public class HeuristicListener extends PropertyListenerAdapter  {
 		int n = cg.getTotalNumberOfChoices();
 		if (cg instanceof PCChoiceGenerator) {
 			System.out.println("got a PC choice generator "+ n + " "+
-			((PCChoiceGenerator) cg).getNextChoice() + " "+((PCChoiceGenerator) cg).getCurrentPC());
+			((PCChoiceGenerator) cg).getNextChoice() + " "+((PCChoiceGenerator) cg).peekCurrentPC());
 		
 		if(((PCChoiceGenerator) cg).getNextChoice()==0) { // replace this condition with yours
 			System.out.println("backtrack");
@@ -22,9 +22,15 @@ import za.ac.sun.cs.green.Green;
 import za.ac.sun.cs.green.util.Configuration;
 import gov.nasa.jpf.Config;
 import gov.nasa.jpf.symbc.bytecode.*;
+import gov.nasa.jpf.symbc.bytecode.optimization.util.DiamondMerger;
+import gov.nasa.jpf.symbc.concolic.FunctionExpression;
 import gov.nasa.jpf.symbc.numeric.MinMax;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
 import gov.nasa.jpf.symbc.numeric.solvers.ProblemChoco;
 import gov.nasa.jpf.symbc.numeric.solvers.ProblemCoral;
+import gov.nasa.jpf.symbc.numeric.solvers.SolverRegistry;
+import gov.nasa.jpf.symbc.numeric.solvers.Z3Contexts;
+import gov.nasa.jpf.symbc.summaries.SummaryCache;
 import gov.nasa.jpf.util.ClassInfoFilter;
 import gov.nasa.jpf.vm.ClassInfo;
 import gov.nasa.jpf.vm.Instruction;
@@ -544,6 +550,8 @@ public class SymbolicInstructionFactory extends gov.nasa.jpf.jvm.bytecode.Instru
 	static public String[] string_dp;
 	static public int stringTimeout;
 	static public boolean preprocesOnly;
+	static public boolean stringBranchesTogether;
+	static public boolean stringLengthCheck;
 
 	/*
 	 * This is intended to serve as a catchall debug flag.
@@ -597,11 +605,35 @@ public class SymbolicInstructionFactory extends gov.nasa.jpf.jvm.bytecode.Instru
 	static public boolean heuristicRandomMode;
 	static public boolean heuristicPartitionMode;
 	static public int MaxTries = 1;
+	static public int concolicThreads = 1; // threads evaluating external functions
 
   static public int maxPcLength;
   static public long maxPcMSec;
   static public long startSystemMillis;
 
+	/*
+	 * With this setting, small side-effect-free if/else diamonds
+	 * are merged into if-then-else values instead of forking
+	 * (see DiamondMerger)
+	 */
+	static public boolean merge;
+	static public int mergeMaxSize;
+
+	/*
+	 * With this setting, calls to the methods selected for summaries
+	 * reuse the summary of the callee once it is recorded
+	 * (see SummaryCache)
+	 */
+	static public boolean summaries;
+
+	/*
+	 * With this setting, path conditions of linear integer constraints
+	 * are first checked by bounds propagation, and only go to the
+	 * decision procedure if that does not decide them
+	 * (see IntervalPresolver)
+	 */
+	static public boolean presolve;
+
 	ClassInfo ci;
 	ClassInfoFilter filter; // TODO: fix; do we still need this?
 
@@ -660,6 +692,8 @@ public class SymbolicInstructionFactory extends gov.nasa.jpf.jvm.bytecode.Instru
 			if (debugMode) System.out.println("symbolic.string_dp="+string_dp[0]);
 
 			preprocesOnly = conf.getBoolean("symbolic.string_preprocess_only", false);
+			stringBranchesTogether = conf.getBoolean("symbolic.string_branches_together", false);
+			stringLengthCheck = conf.getBoolean("symbolic.string_length_check", false);
 			String[] concolic  = conf.getStringArray("symbolic.concolic");
 			if (concolic != null) {
 				concolicMode = true;
@@ -694,6 +728,11 @@ public class SymbolicInstructionFactory extends gov.nasa.jpf.jvm.bytecode.Instru
 				heuristicPartitionMode = false;
 			}
 
+			concolicThreads = conf.getInt("symbolic.concolic.threads", 1);
+			if (debugMode) System.out.println("symbolic.concolic.threads=" + concolicThreads);
+			// the external functions are looked up again on the classpath of this run
+			FunctionExpression.reset();
+
 			if(dp[0].equalsIgnoreCase("choco") || dp[0].equalsIgnoreCase("debug") || dp[0].equalsIgnoreCase("compare") || dp == null) { // default is choco
 			  ProblemChoco.timeBound = conf.getInt("symbolic.choco_time_bound", 30000);
 			  if (debugMode) System.out.println("symbolic.choco_time_bound="+ProblemChoco.timeBound);
@@ -702,6 +741,10 @@ public class SymbolicInstructionFactory extends gov.nasa.jpf.jvm.bytecode.Instru
 			if (dp[0].equalsIgnoreCase("coral") || dp[0].equalsIgnoreCase("debug") || dp[0].equalsIgnoreCase("compare")) {
 				ProblemCoral.configure(conf);
 			}
+			if (dp[0].toLowerCase().startsWith("z3") || dp[0].equalsIgnoreCase("debug")) {
+				Z3Contexts.configure(conf);
+			}
+			SolverRegistry.configure(conf);
 
       maxPcLength = conf.getInt("symbolic.max_pc_length", Integer.MAX_VALUE);
       if (maxPcLength == -1) {
@@ -731,6 +774,20 @@ public class SymbolicInstructionFactory extends gov.nasa.jpf.jvm.bytecode.Instru
 
         	this.symArrays = conf.getBoolean("symbolic.arrays", false);
 
+		merge = conf.getBoolean("symbolic.merge", false);
+		mergeMaxSize = conf.getInt("symbolic.merge.max_size", 20);
+		DiamondMerger.reset();
+
+		presolve = conf.getBoolean("symbolic.presolve", false);
+
+		summaries = conf.getBoolean("symbolic.summaries", false);
+		if (summaries)
+			SummaryCache.configure(conf);
+
+		// keep the solutions found when branching for the listeners that solve
+		// the path condition at every leaf; reset for every run, since it is static
+		PathCondition.keepModels = conf.getBoolean("symbolic.keep_models", false);
+
 		/* load bitvector length, default to 32 */
 		bvlength = conf.getInt("symbolic.bvlength", 32);
 		if (debugMode) System.out.println("symbolic.bvlength="+bvlength);
@@ -129,7 +129,7 @@ public class SymbolicListener extends PropertyListenerAdapter implements Publish
       }
       cg = prev_cg;
     }
-    if ((cg instanceof PCChoiceGenerator) && ((PCChoiceGenerator) cg).getCurrentPC() != null) {
+    if ((cg instanceof PCChoiceGenerator) && ((PCChoiceGenerator) cg).peekCurrentPC() != null) {
       PathCondition pc = ((PCChoiceGenerator) cg).getCurrentPC();
       String error = search.getLastError().getDetails();
       error = "\"" + error.substring(0, error.indexOf("\n")) + "...\"";
@@ -285,7 +285,7 @@ public class SymbolicListener extends PropertyListenerAdapter implements Publish
               }
               cg = prev_cg;
             }
-            if ((cg instanceof PCChoiceGenerator) && ((PCChoiceGenerator) cg).getCurrentPC() != null) {
+            if ((cg instanceof PCChoiceGenerator) && ((PCChoiceGenerator) cg).peekCurrentPC() != null) {
               PathCondition pc = ((PCChoiceGenerator) cg).getCurrentPC();
               // pc.solve(); //we only solve the pc
               if (SymbolicInstructionFactory.concolicMode) { // TODO: cleaner
@@ -67,7 +67,7 @@ public class SymbolicListener2 extends PropertyListenerAdapter {
         }
         cg = prev_cg;
       }
-      if ((cg instanceof PCChoiceGenerator) && ((PCChoiceGenerator) cg).getCurrentPC() != null) {
+      if ((cg instanceof PCChoiceGenerator) && ((PCChoiceGenerator) cg).peekCurrentPC() != null) {
         PathCondition pc = ((PCChoiceGenerator) cg).getCurrentPC();
         handleNewPathCondition(pc);
       }
@@ -87,7 +87,7 @@ public class SymbolicListener2 extends PropertyListenerAdapter {
       }
       cg = prev_cg;
     }
-    if ((cg instanceof PCChoiceGenerator) && ((PCChoiceGenerator) cg).getCurrentPC() != null) {
+    if ((cg instanceof PCChoiceGenerator) && ((PCChoiceGenerator) cg).peekCurrentPC() != null) {
       PathCondition pc = ((PCChoiceGenerator) cg).getCurrentPC();
       handleNewPathCondition(pc);
     }
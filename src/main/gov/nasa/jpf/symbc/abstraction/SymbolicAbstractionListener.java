@@ -235,7 +235,7 @@ public class SymbolicAbstractionListener extends PropertyListenerAdapter{
 
 		String lastInvokedSequence = null;
 		if ((cg instanceof PCChoiceGenerator) &&
-				      ((PCChoiceGenerator) cg).getCurrentPC() != null){
+				      ((PCChoiceGenerator) cg).peekCurrentPC() != null){
 
 			PathCondition pc = ((PCChoiceGenerator) cg).getCurrentPC();
 			//solve the path condition
@@ -418,7 +418,7 @@ public class SymbolicAbstractionListener extends PropertyListenerAdapter{
 						cg = prev_cg;
 					}
 					if ((cg instanceof PCChoiceGenerator) &&
-							      ((PCChoiceGenerator) cg).getCurrentPC() != null){
+							      ((PCChoiceGenerator) cg).peekCurrentPC() != null){
 
 						PathCondition pc = ((PCChoiceGenerator) cg).getCurrentPC();
 						//solve the path condition
@@ -37,11 +37,17 @@ public class ArrayConstraint extends Constraint {
       super(ie, c, ae);
     }
 
+    public ArrayConstraint(ContentsExpression ce, Comparator c, ArrayExpression ae) {
+      super(ce, c, ae);
+    }
+
     public Constraint copy() {
         if (this.getLeft() instanceof SelectExpression) {
             return new ArrayConstraint((SelectExpression)getLeft(), getComparator(), (IntegerExpression)getRight());
         } else if (this.getLeft() instanceof StoreExpression) {
             return new ArrayConstraint((StoreExpression)getLeft(), getComparator(), (ArrayExpression)getRight());
+        } else if (this.getLeft() instanceof ContentsExpression) {
+            return new ArrayConstraint((ContentsExpression)getLeft(), getComparator(), (ArrayExpression)getRight());
         } else {
             return new ArrayConstraint((InitExpression)getLeft(), getComparator(), (ArrayExpression)getRight());
         }
@@ -29,51 +29,59 @@ import java.util.Map;
 public class ArrayExpression extends Expression {
     public IntegerExpression length;
     private String elemType = "?";
-    private final String name;
+    // the array is identified by its root name and the number of stores since
+    // then; the versioned name root!version is only built when asked for
+    private final String root;
+    private final int version;
+    private String name;
 
     public String getName() {
+        if (this.name == null) {
+            this.name = root + "!" + version;
+        }
         return this.name;
     }
 
+    private ArrayExpression(String name, IntegerExpression length, String elemType) {
+        // names of later versions are only parsed here, when they come from outside
+        int bang = name.indexOf("!");
+        this.root = (bang == -1) ? name : name.substring(0, bang);
+        this.version = (bang == -1) ? 0 : Integer.parseInt(name.substring(bang + 1));
+        this.name = name;
+        this.length = length;
+        this.elemType = elemType;
+    }
+
     public ArrayExpression(String name) {
-        this.name=name;
-        this.length = new SymbolicInteger(name+"_length");
+        this(name, new SymbolicInteger(name+"_length"), "?");
     }
 
     public ArrayExpression(String name, int l) {
-        this.name = name;
-        this.length = new IntegerConstant(l);
+        this(name, new IntegerConstant(l), "?");
     }
 
     public ArrayExpression(String name, String arrayType) {
-        this.name = name;
-        this.length = new SymbolicInteger(name+"_length");
-        this.elemType = arrayType;
+        this(name, new SymbolicInteger(name+"_length"), arrayType);
     }
 
     public static String getNewName(ArrayExpression prev) {
-        String newName = prev.getName();
-        if (newName.indexOf("!") == -1) {
-            newName = newName + "!1";
-        } else {
-            /* Increment the number after '!' */
-            int aux = Integer.parseInt(newName.substring(newName.indexOf("!") + 1));
-            newName = newName.substring(0, newName.indexOf("!") + 1) + (aux + 1);
-        }
-        return newName;
+        return prev.root + "!" + (prev.version + 1);
     }
 
     public String getRootName() {
-        if (this.getName().indexOf("!") == -1) {
-            return this.getName();
-        } else {
-            return this.getName().substring(0, this.getName().indexOf("!"));
-        }
+        return this.root;
+    }
 
+    public int getVersion() {
+        return this.version;
     }
 
+    /**
+     * The next version of prev, after a store.
+     */
     public ArrayExpression(ArrayExpression prev) {
-        this.name = getNewName(prev);
+        this.root = prev.root;
+        this.version = prev.version + 1;
         this.length = prev.length;
         this.elemType = prev.getElemType();
     }
@@ -95,7 +103,7 @@ public class ArrayExpression extends Expression {
     }
 
    public String stringPC() {
-        return (name != null) ? name : "ARRAY_" + hashCode();
+        return getName();
     }
 
     public void accept(ConstraintExpressionVisitor visitor) {
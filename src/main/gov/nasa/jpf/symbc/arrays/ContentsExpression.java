@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.arrays;
+
+import gov.nasa.jpf.symbc.numeric.ConstraintExpressionVisitor;
+import gov.nasa.jpf.symbc.numeric.Expression;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The contents of a concrete array that is accessed with a symbolic index, as
+ * one snapshot instead of one select constraint per element. The snapshot is
+ * shared: loads of an array whose contents did not change get the same one,
+ * so that the solvers can translate it once and reuse the translation.
+ */
+public class ContentsExpression extends Expression {
+    // last snapshot per array, to share it between loads
+    static final int MAX_SNAPSHOTS = 256;
+    private static final Map<String, Object> snapshots = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+            return size() > MAX_SNAPSHOTS;
+        }
+    };
+
+    public final ArrayExpression arrayExpression;
+    private final long[] values;
+    private final double[] realValues;
+
+    private ContentsExpression(ArrayExpression ae, long[] values, double[] realValues) {
+        this.arrayExpression = ae;
+        this.values = values;
+        this.realValues = realValues;
+    }
+
+    public static ContentsExpression create(ArrayExpression ae, long[] values) {
+        synchronized (snapshots) {
+            Object last = snapshots.get(ae.getRootName());
+            if (last instanceof long[] && Arrays.equals((long[]) last, values)) {
+                values = (long[]) last;
+            } else {
+                snapshots.put(ae.getRootName(), values);
+            }
+        }
+        return new ContentsExpression(ae, values, null);
+    }
+
+    public static ContentsExpression create(ArrayExpression ae, double[] values) {
+        synchronized (snapshots) {
+            Object last = snapshots.get(ae.getRootName());
+            if (last instanceof double[] && Arrays.equals((double[]) last, values)) {
+                values = (double[]) last;
+            } else {
+                snapshots.put(ae.getRootName(), values);
+            }
+        }
+        return new ContentsExpression(ae, null, values);
+    }
+
+    public boolean isReal() {
+        return realValues != null;
+    }
+
+    public int size() {
+        return isReal() ? realValues.length : values.length;
+    }
+
+    /**
+     * The snapshot of an integer array; shared, it must not be modified.
+     */
+    public long[] getValues() {
+        return values;
+    }
+
+    /**
+     * The snapshot of a real array; shared, it must not be modified.
+     */
+    public double[] getRealValues() {
+        return realValues;
+    }
+
+    public void accept(ConstraintExpressionVisitor visitor) {
+        visitor.preVisit(this);
+        visitor.postVisit(this);
+    }
+
+    public void getVarsVals(Map<String, Object> varsVals) {
+        return;
+    }
+
+    public String stringPC() {
+        return arrayExpression.stringPC() + "_contents = "
+                + (isReal() ? Arrays.toString(realValues) : Arrays.toString(values));
+    }
+
+    public int compareTo(Expression expr) {
+        // unimplemented
+        return 0;
+    }
+
+    public String toString() {
+        return this.stringPC();
+    }
+}
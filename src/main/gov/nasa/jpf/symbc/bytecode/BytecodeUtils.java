@@ -20,6 +20,7 @@ package gov.nasa.jpf.symbc.bytecode;
 
 import gov.nasa.jpf.Config;
 import gov.nasa.jpf.jvm.bytecode.JVMInvokeInstruction;
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
 import gov.nasa.jpf.symbc.arrays.ArrayExpression;
 import gov.nasa.jpf.symbc.heap.Helper;
 import gov.nasa.jpf.symbc.numeric.Comparator;
@@ -35,6 +36,7 @@ import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
 import gov.nasa.jpf.symbc.numeric.SymbolicReal;
 import gov.nasa.jpf.symbc.string.StringExpression;
 import gov.nasa.jpf.symbc.string.StringSymbolic;
+import gov.nasa.jpf.symbc.summaries.SummaryCache;
 import gov.nasa.jpf.vm.AnnotationInfo;
 import gov.nasa.jpf.vm.ChoiceGenerator;
 import gov.nasa.jpf.vm.ClassInfo;
@@ -225,6 +227,11 @@ public class BytecodeUtils {
 
         boolean symClass = BytecodeUtils.isClassSymbolic(conf, cname, mi, mname);
         boolean found = (BytecodeUtils.isMethodSymbolic(conf, longName, argSize, args) || symClass);
+        if (!found && SymbolicInstructionFactory.summaries) {
+            Instruction summarized = SummaryCache.invoke(invInst, mi, th);
+            if (summarized != null) // the call was replaced by a case of the callee's summary
+                return new InstructionOrSuper(false, summarized);
+        }
         if (found) {
             // method is symbolic
 
@@ -65,6 +65,7 @@ import gov.nasa.jpf.vm.VM;
 import gov.nasa.jpf.vm.StackFrame;
 import gov.nasa.jpf.vm.ThreadInfo;
 import gov.nasa.jpf.jvm.bytecode.JVMInvokeInstruction;
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
 import gov.nasa.jpf.symbc.mixednumstrg.SpecialRealExpression;
 import gov.nasa.jpf.symbc.numeric.IntegerConstant;
 import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
@@ -147,6 +148,8 @@ public class SymbolicStringHandler {
 			} else if (shortName.equals("equals")) {
 				ChoiceGenerator<?> cg;
 				if (!th.isFirstStepInsn()) { // first time around
+					if (SymbolicInstructionFactory.stringBranchesTogether)
+						return decideBranches(invInst, th, StringComparator.EQUALS);
 					cg = new PCChoiceGenerator(2);
 					th.getVM().setNextChoiceGenerator(cg);
 					return invInst;
@@ -167,6 +170,8 @@ public class SymbolicStringHandler {
 			} else if (shortName.equals("endsWith")) {
 				ChoiceGenerator<?> cg;
 				if (!th.isFirstStepInsn()) { // first time around
+					if (SymbolicInstructionFactory.stringBranchesTogether)
+						return decideBranches(invInst, th, StringComparator.ENDSWITH);
 					cg = new PCChoiceGenerator(2);
 					th.getVM().setNextChoiceGenerator(cg);
 					return invInst;
@@ -177,6 +182,8 @@ public class SymbolicStringHandler {
 			} else if (shortName.equals("startsWith")) {
 				ChoiceGenerator<?> cg;
 				if (!th.isFirstStepInsn()) { // first time around
+					if (SymbolicInstructionFactory.stringBranchesTogether)
+						return decideBranches(invInst, th, StringComparator.STARTSWITH);
 					cg = new PCChoiceGenerator(2);
 					th.getVM().setNextChoiceGenerator(cg);
 					return invInst;
@@ -187,6 +194,8 @@ public class SymbolicStringHandler {
 			} else if (shortName.equals ("contains")) {
 				ChoiceGenerator<?> cg;
 				if (!th.isFirstStepInsn()) { // first time around
+					if (SymbolicInstructionFactory.stringBranchesTogether)
+						return decideBranches(invInst, th, StringComparator.CONTAINS);
 					cg = new PCChoiceGenerator(2);
 					th.getVM().setNextChoiceGenerator(cg);
 					return invInst;
@@ -840,6 +849,10 @@ public class SymbolicStringHandler {
 
 			int s1 = sf.pop();
 			int s2 = sf.pop();
+			if (((PCChoiceGenerator) cg).hasCurrentPC()) { // decided the first time around
+				sf.push(conditionValue ? 1 : 0, true);
+				return;
+			}
 			PathCondition pc;
 
 			// pc is updated with the pc stored in the choice generator above
@@ -860,19 +873,7 @@ public class SymbolicStringHandler {
 			assert pc != null;
 
 			if (conditionValue) {
-				if (sym_v1 != null) {
-					if (sym_v2 != null) { // both are symbolic values
-						pc.spc._addDet(comp, sym_v1, sym_v2);
-					} else {
-						ElementInfo e2 = th.getElementInfo(s2);
-						String val = e2.asString();
-						pc.spc._addDet(comp, sym_v1, val);
-					}
-				} else {
-					ElementInfo e1 = th.getElementInfo(s1);
-					String val = e1.asString();
-					pc.spc._addDet(comp, val, sym_v2);
-				}
+				addStringConstraint(pc, comp, sym_v1, sym_v2, s1, s2, th);
 				if (!pc.simplify()) {// not satisfiable
 					th.getVM().getSystemState().setIgnored(true);
 				} else {
@@ -881,20 +882,7 @@ public class SymbolicStringHandler {
 					// System.out.println(((PCChoiceGenerator) cg).getCurrentPC());
 				}
 			} else {
-				if (sym_v1 != null) {
-					if (sym_v2 != null) { // both are symbolic values
-						pc.spc._addDet(comp.not(), sym_v1, sym_v2);
-					} else {
-						ElementInfo e2 = th.getElementInfo(s2);
-						String val = e2.asString();
-						pc.spc._addDet(comp.not(), sym_v1, val);
-
-					}
-				} else {
-					ElementInfo e1 = th.getElementInfo(s1);
-					String val = e1.asString();
-					pc.spc._addDet(comp.not(), val, sym_v2);
-				}
+				addStringConstraint(pc, comp.not(), sym_v1, sym_v2, s1, s2, th);
 				if (!pc.simplify()) {// not satisfiable
 					th.getVM().getSystemState().setIgnored(true);
 				} else {
@@ -908,6 +896,79 @@ public class SymbolicStringHandler {
 
 	}
 
+	// s1 and s2 are the operands (references to the concrete strings) of sym_v1 and sym_v2
+	private void addStringConstraint(PathCondition pc, StringComparator comp, StringExpression sym_v1,
+			StringExpression sym_v2, int s1, int s2, ThreadInfo th) {
+		if (sym_v1 != null) {
+			if (sym_v2 != null) { // both are symbolic values
+				pc.spc._addDet(comp, sym_v1, sym_v2);
+			} else {
+				ElementInfo e2 = th.getElementInfo(s2);
+				String val = e2.asString();
+				pc.spc._addDet(comp, sym_v1, val);
+			}
+		} else {
+			ElementInfo e1 = th.getElementInfo(s1);
+			String val = e1.asString();
+			pc.spc._addDet(comp, val, sym_v2);
+		}
+	}
+
+	/*
+	 * symbolic.string_branches_together: decides both outcomes of a boolean
+	 * string method the first time around, so a choice generator is only
+	 * created if both are possible. If the string solver proves one outcome
+	 * impossible, the other one is taken without solving again: the path
+	 * condition so far is satisfiable, and all its solutions lead there.
+	 * (Then the constraint is implied and not added to the path condition.)
+	 */
+	private Instruction decideBranches(JVMInvokeInstruction invInst, ThreadInfo th, StringComparator comp) {
+		StackFrame sf = th.getModifiableTopFrame();
+		Object attr1 = sf.getOperandAttr(0);
+		Object attr2 = sf.getOperandAttr(1);
+		if ((attr1 != null && !(attr1 instanceof StringExpression))
+				|| (attr2 != null && !(attr2 instanceof StringExpression))) {
+			throw new RuntimeException("ERROR: expressiontype not handled: " + comp);
+		}
+		StringExpression sym_v1 = (StringExpression) attr1;
+		StringExpression sym_v2 = (StringExpression) attr2;
+		if (sym_v1 == null && sym_v2 == null) {
+			throw new RuntimeException("ERROR: symbolic string method must have one symbolic operand: " + comp);
+		}
+
+		ChoiceGenerator<?> cg = th.getVM().getChoiceGenerator();
+		PCChoiceGenerator prev_cg = (cg instanceof PCChoiceGenerator) ? (PCChoiceGenerator) cg
+				: (cg == null) ? null : cg.getPreviousChoiceGeneratorOfType(PCChoiceGenerator.class);
+		PathCondition pc = (prev_cg == null) ? new PathCondition() : prev_cg.getCurrentPC();
+
+		int s1 = sf.peek(0);
+		int s2 = sf.peek(1);
+		PathCondition truePC = pc.make_copy();
+		PathCondition falsePC = pc.make_copy();
+		addStringConstraint(truePC, comp, sym_v1, sym_v2, s1, s2, th);
+		addStringConstraint(falsePC, comp.not(), sym_v1, sym_v2, s1, s2, th);
+
+		boolean trueSat = truePC.simplify();
+		SymbolicStringConstraintsGeneral.Verdict why = truePC.spc.getVerdict();
+		boolean falseSat = (!trueSat && why != null && why.isUnsat()) ? true
+				: falsePC.simplify();
+
+		if (trueSat && falseSat) {
+			PCChoiceGenerator newCg = new PCChoiceGenerator(2);
+			newCg.setPC(falsePC, 0);
+			newCg.setPC(truePC, 1);
+			th.getVM().setNextChoiceGenerator(newCg);
+			return invInst;
+		}
+		sf.pop();
+		sf.pop();
+		if (!trueSat && !falseSat) {
+			th.getVM().getSystemState().setIgnored(true);
+		}
+		sf.push(trueSat ? 1 : 0, true);
+		return invInst.getNext(th);
+	}
+
 	public void handleEqualsIgnoreCase(JVMInvokeInstruction invInst,  ThreadInfo th) {
 		throw new RuntimeException("ERROR: symbolic string method not Implemented - EqualsIgnoreCase");
 	}
@@ -0,0 +1,360 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gov.nasa.jpf.symbc.bytecode.optimization.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import gov.nasa.jpf.jvm.bytecode.BIPUSH;
+import gov.nasa.jpf.jvm.bytecode.GOTO;
+import gov.nasa.jpf.jvm.bytecode.IADD;
+import gov.nasa.jpf.jvm.bytecode.ICONST;
+import gov.nasa.jpf.jvm.bytecode.IINC;
+import gov.nasa.jpf.jvm.bytecode.ILOAD;
+import gov.nasa.jpf.jvm.bytecode.IMUL;
+import gov.nasa.jpf.jvm.bytecode.INEG;
+import gov.nasa.jpf.jvm.bytecode.ISTORE;
+import gov.nasa.jpf.jvm.bytecode.ISUB;
+import gov.nasa.jpf.jvm.bytecode.IfInstruction;
+import gov.nasa.jpf.jvm.bytecode.SIPUSH;
+import gov.nasa.jpf.jvm.bytecode.SwitchInstruction;
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.IfThenElseIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.IntegerExpression;
+import gov.nasa.jpf.symbc.numeric.SymbolicConstraintsGeneral;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.StackFrame;
+import gov.nasa.jpf.vm.ThreadInfo;
+
+/**
+ * Bounded state merging of small if/else diamonds.
+ *
+ * A symbolic branch with two feasible sides normally forks. If the code
+ * between the branch and the point where the sides join only moves int values
+ * between the operand stack and the locals (loads, stores, constants, +, -, *,
+ * negation, iinc), both sides can be executed at once instead: every local or
+ * stack slot that differs at the join gets an if-then-else value over the
+ * branch condition, and the path goes on at the join without a choice. The
+ * path condition does not change, the condition only lives in the values.
+ *
+ * The shapes recognized are the ones javac emits for
+ *
+ *   if (c) {...} else {...}   IFxx L1; ...; GOTO L2; L1: ...; L2:
+ *   if (c) {...}              IFxx L2; ...; L2:
+ *   x = c ? a : b;            like if/else, with one value left on the stack
+ *
+ * where both sides only jump forward and nothing else jumps into them. Every
+ * branch is analyzed once.
+ *
+ * symbolic.merge=true          merge diamonds (only with decision procedures that
+ *                              take if-then-else terms: z3, z3inc, cvc3, yices)
+ * symbolic.merge.max_size=n    at most n instructions in both sides together (default 20)
+ */
+public class DiamondMerger {
+
+	static class Diamond {
+		final Instruction[] taken; // branch target up to the join
+		final Instruction[] fallThrough; // next instruction up to the GOTO (or the join)
+		final Instruction join;
+
+		Diamond(Instruction[] taken, Instruction[] fallThrough, Instruction join) {
+			this.taken = taken;
+			this.fallThrough = fallThrough;
+			this.join = join;
+		}
+
+		int size() {
+			return taken.length + fallThrough.length;
+		}
+	}
+
+	private static final Diamond NONE = new Diamond(null, null, null);
+
+	private static final Map<Instruction, Diamond> diamonds = new HashMap<Instruction, Diamond>();
+
+	/**
+	 * Executes both sides of the branch, if they form a diamond that can be
+	 * merged, and returns the join. Returns null if the branch has to fork.
+	 *
+	 * The branch is taken if "left comp right" holds; concreteTaken is the
+	 * outcome on the concrete values. The branch operands (n of them) are still
+	 * on the operand stack, and are popped if the diamond is merged.
+	 */
+	public static Instruction merge(ThreadInfo ti, IfInstruction branch, int n, IntegerExpression left,
+			Comparator comp, IntegerExpression right, boolean concreteTaken) {
+		if (!SymbolicInstructionFactory.merge || !SymbolicConstraintsGeneral.supportsIte())
+			return null;
+		Diamond d = getDiamond(branch);
+		if (d == null || d.size() > SymbolicInstructionFactory.mergeMaxSize)
+			return null;
+
+		StackFrame sf = ti.getModifiableTopFrame();
+		Side taken = Side.run(d.taken, sf);
+		Side fallThrough = Side.run(d.fallThrough, sf);
+		if (taken == null || fallThrough == null)
+			return null;
+
+		Map<Integer, Value> locals = new LinkedHashMap<Integer, Value>();
+		for (int index : taken.locals.keySet()) {
+			locals.put(index, null);
+		}
+		for (int index : fallThrough.locals.keySet()) {
+			locals.put(index, null);
+		}
+		for (Map.Entry<Integer, Value> e : locals.entrySet()) {
+			Value t = taken.load(sf, e.getKey());
+			Value f = fallThrough.load(sf, e.getKey());
+			if (t == null || f == null)
+				return null;
+			e.setValue(select(left, comp, right, concreteTaken, t, f));
+		}
+
+		for (int i = 0; i < n; i++) {
+			sf.pop();
+		}
+		for (Map.Entry<Integer, Value> e : locals.entrySet()) {
+			sf.setLocalVariable(e.getKey(), e.getValue().value, false);
+			sf.setLocalAttr(e.getKey(), e.getValue().expr);
+		}
+		for (int i = 0; i < taken.stack.size(); i++) {
+			Value v = select(left, comp, right, concreteTaken, taken.stack.get(i), fallThrough.stack.get(i));
+			sf.push(v.value, false);
+			sf.setOperandAttr(v.expr);
+		}
+		return d.join;
+	}
+
+	private static Value select(IntegerExpression left, Comparator comp, IntegerExpression right,
+			boolean concreteTaken, Value t, Value f) {
+		if (t.expr == null && f.expr == null && t.value == f.value)
+			return t;
+		if (t.expr != null && t.expr == f.expr)
+			return concreteTaken ? t : f;
+		IntegerExpression e = new IfThenElseIntegerExpression(left, comp, right, t.symbolic(), f.symbolic());
+		return new Value(concreteTaken ? t.value : f.value, e);
+	}
+
+	/*
+	 * Forgets the diamonds found in the previous run; its instructions are not
+	 * the ones of this run, and would otherwise be kept alive.
+	 */
+	public static void reset() {
+		diamonds.clear();
+	}
+
+	static Diamond getDiamond(IfInstruction branch) {
+		Diamond d = diamonds.get(branch);
+		if (d == null) {
+			d = analyze(branch);
+			diamonds.put(branch, (d == null) ? NONE : d);
+		}
+		return (d == NONE) ? null : d;
+	}
+
+	static Diamond analyze(IfInstruction branch) {
+		Instruction target = branch.getTarget();
+		if (target.getPosition() <= branch.getPosition())
+			return null;
+
+		List<Instruction> fallThrough = new ArrayList<Instruction>();
+		List<Instruction> taken = new ArrayList<Instruction>();
+		Instruction join = target;
+		for (Instruction i = branch.getNext(); i != target; i = i.getNext()) {
+			if (i == null)
+				return null;
+			if (i instanceof GOTO && i.getNext() == target) {
+				join = ((GOTO) i).getTarget();
+				if (join.getPosition() <= target.getPosition())
+					return null;
+				break;
+			}
+			if (!isMergeable(i))
+				return null;
+			fallThrough.add(i);
+		}
+		for (Instruction i = target; i != join; i = i.getNext()) {
+			if (i == null || !isMergeable(i))
+				return null;
+			taken.add(i);
+		}
+
+		int pushed = stackEffect(fallThrough);
+		if (pushed < 0 || pushed != stackEffect(taken))
+			return null;
+		if (!isEnteredOnlyBy(branch, join))
+			return null;
+
+		return new Diamond(taken.toArray(new Instruction[taken.size()]),
+				fallThrough.toArray(new Instruction[fallThrough.size()]), join);
+	}
+
+	static boolean isMergeable(Instruction i) {
+		return i instanceof ILOAD || i instanceof ISTORE || i instanceof ICONST || i instanceof BIPUSH
+				|| i instanceof SIPUSH || i instanceof IADD || i instanceof ISUB || i instanceof IMUL
+				|| i instanceof INEG || i instanceof IINC;
+	}
+
+	/*
+	 * number of values a side leaves on the operand stack, or -1 if it takes
+	 * values it did not push itself
+	 */
+	static int stackEffect(List<Instruction> side) {
+		int depth = 0;
+		for (Instruction i : side) {
+			if (i instanceof ISTORE || i instanceof IADD || i instanceof ISUB || i instanceof IMUL) {
+				if (--depth < 0)
+					return -1;
+			} else if (i instanceof INEG) {
+				if (depth < 1)
+					return -1;
+			} else if (!(i instanceof IINC)) {
+				depth++;
+			}
+		}
+		return depth;
+	}
+
+	/*
+	 * no jumps from elsewhere in the method to the inside of the diamond (the
+	 * join itself can be a target)
+	 */
+	static boolean isEnteredOnlyBy(IfInstruction branch, Instruction join) {
+		int start = branch.getPosition();
+		int end = join.getPosition();
+		MethodInfo mi = branch.getMethodInfo();
+		for (Instruction i : mi.getInstructions()) {
+			if (i == branch)
+				continue;
+			if (i instanceof IfInstruction) {
+				if (isInside(((IfInstruction) i).getTarget().getPosition(), start, end))
+					return false;
+			} else if (i instanceof GOTO) {
+				if (isInside(((GOTO) i).getTarget().getPosition(), start, end))
+					return false;
+			} else if (i instanceof SwitchInstruction) {
+				SwitchInstruction s = (SwitchInstruction) i;
+				if (isInside(s.getDefaultTarget(), start, end))
+					return false;
+				for (int t : s.getTargets()) {
+					if (isInside(t, start, end))
+						return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static boolean isInside(int position, int start, int end) {
+		return position > start && position < end;
+	}
+
+	static class Value {
+		final int value;
+		final IntegerExpression expr; // null if concrete
+
+		Value(int value, IntegerExpression expr) {
+			this.value = value;
+			this.expr = expr;
+		}
+
+		IntegerExpression symbolic() {
+			return (expr != null) ? expr : new IntegerConstant(value);
+		}
+	}
+
+	/*
+	 * the effect of one side: the locals it writes and the values it leaves on
+	 * the stack
+	 */
+	static class Side {
+		final Map<Integer, Value> locals = new HashMap<Integer, Value>();
+		final List<Value> stack = new ArrayList<Value>();
+
+		Value load(StackFrame sf, int index) {
+			Value v = locals.get(index);
+			if (v != null)
+				return v;
+			Object attr = sf.getLocalAttr(index);
+			if (attr != null && !(attr instanceof IntegerExpression))
+				return null;
+			return new Value(sf.getLocalVariable(index), (IntegerExpression) attr);
+		}
+
+		Value pop() {
+			return stack.remove(stack.size() - 1);
+		}
+
+		/*
+		 * returns null if a local holds something other than an int expression
+		 */
+		static Side run(Instruction[] insns, StackFrame sf) {
+			Side s = new Side();
+			for (Instruction i : insns) {
+				if (i instanceof ILOAD) {
+					Value v = s.load(sf, ((ILOAD) i).getLocalVariableIndex());
+					if (v == null)
+						return null;
+					s.stack.add(v);
+				} else if (i instanceof ISTORE) {
+					s.locals.put(((ISTORE) i).getLocalVariableIndex(), s.pop());
+				} else if (i instanceof ICONST) {
+					s.stack.add(new Value(((ICONST) i).getValue(), null));
+				} else if (i instanceof BIPUSH) {
+					s.stack.add(new Value(((BIPUSH) i).getValue(), null));
+				} else if (i instanceof SIPUSH) {
+					s.stack.add(new Value(((SIPUSH) i).getValue(), null));
+				} else if (i instanceof IINC) {
+					IINC inc = (IINC) i;
+					Value v = s.load(sf, inc.getIndex());
+					if (v == null)
+						return null;
+					s.locals.put(inc.getIndex(), add(v, new Value(inc.getIncrement(), null)));
+				} else if (i instanceof INEG) {
+					Value v = s.pop();
+					s.stack.add(new Value(-v.value, (v.expr != null) ? v.expr._neg() : null));
+				} else {
+					Value r = s.pop();
+					Value l = s.pop();
+					if (i instanceof IADD) {
+						s.stack.add(add(l, r));
+					} else if (i instanceof ISUB) {
+						s.stack.add(new Value(l.value - r.value,
+								(l.expr == null && r.expr == null) ? null : l.symbolic()._minus(r.symbolic())));
+					} else {
+						s.stack.add(new Value(l.value * r.value,
+								(l.expr == null && r.expr == null) ? null : l.symbolic()._mul(r.symbolic())));
+					}
+				}
+			}
+			return s;
+		}
+
+		static Value add(Value l, Value r) {
+			return new Value(l.value + r.value,
+					(l.expr == null && r.expr == null) ? null : l.symbolic()._plus(r.symbolic()));
+		}
+	}
+}
@@ -25,6 +25,7 @@ package gov.nasa.jpf.symbc.bytecode.optimization.util;
 import gov.nasa.jpf.jvm.bytecode.IfInstruction;
 import gov.nasa.jpf.jvm.bytecode.LCMP;
 import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
 import gov.nasa.jpf.symbc.numeric.IntegerExpression;
 import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
 import gov.nasa.jpf.symbc.numeric.PathCondition;
@@ -96,6 +97,7 @@ public class IFInstrSymbHelper {
 					}
 					newPCChoice.setOffset(instr.getPosition());
 					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
+					setCheckedPCs(newPCChoice, firstSat ? firstPC : null, secSat ? secPC : null, thirdSat ? thirdPC : null);
 					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
 					return instr;
 				} else if(thirdSat) {
@@ -103,6 +105,7 @@ public class IFInstrSymbHelper {
 					PCChoiceGenerator newPCChoice = new PCChoiceGenerator(0, 2, 2);
 					newPCChoice.setOffset(instr.getPosition());
 					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
+					setCheckedPCs(newPCChoice, firstSat ? firstPC : null, secSat ? secPC : null, thirdSat ? thirdPC : null);
 					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
 					return instr;
 				} else {
@@ -115,6 +118,7 @@ public class IFInstrSymbHelper {
 					PCChoiceGenerator newPCChoice = new PCChoiceGenerator(1, 2);
 					newPCChoice.setOffset(instr.getPosition());
 					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
+					setCheckedPCs(newPCChoice, firstSat ? firstPC : null, secSat ? secPC : null, thirdSat ? thirdPC : null);
 					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
 					return instr;
 				} else {
@@ -142,7 +146,9 @@ public class IFInstrSymbHelper {
 				pc = ((PCChoiceGenerator)prevCg).getCurrentPC();
 			
 			conditionValue = ((PCChoiceGenerator) curCg).getNextChoice() -1;
-			if (conditionValue == -1) {
+			if (PathCondition.keepModels && curCg.hasCurrentPC()) {
+				// checked the first time around
+			} else if (conditionValue == -1) {
 				if (sym_v1 != null) {
 					if (sym_v2 != null) { // both are symbolic values
 						pc._addDet(firstComparator, sym_v2, sym_v1);
@@ -237,6 +243,7 @@ public class IFInstrSymbHelper {
 					}
 					newPCChoice.setOffset(instr.getPosition());
 					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
+					setCheckedPCs(newPCChoice, firstSat ? firstPC : null, secSat ? secPC : null, thirdSat ? thirdPC : null);
 					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
 					return instr;
 				} else if(thirdSat) {
@@ -244,6 +251,7 @@ public class IFInstrSymbHelper {
 					PCChoiceGenerator newPCChoice = new PCChoiceGenerator(0, 2, 2);
 					newPCChoice.setOffset(instr.getPosition());
 					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
+					setCheckedPCs(newPCChoice, firstSat ? firstPC : null, secSat ? secPC : null, thirdSat ? thirdPC : null);
 					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
 					return instr;
 				} else {
@@ -256,6 +264,7 @@ public class IFInstrSymbHelper {
 					PCChoiceGenerator newPCChoice = new PCChoiceGenerator(1, 2);
 					newPCChoice.setOffset(instr.getPosition());
 					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
+					setCheckedPCs(newPCChoice, firstSat ? firstPC : null, secSat ? secPC : null, thirdSat ? thirdPC : null);
 					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
 					return instr;
 				} else {
@@ -282,7 +291,9 @@ public class IFInstrSymbHelper {
 				pc = prevCg.getCurrentPC();
 			
 			conditionValue = ((PCChoiceGenerator) curCg).getNextChoice() -1;
-			if (conditionValue == -1) {
+			if (PathCondition.keepModels && curCg.hasCurrentPC()) {
+				// checked the first time around
+			} else if (conditionValue == -1) {
 				if (sym_v1 != null) {
 					if (sym_v2 != null) { // both are symbolic values
 						pc._addDet(firstComparator, sym_v2, sym_v1);
@@ -379,6 +390,7 @@ public class IFInstrSymbHelper {
 					}
 					newPCChoice.setOffset(instr.getPosition());
 					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
+					setCheckedPCs(newPCChoice, firstSat ? firstPC : null, secSat ? secPC : null, thirdSat ? thirdPC : null);
 					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
 					return instr;
 				} else if(thirdSat) {
@@ -386,6 +398,7 @@ public class IFInstrSymbHelper {
 					PCChoiceGenerator newPCChoice = new PCChoiceGenerator(0, 2, 2);
 					newPCChoice.setOffset(instr.getPosition());
 					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
+					setCheckedPCs(newPCChoice, firstSat ? firstPC : null, secSat ? secPC : null, thirdSat ? thirdPC : null);
 					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
 					return instr;
 				} else {
@@ -397,6 +410,7 @@ public class IFInstrSymbHelper {
 					PCChoiceGenerator newPCChoice = new PCChoiceGenerator(1, 2);
 					newPCChoice.setOffset(instr.getPosition());
 					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
+					setCheckedPCs(newPCChoice, firstSat ? firstPC : null, secSat ? secPC : null, thirdSat ? thirdPC : null);
 					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
 					return instr;
 				} else {
@@ -424,7 +438,9 @@ public class IFInstrSymbHelper {
 				pc = prevCg.getCurrentPC();
 			
 			conditionValue = ((PCChoiceGenerator) curCg).getNextChoice() -1;
-			if (conditionValue == -1) {
+			if (PathCondition.keepModels && curCg.hasCurrentPC()) {
+				// checked the first time around
+			} else if (conditionValue == -1) {
 				if (sym_v1 != null) {
 					if (sym_v2 != null) { // both are symbolic values
 						pc._addDet(firstComparator, sym_v2, sym_v1);
@@ -492,10 +508,15 @@ public class IFInstrSymbHelper {
 			
 			if(eqSat) {
 				if(neSat) {
+					Instruction join = DiamondMerger.merge(ti, instr, 1, sym_v, trueComparator, new IntegerConstant(0),
+							trueComparator.evaluate(ti.getModifiableTopFrame().peek(), 0));
+					if(join != null)
+						return join;
 					PCChoiceGenerator newPCChoice;
 					newPCChoice = new PCChoiceGenerator(2);
 					newPCChoice.setOffset(instr.getPosition());
 					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
+					setCheckedPCs(newPCChoice, nePC, eqPC);
 					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
 					return instr;
 				} else {
@@ -518,6 +539,8 @@ public class IFInstrSymbHelper {
 			else
 				pc = prevCg.getCurrentPC();
 			boolean conditionValue = (Integer)curCg.getNextChoice()==1 ? true: false;
+			if(PathCondition.keepModels && curCg.hasCurrentPC()) // checked the first time around
+				return conditionValue ? instr.getTarget() : instr.getNext(ti);
 			if(conditionValue) {
 				pc._addDet(trueComparator, sym_v, 0);
 				((PCChoiceGenerator) curCg).setCurrentPC(pc);
@@ -576,9 +599,15 @@ public class IFInstrSymbHelper {
 			
 			if(eqSat) {
 				if(neSat) {
+					Instruction join = DiamondMerger.merge(ti, instr, 2,
+							(sym_v1 != null) ? sym_v1 : new IntegerConstant(v1), trueComparator,
+							(sym_v2 != null) ? sym_v2 : new IntegerConstant(v2), trueComparator.evaluate(v1, v2));
+					if(join != null)
+						return join;
 					PCChoiceGenerator newPCChoice = new PCChoiceGenerator(2);
 					newPCChoice.setOffset(instr.getPosition());
 					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
+					setCheckedPCs(newPCChoice, nePC, eqPC);
 					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
 					return instr;
 				} else {
@@ -606,6 +635,8 @@ public class IFInstrSymbHelper {
 				pc = prevCg.getCurrentPC();
 			
 			boolean conditionValue = (Integer)curCg.getNextChoice()==1 ? true: false;
+			if(PathCondition.keepModels && curCg.hasCurrentPC()) // checked the first time around
+				return conditionValue ? instr.getTarget() : instr.getNext(ti);
 			if(conditionValue) {
 				if(sym_v1 != null){
 					if(sym_v2 != null){ //both are symbolic values
@@ -629,4 +660,19 @@ public class IFInstrSymbHelper {
 			}
 		}		
 	}
+
+	/*
+	 * hands the PCs checked the first time around to the new choice generator
+	 * (one per choice, null for the infeasible ones), so they are not built
+	 * again when the instruction is re-executed, and keep what the solver found;
+	 * only with symbolic.keep_models, otherwise they are rebuilt as before
+	 */
+	private static void setCheckedPCs(PCChoiceGenerator cg, PathCondition... pcs) {
+		if(!PathCondition.keepModels)
+			return;
+		for(int choice = 0; choice < pcs.length; choice++) {
+			if(pcs[choice] != null)
+				cg.setPC(pcs[choice], choice);
+		}
+	}
 }
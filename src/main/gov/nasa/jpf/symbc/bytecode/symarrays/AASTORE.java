@@ -63,9 +63,10 @@ public class AASTORE extends gov.nasa.jpf.jvm.bytecode.AASTORE {
           PCChoiceGenerator temp_cg = (PCChoiceGenerator)ti.getVM().getLastChoiceGeneratorOfType(PCChoiceGenerator.class);
           if (temp_cg != null) {
               // There was a previous path condition
-              if (temp_cg.getCurrentPC().arrayExpressions.containsKey(ti.getElementInfo(ti.getModifiableTopFrame().peek(2)).toString())) {
+              ArrayExpression previous = temp_cg.getArrayExpression(ti.getElementInfo(ti.getModifiableTopFrame().peek(2)).toString());
+              if (previous != null) {
                   // There was a previous symbolic object associated to this array. We retrieve it.
-                  ti.getModifiableTopFrame().setOperandAttr(2, temp_cg.getCurrentPC().arrayExpressions.get(ti.getElementInfo(ti.getModifiableTopFrame().peek(2)).toString()));
+                  ti.getModifiableTopFrame().setOperandAttr(2, previous);
               }
           }
 
@@ -213,7 +214,7 @@ public class AASTORE extends gov.nasa.jpf.jvm.bytecode.AASTORE {
 
                   StoreExpression se = new StoreExpression(arrayAttr, indexAttr, sym_value);
                   pc._addDet(Comparator.EQ, se, newArrayAttr);
-                  pc.arrayExpressions.put(newArrayAttr.getRootName(), newArrayAttr);
+                  pc.putArrayExpression(newArrayAttr.getRootName(), newArrayAttr);
 
                   return getNext(ti);
               } else {
@@ -158,7 +158,7 @@ public class ANEWARRAY extends gov.nasa.jpf.jvm.bytecode.ANEWARRAY {
       if (attr instanceof IntegerExpression) {
           arrayAttr = new ArrayExpression(eiArray.toString(), type);
           pc._addDet(Comparator.EQ, arrayAttr.length, (IntegerExpression)attr);
-          pc.arrayExpressions.put(arrayAttr.getRootName(), arrayAttr);
+          pc.putArrayExpression(arrayAttr.getRootName(), arrayAttr);
           // Initialize all elements to null (i.e. -1)
           pc._initializeArray(new InitExpression(arrayAttr, true), arrayAttr);
       }
@@ -22,6 +22,7 @@ package gov.nasa.jpf.symbc.bytecode.symarrays;
 
 import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
 import gov.nasa.jpf.symbc.arrays.ArrayExpression;
+import gov.nasa.jpf.symbc.arrays.ContentsExpression;
 import gov.nasa.jpf.symbc.arrays.SelectExpression;
 import gov.nasa.jpf.symbc.numeric.Comparator;
 import gov.nasa.jpf.symbc.numeric.IntegerConstant;
@@ -57,9 +58,10 @@ public class BALOAD extends gov.nasa.jpf.jvm.bytecode.BALOAD {
           // Retrieve the array expression if it was previously in the pathcondition
           PCChoiceGenerator temp_cg = (PCChoiceGenerator)ti.getVM().getLastChoiceGeneratorOfType(PCChoiceGenerator.class);
           if (temp_cg != null) {
-              if (temp_cg.getCurrentPC().arrayExpressions.containsKey(ti.getElementInfo(ti.getModifiableTopFrame().peek(1)).toString())) {
+              ArrayExpression previous = temp_cg.getArrayExpression(ti.getElementInfo(ti.getModifiableTopFrame().peek(1)).toString());
+              if (previous != null) {
                   // There was a previous symbolic array, we retrieve it
-                  ti.getModifiableTopFrame().setOperandAttr(1, temp_cg.getCurrentPC().arrayExpressions.get(ti.getElementInfo(ti.getModifiableTopFrame().peek(1)).toString()));
+                  ti.getModifiableTopFrame().setOperandAttr(1, previous);
               }
           }
 
@@ -101,13 +103,14 @@ public class BALOAD extends gov.nasa.jpf.jvm.bytecode.BALOAD {
                   // In this case, the index isn't symbolic either
                   return super.execute(ti);
               }
-              // We have a concrete array, but a symbolic index. We add all the constraints about the elements of the array, and perform the select
+              // We have a concrete array, but a symbolic index. We add the contents of the array as one constraint, and perform the select
               ElementInfo arrayInfo = ti.getElementInfo(arrayRef);
               arrayAttr = ArrayExpression.create(arrayInfo.toString(), arrayInfo.arrayLength());
-              for (int i = 0; i < arrayInfo.arrayLength(); i++) {
-                byte arrValue = arrayInfo.getByteElement(i);
-                pc._addDet(Comparator.EQ, new SelectExpression(arrayAttr, new IntegerConstant(i)), new IntegerConstant(arrValue));
+              long[] values = new long[arrayInfo.arrayLength()];
+              for (int i = 0; i < values.length; i++) {
+                values[i] = arrayInfo.getByteElement(i);
               }
+              pc._initializeArray(ContentsExpression.create(arrayAttr, values), arrayAttr);
           } else {
               arrayAttr = (ArrayExpression)peekArrayAttr(ti); 
           }
@@ -160,7 +163,7 @@ public class BALOAD extends gov.nasa.jpf.jvm.bytecode.BALOAD {
                   frame.push(0, false);
                   frame.setOperandAttr(val);
                   pc._addDet(Comparator.EQ, se, val);
-                  pc.arrayExpressions.put(arrayAttr.getRootName(), arrayAttr);
+                  pc.putArrayExpression(arrayAttr.getRootName(), arrayAttr);
                   return getNext(ti);
               }
               else {
@@ -59,8 +59,9 @@ public class BASTORE extends gov.nasa.jpf.jvm.bytecode.BASTORE {
           // Retrieve the array expression if it was previously in the pathcondition, and store it as an array attr
           PCChoiceGenerator temp_cg = (PCChoiceGenerator)ti.getVM().getLastChoiceGeneratorOfType(PCChoiceGenerator.class);
           if (temp_cg != null) {
-              if (temp_cg.getCurrentPC().arrayExpressions.containsKey(ti.getElementInfo(ti.getModifiableTopFrame().peek(2)).toString())) {
-                  ti.getModifiableTopFrame().setOperandAttr(2, temp_cg.getCurrentPC().arrayExpressions.get(ti.getElementInfo(ti.getModifiableTopFrame().peek(2)).toString()));
+              ArrayExpression previous = temp_cg.getArrayExpression(ti.getElementInfo(ti.getModifiableTopFrame().peek(2)).toString());
+              if (previous != null) {
+                  ti.getModifiableTopFrame().setOperandAttr(2, previous);
               }
           }
     
@@ -168,7 +169,7 @@ public class BASTORE extends gov.nasa.jpf.jvm.bytecode.BASTORE {
 
                   StoreExpression se = new StoreExpression(arrayAttr, indexAttr, sym_value);
                   pc._addDet(Comparator.EQ, se, newArrayAttr);
-                  pc.arrayExpressions.put(newArrayAttr.getRootName(), newArrayAttr);
+                  pc.putArrayExpression(newArrayAttr.getRootName(), newArrayAttr);
 
                   return getNext(ti);
              }
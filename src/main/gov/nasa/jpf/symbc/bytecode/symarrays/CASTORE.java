@@ -62,8 +62,9 @@ public class CASTORE extends gov.nasa.jpf.jvm.bytecode.CASTORE {
           // Retrieve the array expression if it was previously in the pathcondition, and store it as an array attr
           PCChoiceGenerator temp_cg = (PCChoiceGenerator)ti.getVM().getLastChoiceGeneratorOfType(PCChoiceGenerator.class);
           if (temp_cg != null) {
-              if (temp_cg.getCurrentPC().arrayExpressions.containsKey(ti.getElementInfo(ti.getModifiableTopFrame().peek(2)).toString())) {
-                  ti.getModifiableTopFrame().setOperandAttr(2, temp_cg.getCurrentPC().arrayExpressions.get(ti.getElementInfo(ti.getModifiableTopFrame().peek(2)).toString()));
+              ArrayExpression previous = temp_cg.getArrayExpression(ti.getElementInfo(ti.getModifiableTopFrame().peek(2)).toString());
+              if (previous != null) {
+                  ti.getModifiableTopFrame().setOperandAttr(2, previous);
               }
           }
 
@@ -169,7 +170,7 @@ public class CASTORE extends gov.nasa.jpf.jvm.bytecode.CASTORE {
 
                   StoreExpression se = new StoreExpression(arrayAttr, indexAttr, sym_value);
                   pc._addDet(Comparator.EQ, se, newArrayAttr);
-                  pc.arrayExpressions.put(newArrayAttr.getRootName(), newArrayAttr);
+                  pc.putArrayExpression(newArrayAttr.getRootName(), newArrayAttr);
 
                   return getNext(ti);
              }
@@ -63,8 +63,9 @@ public class DASTORE extends gov.nasa.jpf.jvm.bytecode.DASTORE {
           // Retrieve the array expression if it was previously in the pathcondition, and store it as an array attr
           PCChoiceGenerator temp_cg = (PCChoiceGenerator)ti.getVM().getLastChoiceGeneratorOfType(PCChoiceGenerator.class);
           if (temp_cg != null) {
-              if (temp_cg.getCurrentPC().arrayExpressions.containsKey(ti.getElementInfo(ti.getModifiableTopFrame().peek(3)).toString())) {
-                  ti.getModifiableTopFrame().setOperandAttr(3, temp_cg.getCurrentPC().arrayExpressions.get(ti.getElementInfo(ti.getModifiableTopFrame().peek(3)).toString()));
+              ArrayExpression previous = temp_cg.getArrayExpression(ti.getElementInfo(ti.getModifiableTopFrame().peek(3)).toString());
+              if (previous != null) {
+                  ti.getModifiableTopFrame().setOperandAttr(3, previous);
               }
           }
 
@@ -170,7 +171,7 @@ public class DASTORE extends gov.nasa.jpf.jvm.bytecode.DASTORE {
 
                   RealStoreExpression se = new RealStoreExpression(arrayAttr, indexAttr, sym_value);
                   pc._addDet(Comparator.EQ, se, newArrayAttr);
-                  pc.arrayExpressions.put(newArrayAttr.getRootName(), newArrayAttr);
+                  pc.putArrayExpression(newArrayAttr.getRootName(), newArrayAttr);
 
                   return getNext(ti);
              }
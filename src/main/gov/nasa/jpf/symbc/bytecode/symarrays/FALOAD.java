@@ -22,13 +22,13 @@ package gov.nasa.jpf.symbc.bytecode.symarrays;
 
 import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
 import gov.nasa.jpf.symbc.arrays.ArrayExpression;
+import gov.nasa.jpf.symbc.arrays.ContentsExpression;
 import gov.nasa.jpf.symbc.arrays.SelectExpression;
 import gov.nasa.jpf.symbc.numeric.Comparator;
 import gov.nasa.jpf.symbc.numeric.IntegerConstant;
 import gov.nasa.jpf.symbc.numeric.IntegerExpression;
 import gov.nasa.jpf.symbc.numeric.PathCondition;
 import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
-import gov.nasa.jpf.symbc.numeric.RealConstant;
 import gov.nasa.jpf.symbc.numeric.RealExpression;
 import gov.nasa.jpf.symbc.numeric.SymbolicReal;
 
@@ -60,8 +60,9 @@ public class FALOAD extends gov.nasa.jpf.jvm.bytecode.FALOAD {
 		  // Retrieve the array expression if it was previously in the pathcondition
           PCChoiceGenerator temp_cg = (PCChoiceGenerator)ti.getVM().getLastChoiceGeneratorOfType(PCChoiceGenerator.class);
           if (temp_cg != null) {
-              if (temp_cg.getCurrentPC().arrayExpressions.containsKey(ti.getElementInfo(ti.getModifiableTopFrame().peek(1)).toString())) {
-                  ti.getModifiableTopFrame().setOperandAttr(1, temp_cg.getCurrentPC().arrayExpressions.get(ti.getElementInfo(ti.getModifiableTopFrame().peek(1)).toString()));
+              ArrayExpression previous = temp_cg.getArrayExpression(ti.getElementInfo(ti.getModifiableTopFrame().peek(1)).toString());
+              if (previous != null) {
+                  ti.getModifiableTopFrame().setOperandAttr(1, previous);
               }
           }
            
@@ -103,13 +104,14 @@ public class FALOAD extends gov.nasa.jpf.jvm.bytecode.FALOAD {
                   // In this case, the index isn't symbolic either
                   return super.execute(ti);
               }
-              // We have a concrete array, but a symbolic index. We add all the constraints and perform the select
+              // We have a concrete array, but a symbolic index. We add the contents of the array as one constraint and perform the select
               ElementInfo arrayInfo = ti.getElementInfo(arrayRef);
               arrayAttr = ArrayExpression.create(arrayInfo.toString(), arrayInfo.arrayLength());
-              for (int i = 0; i < arrayInfo.arrayLength(); i++) {
-                  float arrValue = arrayInfo.getFloatElement(i);
-                  pc._addDet(Comparator.EQ, new SelectExpression(arrayAttr, new IntegerConstant(i)), new RealConstant(arrValue));
+              double[] values = new double[arrayInfo.arrayLength()];
+              for (int i = 0; i < values.length; i++) {
+                  values[i] = arrayInfo.getFloatElement(i);
               }
+              pc._initializeArray(ContentsExpression.create(arrayAttr, values), arrayAttr);
           } else {
               arrayAttr = (ArrayExpression)peekArrayAttr(ti);
           }
@@ -159,7 +161,7 @@ public class FALOAD extends gov.nasa.jpf.jvm.bytecode.FALOAD {
                   // Set the result
                   frame.setOperandAttr(val);
                   pc._addDet(Comparator.EQ, se, val);
-                  pc.arrayExpressions.put(arrayAttr.getRootName(), arrayAttr);
+                  pc.putArrayExpression(arrayAttr.getRootName(), arrayAttr);
                   return getNext(ti);
               } else {
                   ti.getVM().getSystemState().setIgnored(true);
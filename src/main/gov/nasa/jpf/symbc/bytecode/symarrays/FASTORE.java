@@ -65,8 +65,9 @@ public class FASTORE extends gov.nasa.jpf.jvm.bytecode.FASTORE {
           // Retrieve the array expression if it was previously in the pathcondition, and store it as an array attr
           PCChoiceGenerator temp_cg = (PCChoiceGenerator)ti.getVM().getLastChoiceGeneratorOfType(PCChoiceGenerator.class);
           if (temp_cg != null) {
-              if (temp_cg.getCurrentPC().arrayExpressions.containsKey(ti.getElementInfo(ti.getModifiableTopFrame().peek(2)).toString())) {
-                  ti.getModifiableTopFrame().setOperandAttr(2, temp_cg.getCurrentPC().arrayExpressions.get(ti.getElementInfo(ti.getModifiableTopFrame().peek(2)).toString()));
+              ArrayExpression previous = temp_cg.getArrayExpression(ti.getElementInfo(ti.getModifiableTopFrame().peek(2)).toString());
+              if (previous != null) {
+                  ti.getModifiableTopFrame().setOperandAttr(2, previous);
               }
           }
 
@@ -172,7 +173,7 @@ public class FASTORE extends gov.nasa.jpf.jvm.bytecode.FASTORE {
 
                   RealStoreExpression se = new RealStoreExpression(arrayAttr, indexAttr, sym_value);
                   pc._addDet(Comparator.EQ, se, newArrayAttr);
-                  pc.arrayExpressions.put(newArrayAttr.getRootName(), newArrayAttr);
+                  pc.putArrayExpression(newArrayAttr.getRootName(), newArrayAttr);
 
                   return getNext(ti);
              }
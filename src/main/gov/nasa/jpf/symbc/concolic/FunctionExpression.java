@@ -47,7 +47,13 @@ import gov.nasa.jpf.util.FileUtils;
 import gov.nasa.jpf.vm.ClassLoaderInfo;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.*;
 //import java.net.MalformedURLException;
 //import java.net.URI;
@@ -61,7 +67,8 @@ public class FunctionExpression extends RealExpression
 	Class<?>[] argTypes;
 	public Expression [] sym_args;
 	static URLClassLoader clsLoader = null;
-	ArrayList<PathCondition> conditions;
+	transient ArrayList<PathCondition> conditions; // not recorded with the expression
+	transient Function function; // resolved on the first call
 
 	// what happens when there are no arguments?
 	public FunctionExpression (String cls, String mth, Class<?>[] ast, 
@@ -76,66 +83,215 @@ public class FunctionExpression extends RealExpression
 		this.conditions = conditions;
 	}
 
+	// resolved functions, shared by all the expressions that call the same method
+	// in one run
+	static final Map<String, Function> functions = new ConcurrentHashMap<String, Function>();
+
+	// results are remembered for this many argument tuples per function
+	static final int MEMO_SIZE = 1024;
+
+	/*
+	 * A resolved external function; the common signatures with one or two
+	 * double (long) arguments are invoked without boxing.
+	 */
+	static class Function {
+		static final int GENERIC = 0, D1 = 1, D2 = 2, L1 = 3, L2 = 4;
+
+		final MethodHandle handle; // null if the method cannot be called
+		final int kind;
+		final Class<?>[] argTypes;
+		final Map<Args, Double> memo = new HashMap<Args, Double>();
+
+		Function(MethodHandle handle, int kind, Class<?>[] argTypes) {
+			this.handle = handle;
+			this.kind = kind;
+			this.argTypes = argTypes;
+		}
+	}
+
+	// the argument tuple of a call, as the bits of the argument values and
+	// whether they are the bits of a real or an integer, which may be the same
+	static final class Args {
+		final long[] bits;
+		final boolean[] real;
+
+		Args(long[] bits, boolean[] real) {
+			this.bits = bits;
+			this.real = real;
+		}
+
+		public boolean equals(Object o) {
+			return o instanceof Args && Arrays.equals(bits, ((Args) o).bits) && Arrays.equals(real, ((Args) o).real);
+		}
+
+		public int hashCode() {
+			return 31 * Arrays.hashCode(bits) + Arrays.hashCode(real);
+		}
+	}
+
 	// here we assume that the solution is always double; if it is not we can cast it later;
 	public double solution()
 	{
-		// here we need to use reflection to invoke the method with
-		// name method_name and with parameters the solutions of the arguments
+		// the method with name method_name is invoked through a cached method handle,
+		// with parameters the solutions of the arguments
 
 		assert(sym_args!=null && sym_args.length >0);
 
+		Function f = function();
+		if (f.handle == null)
+			return 0.0;
+
+		long[] bits = new long[sym_args.length];
+		boolean[] real = new boolean[sym_args.length];
+		for (int i = 0; i < bits.length; i++)
+			if (sym_args[i] instanceof IntegerExpression)
+				bits[i] = ((IntegerExpression) sym_args[i]).solution();
+			else { // RealExpression
+				bits[i] = Double.doubleToRawLongBits(((RealExpression) sym_args[i]).solution());
+				real[i] = true;
+			}
+
+		Args key = new Args(bits, real);
+		synchronized (f.memo) {
+			Double r = f.memo.get(key);
+			if (r != null)
+				return r;
+		}
+
+		double result;
 		try {
-			if(clsLoader == null) {
-				ArrayList<String> list = new ArrayList<String>();
-				String[] cp = ClassLoaderInfo.getCurrentClassLoader().getClassPathElements();
-				cp = FileUtils.expandWildcards(cp);
-				for (String e : cp) {
-					list.add(e);
-				}
-				URL[] urls = FileUtils.getURLs(list);
-				clsLoader = new URLClassLoader(urls);
+			result = invoke(f, bits);
+		} catch (Throwable e) {
+			e.printStackTrace();
+			System.err.println("exception :" + e.getMessage());
+			return 0.0;
+		}
+		synchronized (f.memo) {
+			if (f.memo.size() >= MEMO_SIZE)
+				f.memo.clear();
+			f.memo.put(key, result);
+		}
+		return result;
+	}
+
+	private double arg(long[] bits, int i) {
+		return (sym_args[i] instanceof IntegerExpression) ? bits[i] : Double.longBitsToDouble(bits[i]);
+	}
+
+	private long longArg(long[] bits, int i) {
+		return (sym_args[i] instanceof IntegerExpression) ? bits[i] : (long) Double.longBitsToDouble(bits[i]);
+	}
+
+	private double invoke(Function f, long[] bits) throws Throwable {
+		switch (f.kind) {
+		case Function.D1:
+			return (double) f.handle.invokeExact(arg(bits, 0));
+		case Function.D2:
+			return (double) f.handle.invokeExact(arg(bits, 0), arg(bits, 1));
+		case Function.L1:
+			return (double) f.handle.invokeExact(longArg(bits, 0));
+		case Function.L2:
+			return (double) f.handle.invokeExact(longArg(bits, 0), longArg(bits, 1));
+		default:
+			Object[] args = new Object[bits.length];
+			for (int i = 0; i < args.length; i++) {
+				Class<?> t = f.argTypes[i];
+				if (t == int.class)
+					args[i] = (int) longArg(bits, i);
+				else if (t == long.class)
+					args[i] = longArg(bits, i);
+				else if (t == float.class)
+					args[i] = (float) arg(bits, i);
+				else if (t == double.class)
+					args[i] = arg(bits, i);
+				else if (sym_args[i] instanceof IntegerExpression)
+					args[i] = bits[i];
+				else
+					args[i] = arg(bits, i);
 			}
-			
-			Class<?> cls = null;
-			try {
-				cls = Class.forName(class_name, true, clsLoader);
-			} catch (ClassNotFoundException c) {
-				c.printStackTrace();
-				System.err.println("Class not found:" + class_name);
-			} catch (UnsatisfiedLinkError e) {
-				e.printStackTrace();
-				System.out.println("unsatisfied link error");
-				
+			Object result = f.handle.invokeWithArguments(args);
+			return (result instanceof Number) ? ((Number) result).doubleValue() : 0.0;
+		}
+	}
+
+	private Function function() {
+		Function f = function;
+		if (f == null) {
+			String key = class_name + "." + method_name + Arrays.toString(argTypes);
+			f = functions.get(key);
+			if (f == null) {
+				f = resolve();
+				Function other = functions.putIfAbsent(key, f);
+				if (other != null)
+					f = other;
 			}
-			
-			  Object[] args = new Object[sym_args.length];
-		      for (int i=0; i<args.length; i++)
-		    	  if (sym_args[i] instanceof IntegerExpression) {
-			        args[i] = new Long(((IntegerExpression)sym_args[i]).solution());
-		    	  }
-			      else {// RealExpression
-			    	args[i] = new Double(((RealExpression)sym_args[i]).solution());
-			      }
-		      Method m = cls.getMethod(method_name, argTypes);
-		      int modifiers = m.getModifiers();
-		      if (Modifier.isStatic(modifiers) && Modifier.isPublic(modifiers)){
-		    	  Object result = null;
-		    	  try {
-		    		  result = m.invoke(null, args); // here we need the type of the result
-		    	  } catch(InvocationTargetException e) {
-		    		 e.printStackTrace();
-		    		 System.err.println("exception :" + e.getMessage());
-		    	  }
-		        if (result instanceof Number) {
-		        	return ((Number) result).doubleValue();
-		        }
-		      }
+			function = f;
 		}
+		return f;
+	}
 
-		catch (Throwable e) {
+	/*
+	 * Forgets the functions and the class loader of the previous run, whose
+	 * classpath may have been a different one.
+	 */
+	public static synchronized void reset() {
+		functions.clear();
+		clsLoader = null;
+	}
+
+	static synchronized URLClassLoader getClassLoader() {
+		if(clsLoader == null) {
+			ArrayList<String> list = new ArrayList<String>();
+			String[] cp = ClassLoaderInfo.getCurrentClassLoader().getClassPathElements();
+			cp = FileUtils.expandWildcards(cp);
+			for (String e : cp) {
+				list.add(e);
+			}
+			URL[] urls = FileUtils.getURLs(list);
+			clsLoader = new URLClassLoader(urls);
+		}
+		return clsLoader;
+	}
+
+	/*
+	 * Looks the method up once; failures are reported here and the
+	 * function evaluates to 0.0 from then on.
+	 */
+	private Function resolve() {
+		try {
+			Class<?> cls = Class.forName(class_name, true, getClassLoader());
+			Method m = cls.getMethod(method_name, argTypes);
+			int modifiers = m.getModifiers();
+			if (!Modifier.isStatic(modifiers) || !Modifier.isPublic(modifiers))
+				return new Function(null, Function.GENERIC, argTypes);
+			MethodHandle h = MethodHandles.publicLookup().unreflect(m);
+			Class<?> ret = h.type().returnType();
+			if (ret.isPrimitive() && ret != void.class && ret != boolean.class) {
+				if (isAll(double.class) && argTypes.length <= 2)
+					return new Function(h.asType(MethodType.methodType(double.class, argTypes)),
+							argTypes.length == 1 ? Function.D1 : Function.D2, argTypes);
+				if (isAll(long.class) && argTypes.length <= 2)
+					return new Function(h.asType(MethodType.methodType(double.class, argTypes)),
+							argTypes.length == 1 ? Function.L1 : Function.L2, argTypes);
+			}
+			return new Function(h, Function.GENERIC, argTypes);
+		} catch (ClassNotFoundException c) {
+			c.printStackTrace();
+			System.err.println("Class not found:" + class_name);
+		} catch (UnsatisfiedLinkError e) {
+			e.printStackTrace();
+			System.out.println("unsatisfied link error");
+		} catch (Throwable e) {
 			System.err.println(e);
 		}
-		return 0.0;
+		return new Function(null, Function.GENERIC, argTypes);
+	}
+
+	private boolean isAll(Class<?> type) {
+		for (Class<?> t : argTypes)
+			if (t != type)
+				return false;
+		return true;
 	}
 
     public void getVarsVals(Map<String,Object> varsVals) {
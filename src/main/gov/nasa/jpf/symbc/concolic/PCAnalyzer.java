@@ -19,6 +19,11 @@
 package gov.nasa.jpf.symbc.concolic;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
 import gov.nasa.jpf.symbc.numeric.*;
@@ -69,7 +74,7 @@ public class PCAnalyzer {
 		if (pc == null || pc.header == null) return true;
 		boolean result = false;
 		PathCondition working_pc = pc.make_copy();
-		Constraint working_pc_last = working_pc.last();
+		Constraint working_pc_header = working_pc.header;
 
 		// reset the values of the various helper PCs
 		simplePC = null;
@@ -183,8 +188,10 @@ public class PCAnalyzer {
 
 					result = mixedIsSatisfiable(working_pc, solver);
 
-					if(working_pc_last!=null)
-						working_pc_last.and = null; // remove the conjuncts added from the partitions
+					// remove the conjuncts added from the partitions
+					working_pc.header = working_pc_header;
+					working_pc.recomputeCount();
+					working_pc.resetHashCode();
 
 					if(result)
 						//solver.solve(getSimplifiedPC());
@@ -401,6 +408,8 @@ public class PCAnalyzer {
 		//PathCondition simplifiedPC = new PathCondition();
 		Constraint cRef = concolicPC.header;
 
+		evaluateFunctions(cRef);
+
 		extraPC = new PathCondition();
 		while (cRef != null) {
 			simplePC.prependUnlessRepeated(traverseConstraint(cRef));
@@ -430,6 +439,48 @@ public class PCAnalyzer {
 
 	}
 
+	// evaluates the external functions of the concolic constraints concurrently,
+	// on up to symbolic.concolic.threads threads; the results are remembered by the
+	// functions, so that replacing them by constants below does not call them again.
+	// The retries themselves stay sequential: each one depends on the solution of
+	// the previous one, and the solvers keep their state in statics.
+	// The pool lives for one analysis only, so it follows the current
+	// configuration and leaves no threads behind when the search ends.
+	void evaluateFunctions(Constraint cRef) {
+		if (SymbolicInstructionFactory.concolicThreads <= 1)
+			return;
+		final List<Callable<Double>> calls = new ArrayList<Callable<Double>>();
+		ConstraintExpressionVisitor collector = new ConstraintExpressionVisitor() {
+			@Override
+			public void preVisit(final FunctionExpression expr) {
+				calls.add(new Callable<Double>() {
+					public Double call() {
+						return expr.solution();
+					}
+				});
+			}
+		};
+		for (; cRef != null; cRef = cRef.and)
+			cRef.accept(collector);
+		if (calls.size() < 2)
+			return;
+		int threads = Math.min(SymbolicInstructionFactory.concolicThreads, calls.size());
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "concolic-functions");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		try {
+			pool.invokeAll(calls);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.shutdown();
+		}
+	}
+
 	public PathCondition getSimplifiedPC() {
 		return simplePC;
 	}
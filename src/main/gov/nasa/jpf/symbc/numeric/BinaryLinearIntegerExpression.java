@@ -45,6 +45,10 @@ public class BinaryLinearIntegerExpression extends LinearIntegerExpression
 	Operator   op;
 	IntegerExpression right;
 
+	// the expression rewritten by the BitVectorSimplifier for simplifiedWidth bits
+	transient IntegerExpression simplified;
+	transient int simplifiedWidth;
+
 	public BinaryLinearIntegerExpression (IntegerExpression l, Operator o, IntegerExpression r)
 	{
 		left = l;
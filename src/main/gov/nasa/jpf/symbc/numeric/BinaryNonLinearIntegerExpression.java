@@ -50,6 +50,10 @@ public class BinaryNonLinearIntegerExpression extends NonLinearIntegerExpression
 
 	public IntegerExpression right;
 
+	// the expression rewritten by the BitVectorSimplifier for simplifiedWidth bits
+	transient IntegerExpression simplified;
+	transient int simplifiedWidth;
+
 	public BinaryNonLinearIntegerExpression(IntegerExpression l, Operator o, IntegerExpression r) {
 		left = l;
 		op = o;
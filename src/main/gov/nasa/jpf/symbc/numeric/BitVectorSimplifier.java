@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric;
+
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
+
+/**
+ * Rewrites integer expressions into smaller equivalent ones before they are
+ * translated for a bit-vector decision procedure (z3bitvector,
+ * z3bitvectorinc): constant operations are folded, identities such as x & -1,
+ * x | 0 and x ^ x dropped, chains of constant masks and shifts merged, and
+ * sign and zero extensions ((x << k) >> k, x & 0xff) of variables whose range
+ * already fits removed.
+ *
+ * Constants are folded with the wrap-around of symbolic.bvlength bits, so the
+ * result means the same to the decision procedure, but not necessarily to
+ * solution(). It is kept in the binary expression, which is shared by all the
+ * path conditions that extend the one it was added to.
+ */
+public class BitVectorSimplifier {
+
+	public static IntegerExpression simplify(IntegerExpression e) {
+		return simplify(e, SymbolicInstructionFactory.bvlength);
+	}
+
+	static IntegerExpression simplify(IntegerExpression e, int width) {
+		if (e instanceof BinaryLinearIntegerExpression) {
+			BinaryLinearIntegerExpression b = (BinaryLinearIntegerExpression) e;
+			if (b.simplified == null || b.simplifiedWidth != width) {
+				b.simplified = rewrite(b, b.left, b.op, b.right, width);
+				b.simplifiedWidth = width;
+			}
+			return b.simplified;
+		}
+		if (e instanceof BinaryNonLinearIntegerExpression) {
+			BinaryNonLinearIntegerExpression b = (BinaryNonLinearIntegerExpression) e;
+			if (b.simplified == null || b.simplifiedWidth != width) {
+				b.simplified = rewrite(b, b.left, b.op, b.right, width);
+				b.simplifiedWidth = width;
+			}
+			return b.simplified;
+		}
+		if (e instanceof IntegerConstant) {
+			// compared with folded constants
+			long v = ((IntegerConstant) e).value;
+			return (wrap(v, width) == v) ? e : new IntegerConstant(wrap(v, width));
+		}
+		return e;
+	}
+
+	private static IntegerExpression rewrite(IntegerExpression e, IntegerExpression l, Operator op,
+			IntegerExpression r, int width) {
+		IntegerExpression left = simplify(l, width);
+		IntegerExpression right = simplify(r, width);
+
+		if (left instanceof IntegerConstant && right instanceof IntegerConstant) {
+			Long v = fold(op, value(left), value(right), width);
+			if (v != null)
+				return new IntegerConstant(v);
+		} else if (left instanceof IntegerConstant) {
+			if (isCommutative(op)) {
+				IntegerExpression s = withConstant(right, op, value(left), width);
+				if (s != null)
+					return s;
+				return make(e, right, op, left);
+			}
+			// 0 shifted, or -1 shifted right arithmetically, stays the same
+			long c = value(left);
+			if ((c == 0 && isShift(op)) || (c == -1 && op == Operator.SHIFTR))
+				return left;
+		} else if (right instanceof IntegerConstant) {
+			IntegerExpression s = withConstant(left, op, value(right), width);
+			if (s != null)
+				return s;
+		} else if (left == right) {
+			switch (op) {
+			case AND:
+			case OR:
+				return left;
+			case XOR:
+			case MINUS:
+				return new IntegerConstant(0);
+			default:
+				break;
+			}
+		}
+
+		if (left == l && right == r)
+			return e;
+		return make(e, left, op, right);
+	}
+
+	// left op c, or null if there is nothing simpler
+	private static IntegerExpression withConstant(IntegerExpression left, Operator op, long c, int width) {
+		Operator inner = operator(left);
+		long innerC = 0;
+		boolean innerConstant = inner != null && right(left) instanceof IntegerConstant;
+		if (innerConstant)
+			innerC = value(right(left));
+
+		switch (op) {
+		case PLUS:
+		case MINUS:
+			if (c == 0)
+				return left;
+			break;
+		case MUL:
+			if (c == 1)
+				return left;
+			if (c == 0)
+				return new IntegerConstant(0);
+			break;
+		case DIV:
+			if (c == 1)
+				return left;
+			break;
+		case AND:
+			if (c == -1)
+				return left;
+			if (c == 0)
+				return new IntegerConstant(0);
+			if (inner == Operator.AND && innerConstant)
+				return mergedChain(left, op, c & innerC, width);
+			// zero extension of a value that is never negative or wider
+			if (c > 0 && (c & (c + 1)) == 0 && fits(left, 0, c))
+				return left;
+			break;
+		case OR:
+			if (c == 0)
+				return left;
+			if (c == -1)
+				return new IntegerConstant(-1);
+			if (inner == Operator.OR && innerConstant)
+				return mergedChain(left, op, c | innerC, width);
+			break;
+		case XOR:
+			if (c == 0)
+				return left;
+			if (inner == Operator.XOR && innerConstant)
+				return mergedChain(left, op, c ^ innerC, width);
+			break;
+		case SHIFTL:
+		case SHIFTR:
+		case SHIFTUR:
+			if (c == 0)
+				return left;
+			if (c < 0 || c >= width || !innerConstant || innerC <= 0 || innerC >= width)
+				break;
+			if (inner == op) {
+				long amount = c + innerC;
+				if (amount < width)
+					return make(left, left(left), op, new IntegerConstant(amount));
+				if (op == Operator.SHIFTR)
+					return make(left, left(left), op, new IntegerConstant(width - 1));
+				return new IntegerConstant(0);
+			}
+			// sign (zero) extension of the low width - c bits
+			if (inner == Operator.SHIFTL && innerC == c) {
+				if (op == Operator.SHIFTR && fits(left(left), -(1L << (width - c - 1)), (1L << (width - c - 1)) - 1))
+					return left(left);
+				if (op == Operator.SHIFTUR && fits(left(left), 0, (1L << (width - c)) - 1))
+					return left(left);
+			}
+			break;
+		default:
+			break;
+		}
+		return null;
+	}
+
+	// (x op a) op c == x op b, for and, or and xor
+	private static IntegerExpression mergedChain(IntegerExpression left, Operator op, long b, int width) {
+		IntegerExpression x = left(left);
+		IntegerExpression s = withConstant(x, op, b, width);
+		if (s != null)
+			return s;
+		return make(left, x, op, new IntegerConstant(b));
+	}
+
+	private static Long fold(Operator op, long a, long b, int width) {
+		switch (op) {
+		case PLUS:
+			return wrap(a + b, width);
+		case MINUS:
+			return wrap(a - b, width);
+		case MUL:
+			return wrap(a * b, width);
+		case DIV:
+			return (b == 0) ? null : wrap(a / b, width);
+		case REM:
+			return (b == 0) ? null : wrap(a % b, width);
+		case AND:
+			return a & b;
+		case OR:
+			return a | b;
+		case XOR:
+			return a ^ b;
+		case SHIFTL:
+			return (b < 0 || b >= width) ? null : wrap(a << b, width);
+		case SHIFTR:
+			return (b < 0 || b >= width) ? null : a >> b;
+		case SHIFTUR:
+			return (b < 0 || b >= width) ? null : wrap((a & mask(width)) >>> b, width);
+		default:
+			return null;
+		}
+	}
+
+	// does the decision procedure know the value of e to be within [min, max]
+	private static boolean fits(IntegerExpression e, long min, long max) {
+		if (!(e instanceof SymbolicInteger))
+			return false;
+		SymbolicInteger x = (SymbolicInteger) e;
+		return min <= x._min && x._max <= max;
+	}
+
+	private static boolean isCommutative(Operator op) {
+		return op == Operator.PLUS || op == Operator.MUL || op == Operator.AND || op == Operator.OR
+				|| op == Operator.XOR;
+	}
+
+	private static boolean isShift(Operator op) {
+		return op == Operator.SHIFTL || op == Operator.SHIFTR || op == Operator.SHIFTUR;
+	}
+
+	// the value of a constant of width bits, sign extended
+	static long wrap(long v, int width) {
+		return (width >= 64) ? v : (v << (64 - width)) >> (64 - width);
+	}
+
+	private static long mask(int width) {
+		return (width >= 64) ? -1L : (1L << width) - 1;
+	}
+
+	private static long value(IntegerExpression e) {
+		return ((IntegerConstant) e).value;
+	}
+
+	private static Operator operator(IntegerExpression e) {
+		if (e instanceof BinaryLinearIntegerExpression)
+			return ((BinaryLinearIntegerExpression) e).op;
+		if (e instanceof BinaryNonLinearIntegerExpression)
+			return ((BinaryNonLinearIntegerExpression) e).op;
+		return null;
+	}
+
+	private static IntegerExpression left(IntegerExpression e) {
+		if (e instanceof BinaryLinearIntegerExpression)
+			return ((BinaryLinearIntegerExpression) e).left;
+		return ((BinaryNonLinearIntegerExpression) e).left;
+	}
+
+	private static IntegerExpression right(IntegerExpression e) {
+		if (e instanceof BinaryLinearIntegerExpression)
+			return ((BinaryLinearIntegerExpression) e).right;
+		return ((BinaryNonLinearIntegerExpression) e).right;
+	}
+
+	// a new expression of the same kind as e
+	private static IntegerExpression make(IntegerExpression e, IntegerExpression left, Operator op,
+			IntegerExpression right) {
+		if (e instanceof BinaryLinearIntegerExpression)
+			return new BinaryLinearIntegerExpression(left, op, right);
+		return new BinaryNonLinearIntegerExpression(left, op, right);
+	}
+}
@@ -37,9 +37,12 @@
 
 package gov.nasa.jpf.symbc.numeric;
 
+import java.io.Serializable;
 import java.util.Map;
 
-public abstract class Constraint implements Comparable<Constraint> {
+public abstract class Constraint implements Comparable<Constraint>, Serializable, Cloneable {
+  private static final long serialVersionUID = 1L;
+
   private final Expression left;
 
   private Comparator comp;
@@ -167,6 +170,21 @@ public abstract class Constraint implements Comparable<Constraint> {
       }
       return c;
   }
+
+  /**
+   * Returns a copy of this conjunct that is not linked to any other one. The
+   * expressions are shared. Used by PathCondition to build a new list instead
+   * of changing the links of a list that other path conditions share.
+   */
+  Constraint unlinkedCopy() {
+      try {
+          Constraint c = (Constraint) super.clone();
+          c.and = null;
+          return c;
+      } catch (CloneNotSupportedException e) {
+          throw new RuntimeException("## Error: cannot copy constraint " + e);
+      }
+  }
   
 //JacoGeldenhuys
 	public void accept(ConstraintExpressionVisitor visitor) {
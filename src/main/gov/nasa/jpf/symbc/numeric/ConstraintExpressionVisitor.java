@@ -150,6 +150,12 @@ public abstract class ConstraintExpressionVisitor {
 	public void preVisit(MathRealExpression expr) {
 	}
 
+	public void preVisit(IfThenElseIntegerExpression expr) {
+	}
+
+	public void preVisit(IfThenElseRealExpression expr) {
+	}
+
 	public void preVisit(RealConstant expr) {
 	}
 
@@ -213,6 +219,12 @@ public abstract class ConstraintExpressionVisitor {
 	public void postVisit(MathRealExpression expr) {
 	}
 
+	public void postVisit(IfThenElseIntegerExpression expr) {
+	}
+
+	public void postVisit(IfThenElseRealExpression expr) {
+	}
+
 	public void postVisit(RealConstant expr) {
 	}
 
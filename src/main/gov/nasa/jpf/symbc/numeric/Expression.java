@@ -38,11 +38,14 @@
 package gov.nasa.jpf.symbc.numeric;
 
 
+import java.io.Serializable;
 import java.util.Map;
 import java.util.LinkedList;
 
 
-public abstract class Expression implements Comparable<Expression> {
+// serializable so that path conditions can be recorded (see SolverCorpus)
+public abstract class Expression implements Comparable<Expression>, Serializable {
+	private static final long serialVersionUID = 1L;
 	public static LinkedList<String> trackedSymVars = new LinkedList<String>();
     public abstract String stringPC();
     public abstract void getVarsVals(Map<String,Object> varsVals);
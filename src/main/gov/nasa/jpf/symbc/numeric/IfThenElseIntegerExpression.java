@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric;
+
+import java.util.Map;
+
+/**
+ * if (left comp right) then thenExpr else elseExpr
+ *
+ * Used for Math.min/max/abs, so that they do not split the path. Only solvers
+ * that support ite terms can handle it (see
+ * SymbolicConstraintsGeneral.supportsIte). It is a linear expression as far as
+ * the constraint classes are concerned; non-linear operands are passed on to
+ * the solver as usual (and are only accepted by the ones that accept them
+ * elsewhere).
+ */
+public class IfThenElseIntegerExpression extends LinearIntegerExpression {
+	public final IntegerExpression left;
+	public final Comparator comp;
+	public final IntegerExpression right;
+	public final IntegerExpression thenExpr;
+	public final IntegerExpression elseExpr;
+
+	public IfThenElseIntegerExpression(IntegerExpression left, Comparator comp, IntegerExpression right,
+			IntegerExpression thenExpr, IntegerExpression elseExpr) {
+		this.left = left;
+		this.comp = comp;
+		this.right = right;
+		this.thenExpr = thenExpr;
+		this.elseExpr = elseExpr;
+	}
+
+	public long solution() {
+		return comp.evaluate(left.solution(), right.solution()) ? thenExpr.solution() : elseExpr.solution();
+	}
+
+	public void getVarsVals(Map<String, Object> varsVals) {
+		left.getVarsVals(varsVals);
+		right.getVarsVals(varsVals);
+		thenExpr.getVarsVals(varsVals);
+		elseExpr.getVarsVals(varsVals);
+	}
+
+	public String stringPC() {
+		return "(" + left.stringPC() + comp.toString() + right.stringPC() + " ? " + thenExpr.stringPC() + " : "
+				+ elseExpr.stringPC() + ")";
+	}
+
+	public String toString() {
+		return "(" + left.toString() + comp.toString() + right.toString() + " ? " + thenExpr.toString() + " : "
+				+ elseExpr.toString() + ")";
+	}
+
+	@Override
+	public void accept(ConstraintExpressionVisitor visitor) {
+		visitor.preVisit(this);
+		left.accept(visitor);
+		right.accept(visitor);
+		thenExpr.accept(visitor);
+		elseExpr.accept(visitor);
+		visitor.postVisit(this);
+	}
+
+	@Override
+	public int compareTo(Expression expr) {
+		if (expr instanceof IfThenElseIntegerExpression) {
+			IfThenElseIntegerExpression e = (IfThenElseIntegerExpression) expr;
+			int r = comp.compareTo(e.comp);
+			if (r == 0) {
+				r = left.compareTo(e.left);
+			}
+			if (r == 0) {
+				r = right.compareTo(e.right);
+			}
+			if (r == 0) {
+				r = thenExpr.compareTo(e.thenExpr);
+			}
+			if (r == 0) {
+				r = elseExpr.compareTo(e.elseExpr);
+			}
+			return r;
+		} else {
+			return getClass().getCanonicalName().compareTo(expr.getClass().getCanonicalName());
+		}
+	}
+}
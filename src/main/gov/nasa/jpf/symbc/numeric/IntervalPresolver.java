@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import gov.nasa.jpf.symbc.numeric.solvers.ProblemGeneral.Capability;
+import gov.nasa.jpf.symbc.numeric.solvers.SolverRegistry;
+
+/**
+ * Decides path conditions made of linear integer constraints by propagating
+ * the bounds of the variables (their MinMax ranges to start with), without
+ * calling the decision procedure (symbolic.presolve=true).
+ *
+ * A path condition is unsatisfiable if the bounds of a variable become empty.
+ * It is satisfiable if fixing the variables one by one, to 0 or to one of
+ * their bounds, never empties a range; the values are the solutions. Anything
+ * else (other constraints, overflows, a failed guess) is left to symbolic.dp.
+ */
+public class IntervalPresolver {
+
+	// rounds of propagation before giving up on a fixpoint
+	static final int MAX_ROUNDS = 64;
+
+	static final int LE = 0; // sum + constant <= 0
+	static final int EQ = 1; // sum + constant == 0
+	static final int NE = 2; // sum + constant != 0
+
+	static final class Row {
+		final int[] vars;
+		final long[] coefs;
+		final long constant;
+		final int kind;
+
+		Row(Map<Integer, Long> sum, long constant, int kind) {
+			List<Integer> vs = new ArrayList<Integer>();
+			for (Map.Entry<Integer, Long> e : sum.entrySet()) {
+				if (e.getValue() != 0)
+					vs.add(e.getKey());
+			}
+			vars = new int[vs.size()];
+			coefs = new long[vs.size()];
+			for (int i = 0; i < vars.length; i++) {
+				vars[i] = vs.get(i);
+				coefs[i] = sum.get(vars[i]);
+			}
+			this.constant = constant;
+			this.kind = kind;
+		}
+	}
+
+	// the answer does not depend on the semantics of the decision procedure
+	// only for those with unbounded (but ranged) integers that see whole PCs
+	public static boolean isExactFor(SolverRegistry.Backend backend) {
+		return !(backend.has(Capability.BIT_VECTORS) || backend.has(Capability.INCREMENTAL)
+				|| backend.has(Capability.EVERY_QUERY));
+	}
+
+	final List<SymbolicInteger> vars = new ArrayList<SymbolicInteger>();
+	final Map<SymbolicInteger, Integer> index = new HashMap<SymbolicInteger, Integer>();
+	final List<Row> rows = new ArrayList<Row>();
+	long[] lo;
+	long[] hi;
+
+	/**
+	 * Returns TRUE (with the solutions set in the variables, which are also
+	 * the variables of the last parsed PC), FALSE, or null if the PC is left
+	 * to the decision procedure.
+	 */
+	public static Boolean decide(PathCondition pc) {
+		try {
+			return new IntervalPresolver().run(pc);
+		} catch (ArithmeticException e) { // overflow
+			return null;
+		}
+	}
+
+	Boolean run(PathCondition pc) {
+		for (Constraint c = pc.header; c != null; c = c.and) {
+			if (!(c instanceof LinearIntegerConstraint))
+				return null;
+			Map<Integer, Long> sum = new HashMap<Integer, Long>();
+			long[] constant = new long[1];
+			if (!linearize((IntegerExpression) c.getLeft(), 1, sum, constant)
+					|| !linearize((IntegerExpression) c.getRight(), -1, sum, constant))
+				return null;
+			switch (c.getComparator()) {
+			case EQ:
+				rows.add(new Row(sum, constant[0], EQ));
+				break;
+			case NE:
+				rows.add(new Row(sum, constant[0], NE));
+				break;
+			case LE:
+				rows.add(new Row(sum, constant[0], LE));
+				break;
+			case LT:
+				rows.add(new Row(sum, Math.addExact(constant[0], 1), LE));
+				break;
+			case GE:
+				rows.add(new Row(negate(sum), Math.negateExact(constant[0]), LE));
+				break;
+			case GT:
+				rows.add(new Row(negate(sum), Math.addExact(Math.negateExact(constant[0]), 1), LE));
+				break;
+			default:
+				return null;
+			}
+		}
+
+		lo = new long[vars.size()];
+		hi = new long[vars.size()];
+		for (int i = 0; i < lo.length; i++) {
+			lo[i] = vars.get(i)._min;
+			hi[i] = vars.get(i)._max;
+		}
+		if (!propagate())
+			return Boolean.FALSE;
+
+		// guess a solution
+		for (int i = 0; i < lo.length; i++) {
+			if (lo[i] == hi[i])
+				continue;
+			long[] oldLo = lo.clone();
+			long[] oldHi = hi.clone();
+			boolean fixed = false;
+			for (long v : new long[] { 0, lo[i], hi[i] }) {
+				if (v < oldLo[i] || v > oldHi[i])
+					continue;
+				lo[i] = v;
+				hi[i] = v;
+				if (propagate()) {
+					fixed = true;
+					break;
+				}
+				lo = oldLo.clone();
+				hi = oldHi.clone();
+			}
+			if (!fixed)
+				return null;
+		}
+		for (Row r : rows) {
+			if (!holds(r))
+				return null;
+		}
+
+		PCParser.symRealVar = new HashMap<SymbolicReal, Object>();
+		PCParser.symIntegerVar = new HashMap<SymbolicInteger, Object>();
+		for (int i = 0; i < lo.length; i++) {
+			SymbolicInteger v = vars.get(i);
+			v.solution = lo[i];
+			PCParser.symIntegerVar.put(v, v);
+		}
+		return Boolean.TRUE;
+	}
+
+	/*
+	 * Adds factor * e to sum + constant; returns false for expressions that
+	 * are not linear.
+	 */
+	boolean linearize(IntegerExpression e, long factor, Map<Integer, Long> sum, long[] constant) {
+		if (e instanceof IntegerConstant) {
+			constant[0] = Math.addExact(constant[0], Math.multiplyExact(factor, ((IntegerConstant) e).value));
+			return true;
+		}
+		if (e instanceof SymbolicInteger) {
+			SymbolicInteger v = (SymbolicInteger) e;
+			Integer i = index.get(v);
+			if (i == null) {
+				i = vars.size();
+				vars.add(v);
+				index.put(v, i);
+			}
+			Long c = sum.get(i);
+			sum.put(i, (c == null) ? factor : Math.addExact(c, factor));
+			return true;
+		}
+		if (e instanceof BinaryLinearIntegerExpression) {
+			BinaryLinearIntegerExpression b = (BinaryLinearIntegerExpression) e;
+			IntegerExpression l = b.getLeft();
+			IntegerExpression r = b.getRight();
+			switch (b.getOp()) {
+			case PLUS:
+				return linearize(l, factor, sum, constant) && linearize(r, factor, sum, constant);
+			case MINUS:
+				return linearize(l, factor, sum, constant) && linearize(r, Math.negateExact(factor), sum, constant);
+			case MUL:
+				if (l instanceof IntegerConstant)
+					return linearize(r, Math.multiplyExact(factor, ((IntegerConstant) l).value), sum, constant);
+				if (r instanceof IntegerConstant)
+					return linearize(l, Math.multiplyExact(factor, ((IntegerConstant) r).value), sum, constant);
+				return false;
+			default:
+				return false;
+			}
+		}
+		return false;
+	}
+
+	static Map<Integer, Long> negate(Map<Integer, Long> sum) {
+		Map<Integer, Long> neg = new HashMap<Integer, Long>();
+		for (Map.Entry<Integer, Long> e : sum.entrySet()) {
+			neg.put(e.getKey(), Math.negateExact(e.getValue()));
+		}
+		return neg;
+	}
+
+	/*
+	 * Tightens the bounds until nothing changes; returns false if a range
+	 * becomes empty.
+	 */
+	boolean propagate() {
+		boolean changed = true;
+		for (int round = 0; changed && round < MAX_ROUNDS; round++) {
+			changed = false;
+			for (Row r : rows) {
+				int c;
+				if (r.kind == NE) {
+					c = propagateNE(r);
+				} else {
+					c = propagateLE(r, 1);
+					if (c >= 0 && r.kind == EQ) {
+						int c2 = propagateLE(r, -1);
+						c = (c2 < 0) ? c2 : Math.max(c, c2);
+					}
+				}
+				if (c < 0)
+					return false;
+				if (c > 0)
+					changed = true;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * sign * (sum + constant) <= 0. Returns -1 if unsatisfiable, 1 if a
+	 * bound changed, 0 otherwise.
+	 */
+	int propagateLE(Row r, long sign) {
+		long min = Math.multiplyExact(sign, r.constant);
+		long[] terms = new long[r.vars.length];
+		for (int k = 0; k < r.vars.length; k++) {
+			long a = Math.multiplyExact(sign, r.coefs[k]);
+			int i = r.vars[k];
+			terms[k] = Math.multiplyExact(a, (a > 0) ? lo[i] : hi[i]);
+			min = Math.addExact(min, terms[k]);
+		}
+		if (min > 0)
+			return -1;
+		int changed = 0;
+		for (int k = 0; k < r.vars.length; k++) {
+			long a = Math.multiplyExact(sign, r.coefs[k]);
+			int i = r.vars[k];
+			// a * x <= rest
+			long rest = Math.negateExact(Math.subtractExact(min, terms[k]));
+			if (a > 0) {
+				long b = Math.floorDiv(rest, a);
+				if (b < hi[i]) {
+					hi[i] = b;
+					changed = 1;
+				}
+			} else {
+				long b = Math.negateExact(Math.floorDiv(rest, Math.negateExact(a)));
+				if (b > lo[i]) {
+					lo[i] = b;
+					changed = 1;
+				}
+			}
+			if (lo[i] > hi[i])
+				return -1;
+		}
+		return changed;
+	}
+
+	// only a single free variable can be moved off a value it must not take
+	int propagateNE(Row r) {
+		int free = -1;
+		long rest = r.constant;
+		for (int k = 0; k < r.vars.length; k++) {
+			int i = r.vars[k];
+			if (lo[i] == hi[i]) {
+				rest = Math.addExact(rest, Math.multiplyExact(r.coefs[k], lo[i]));
+			} else if (free < 0) {
+				free = k;
+			} else {
+				return 0;
+			}
+		}
+		if (free < 0)
+			return (rest == 0) ? -1 : 0;
+		long a = r.coefs[free];
+		int i = r.vars[free];
+		if (rest % a != 0)
+			return 0;
+		long v = -rest / a;
+		if (v == lo[i]) {
+			lo[i]++;
+		} else if (v == hi[i]) {
+			hi[i]--;
+		} else {
+			return 0;
+		}
+		return (lo[i] > hi[i]) ? -1 : 1;
+	}
+
+	boolean holds(Row r) {
+		long value = r.constant;
+		for (int k = 0; k < r.vars.length; k++) {
+			value = Math.addExact(value, Math.multiplyExact(r.coefs[k], lo[r.vars[k]]));
+		}
+		switch (r.kind) {
+		case LE:
+			return value <= 0;
+		case EQ:
+			return value == 0;
+		default:
+			return value != 0;
+		}
+	}
+}
@@ -472,4 +472,14 @@ public class MinMax {
 		return varMaxDoubleMap.containsKey(varname) ? varMaxDoubleMap.get(varname) : maxDouble;
 	}
 
+	/**
+	 * Returns the default ranges of the variables, for results that are kept
+	 * across runs and are only valid for the ranges they were computed with.
+	 */
+	public static String ranges() {
+		return "int[" + minInt + "," + maxInt + "] long[" + minLong + "," + maxLong + "] short[" + minShort + ","
+				+ maxShort + "] byte[" + minByte + "," + maxByte + "] char[" + minChar + "," + maxChar + "] double["
+				+ minDouble + "," + maxDouble + "]";
+	}
+
 }
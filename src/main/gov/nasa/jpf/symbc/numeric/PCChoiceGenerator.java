@@ -36,9 +36,7 @@
 //
 package gov.nasa.jpf.symbc.numeric;
 
-import java.util.HashMap;
-import java.util.HashSet;
-
+import gov.nasa.jpf.symbc.arrays.ArrayExpression;
 import gov.nasa.jpf.vm.IntChoiceGenerator;
 import gov.nasa.jpf.vm.choice.IntIntervalGenerator;
 
@@ -47,8 +45,12 @@ import gov.nasa.jpf.vm.choice.IntIntervalGenerator;
 
 public class PCChoiceGenerator extends IntIntervalGenerator {
 
-	//protected PathCondition[] PC;
-	protected HashMap<Integer, PathCondition> PC;
+	// one slot per choice, indexed by (choice - lo) / step; slots are only
+	// filled when a PC is set (or read) for that choice, since most choice
+	// generators of array accesses and switches never see all their choices
+	protected PathCondition[] PC;
+	private int lo;
+	private int step;
 	boolean isReverseOrder;
 
 	int offset; // to be used in the CFG
@@ -67,9 +69,7 @@ public class PCChoiceGenerator extends IntIntervalGenerator {
 	@SuppressWarnings("deprecation")
 	public PCChoiceGenerator(int size) {
 		super(0, size - 1);
-		PC = new HashMap<Integer, PathCondition>();
-		for(int i = 0; i < size; i++)
-			PC.put(i, new PathCondition());
+		initSlots(0, size - 1, 1);
 		isReverseOrder = false;
 	}
 	
@@ -80,9 +80,7 @@ public class PCChoiceGenerator extends IntIntervalGenerator {
 	@SuppressWarnings("deprecation")
 	public PCChoiceGenerator(int min, int max, int delta) {
 		super(min, max, delta);
-		PC = new HashMap<Integer, PathCondition>();
-		for(int i = min; i <= max; i += delta)
-			PC.put(i, new PathCondition());
+		initSlots(min, max, delta);
 		isReverseOrder = false;
 	}
 	
@@ -95,41 +93,81 @@ public class PCChoiceGenerator extends IntIntervalGenerator {
 	@SuppressWarnings("deprecation")
 	public PCChoiceGenerator(int size, boolean reverseOrder) {
 		super(0, size - 1, reverseOrder ? -1 : 1);
-		PC = new HashMap<Integer, PathCondition>();
-		for(int i = 0; i < size; i++)
-			PC.put(i, new PathCondition());
+		initSlots(0, size - 1, 1);
 		isReverseOrder = reverseOrder;
 	}
 
+	private void initSlots(int min, int max, int delta) {
+		lo = Math.min(min, max);
+		step = (delta == 0) ? 1 : Math.abs(delta);
+		PC = new PathCondition[Math.abs(max - min) / step + 1];
+	}
+
+	// returns the slot of a choice, or -1 if the choice is not one of ours
+	private int slot(int choice) {
+		int d = choice - lo;
+		if (d < 0 || d % step != 0 || d / step >= PC.length)
+			return -1;
+		return d / step;
+	}
+
 	public boolean isReverseOrder() {
 		return isReverseOrder;
 	}
 
 	// sets the PC constraints for the current choice
 	public void setCurrentPC(PathCondition pc) {
-		PC.put(getNextChoice(),pc);
-
+		setPC(pc, getNextChoice());
 	}
+
 	// sets the PC constraints for the specified choice
 	public void setPC(PathCondition pc, int choice) {
-			PC.put(new Integer(choice),pc);
+		int i = slot(choice);
+		if (i < 0)
+			throw new RuntimeException("## Error: choice " + choice + " out of range of " + this);
+		PC[i] = pc;
+	}
 
-		}
-	
-	// returns the PC constraints for the current choice
+	// returns a copy of the PC constraints for the current choice,
+	// or null if the choice generator was not advanced yet
 	public PathCondition getCurrentPC() {
-		PathCondition pc;
+		int i = slot(getNextChoice());
+		if (i < 0)
+			return null;
+		PathCondition pc = PC[i];
+		return (pc != null) ? pc.make_copy() : new PathCondition();
+	}
+
+	// whether PC constraints were set for the current choice, e.g. by the
+	// instruction that created this choice generator when it checked them
+	public boolean hasCurrentPC() {
+		int i = slot(getNextChoice());
+		return i >= 0 && PC[i] != null;
+	}
+
+	// returns the array expression of the current PC for the array with the
+	// given root name, or null; neither copies the PC nor creates one
+	public ArrayExpression getArrayExpression(String root) {
+		int i = slot(getNextChoice());
+		if (i < 0 || PC[i] == null)
+			return null;
+		return PC[i].arrayExpressions.get(root);
+	}
 
-		pc = PC.get(getNextChoice());
-		if (pc != null) {
-			return pc.make_copy();
-		} else {
+	// returns the PC constraints for the current choice without copying them;
+	// for callers that only read or solve the PC (e.g. listeners), any
+	// change to the result changes the PC stored in this choice generator
+	public PathCondition peekCurrentPC() {
+		int i = slot(getNextChoice());
+		if (i < 0)
 			return null;
-		}
+		if (PC[i] == null)
+			PC[i] = new PathCondition();
+		return PC[i];
 	}
 
 	public IntChoiceGenerator randomize() {
-		return new PCChoiceGenerator(PC.size(), random.nextBoolean());
+		return new PCChoiceGenerator(PC.length, random.nextBoolean());
 	}
 
 	public void setNextChoice(int nextChoice){
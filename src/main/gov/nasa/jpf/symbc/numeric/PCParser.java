@@ -40,6 +40,7 @@ package gov.nasa.jpf.symbc.numeric;
 import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
 import gov.nasa.jpf.symbc.arrays.ArrayConstraint;
 import gov.nasa.jpf.symbc.arrays.ArrayExpression;
+import gov.nasa.jpf.symbc.arrays.ContentsExpression;
 import gov.nasa.jpf.symbc.arrays.InitExpression;
 import gov.nasa.jpf.symbc.arrays.RealArrayConstraint;
 import gov.nasa.jpf.symbc.arrays.RealStoreExpression;
@@ -47,17 +48,12 @@ import gov.nasa.jpf.symbc.arrays.SelectExpression;
 import gov.nasa.jpf.symbc.arrays.StoreExpression;
 import gov.nasa.jpf.symbc.numeric.solvers.IncrementalListener;
 import gov.nasa.jpf.symbc.numeric.solvers.IncrementalSolver;
-import gov.nasa.jpf.symbc.numeric.solvers.ProblemCoral;
 import gov.nasa.jpf.symbc.numeric.solvers.ProblemGeneral;
-
-import gov.nasa.jpf.symbc.numeric.solvers.ProblemZ3;
-import gov.nasa.jpf.symbc.numeric.solvers.ProblemZ3BitVector;
-import gov.nasa.jpf.symbc.numeric.solvers.ProblemZ3BitVectorIncremental;
-import gov.nasa.jpf.symbc.numeric.solvers.ProblemZ3Incremental;
-import gov.nasa.jpf.symbc.numeric.solvers.ProblemZ3Optimize;
+import gov.nasa.jpf.symbc.numeric.solvers.ProblemGeneral.Capability;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -73,11 +69,28 @@ public class PCParser {
   static Map<SymbolicInteger,Object>	symIntegerVar = new HashMap<SymbolicInteger,Object>(); // a map between symbolic variables and DP variables
   //static Boolean result; // tells whether result is satisfiable or not
   static int tempVars = 0; //Used to construct "or" clauses
+  // the DP terms of the expressions translated since the last parse; expressions
+  // shared by several constraints (or several times in one) are translated once.
+  // Kept per parse, like symIntegerVar and symRealVar: every query parses into
+  // a new problem (the incremental ones too, only their solver is shared), and
+  // terms are only good for the problem they were made for. It stays filled
+  // after the parse for the terms asked for later (e.g. the objective of
+  // z3optimize).
+  static Map<Expression, Object> translated = new IdentityHashMap<Expression, Object>();
 
 
   
   //	 Converts IntegerExpression's into DP's IntExp's
   static Object getExpression(IntegerExpression eRef) {
+    Object dp_expr = translated.get(eRef);
+    if (dp_expr == null) {
+      dp_expr = translate(eRef);
+      translated.put(eRef, dp_expr);
+    }
+    return dp_expr;
+  }
+
+  private static Object translate(IntegerExpression eRef) {
     assert eRef != null;
     assert !(eRef instanceof IntegerConstant);
 
@@ -91,6 +104,12 @@ public class PCParser {
       return dp_var;
     }
 
+    if (eRef instanceof IfThenElseIntegerExpression) {
+      IfThenElseIntegerExpression ite = (IfThenElseIntegerExpression)eRef;
+      return pb.ite(getCondition(getTerm(ite.left), ite.comp, getTerm(ite.right)),
+          getTerm(ite.thenExpr), getTerm(ite.elseExpr));
+    }
+
     Operator    opRef;
     IntegerExpression	e_leftRef;
     IntegerExpression	e_rightRef;
@@ -100,8 +119,7 @@ public class PCParser {
       e_leftRef = ((BinaryLinearIntegerExpression)eRef).left;
       e_rightRef = ((BinaryLinearIntegerExpression)eRef).right;
     } else { // bin non lin expr
-      if(pb instanceof ProblemCoral || pb instanceof ProblemZ3 || pb instanceof ProblemZ3Optimize || pb instanceof ProblemZ3BitVector ||
-          pb instanceof ProblemZ3Incremental || pb instanceof ProblemZ3BitVectorIncremental) {
+      if(pb.supports(Capability.NON_LINEAR)) {
         opRef = ((BinaryNonLinearIntegerExpression)eRef).op;
         e_leftRef = ((BinaryNonLinearIntegerExpression)eRef).left;
         e_rightRef = ((BinaryNonLinearIntegerExpression)eRef).right;
@@ -136,8 +154,7 @@ public class PCParser {
         else if (e_rightRef instanceof IntegerConstant)
           return pb.mult(((IntegerConstant)e_rightRef).value,getExpression(e_leftRef));
         else {
-          if(pb instanceof ProblemCoral || pb instanceof ProblemZ3|| pb instanceof ProblemZ3Optimize ||  pb instanceof ProblemZ3BitVector ||
-          pb instanceof ProblemZ3Incremental || pb instanceof ProblemZ3BitVectorIncremental)
+          if(pb.supports(Capability.NON_LINEAR))
             return pb.mult(getExpression(e_leftRef),getExpression(e_rightRef));
           else
             throw new RuntimeException("## Error: Binary Non Linear Operation");
@@ -150,8 +167,7 @@ public class PCParser {
         else if (e_rightRef instanceof IntegerConstant)
           return pb.div(getExpression(e_leftRef),((IntegerConstant)e_rightRef).value);
         else {
-          if(pb instanceof ProblemCoral || pb instanceof ProblemZ3|| pb instanceof ProblemZ3Optimize || pb instanceof ProblemZ3BitVector ||
-          pb instanceof ProblemZ3Incremental || pb instanceof ProblemZ3BitVectorIncremental)
+          if(pb.supports(Capability.NON_LINEAR))
             return pb.div(getExpression(e_leftRef),getExpression(e_rightRef));
           else
             throw new RuntimeException("## Error: Binary Non Linear Operation");
@@ -164,8 +180,7 @@ public class PCParser {
         else if (e_rightRef instanceof IntegerConstant)
           return pb.rem(getExpression(e_leftRef),((IntegerConstant)e_rightRef).value);
         else {
-          if(pb instanceof ProblemCoral || pb instanceof ProblemZ3|| pb instanceof ProblemZ3Optimize || pb instanceof ProblemZ3BitVector ||
-          pb instanceof ProblemZ3Incremental || pb instanceof ProblemZ3BitVectorIncremental)
+          if(pb.supports(Capability.NON_LINEAR))
             return pb.rem(getExpression(e_leftRef),getExpression(e_rightRef));
           else
             throw new RuntimeException("## Error: Binary Non Linear Operation");
@@ -234,6 +249,15 @@ public class PCParser {
 
   // Converts RealExpression's into DP RealExp's
   static Object getExpression(RealExpression eRef) {
+    Object dp_expr = translated.get(eRef);
+    if (dp_expr == null) {
+      dp_expr = translate(eRef);
+      translated.put(eRef, dp_expr);
+    }
+    return dp_expr;
+  }
+
+  private static Object translate(RealExpression eRef) {
     assert eRef != null;
     assert !(eRef instanceof RealConstant);
 
@@ -308,6 +332,12 @@ public class PCParser {
       }
     }
 
+    if (eRef instanceof IfThenElseRealExpression) {
+      IfThenElseRealExpression ite = (IfThenElseRealExpression)eRef;
+      return pb.ite(getCondition(getTerm(ite.left), ite.comp, getTerm(ite.right)),
+          getTerm(ite.thenExpr), getTerm(ite.elseExpr));
+    }
+
     if(eRef instanceof MathRealExpression) {
       MathFunction funRef;
       RealExpression	e_arg1Ref;
@@ -348,6 +378,33 @@ public class PCParser {
     throw new RuntimeException("## Error: Expression " + eRef);
   }
 
+  // like getExpression, but constants are allowed: the operands of ite terms
+  // can not be folded into the surrounding operation
+  static Object getTerm(IntegerExpression eRef) {
+    if (eRef instanceof IntegerConstant)
+      return pb.makeIntConst(((IntegerConstant)eRef).value);
+    return getExpression(eRef);
+  }
+
+  static Object getTerm(RealExpression eRef) {
+    if (eRef instanceof RealConstant)
+      return pb.makeRealConst(((RealConstant)eRef).value);
+    return getExpression(eRef);
+  }
+
+  static Object getCondition(Object left, Comparator comp, Object right) {
+    switch(comp){
+      case EQ: return pb.eq(left, right);
+      case NE: return pb.neq(left, right);
+      case LT: return pb.lt(left, right);
+      case LE: return pb.leq(left, right);
+      case GT: return pb.gt(left, right);
+      case GE: return pb.geq(left, right);
+      default:
+        throw new RuntimeException("## Error: Comparator " + comp);
+    }
+  }
+
   //public Map<SymbolicReal, Object> getSymRealVar() {
   //return symRealVar;
   //}
@@ -698,6 +755,10 @@ public class PCParser {
 
     IntegerExpression c_leftRef = (IntegerExpression)cRef.getLeft();
     IntegerExpression c_rightRef = (IntegerExpression)cRef.getRight();
+    if (pb.supports(Capability.BIT_VECTORS)) {
+      c_leftRef = BitVectorSimplifier.simplify(c_leftRef);
+      c_rightRef = BitVectorSimplifier.simplify(c_rightRef);
+    }
 
     switch(c_compRef){
       case EQ:
@@ -806,6 +867,10 @@ public class PCParser {
 
     IntegerExpression c_leftRef = (IntegerExpression)cRef.getLeft();
     IntegerExpression c_rightRef = (IntegerExpression)cRef.getRight();
+    if (pb.supports(Capability.BIT_VECTORS)) {
+      c_leftRef = BitVectorSimplifier.simplify(c_leftRef);
+      c_rightRef = BitVectorSimplifier.simplify(c_rightRef);
+    }
 
     switch(c_compRef){
       case EQ:
@@ -926,6 +991,8 @@ public class PCParser {
            sto_right = (ArrayExpression)cRef.getRight();
         } else if (cRef.getLeft() instanceof InitExpression) {
            initex = (InitExpression)cRef.getLeft();
+        } else if (cRef.getLeft() instanceof ContentsExpression) {
+           return createContentsConstraint((ContentsExpression)cRef.getLeft());
         } else {
             throw new RuntimeException("ArrayConstraint is not select or store or init");
         }
@@ -986,6 +1053,36 @@ getExpression(stoex.value)), newae));
         return true;
     }
 
+  // the contents of a concrete array: one array term, which the solver may
+  // keep across queries, or one select per element if it cannot build it
+  static boolean createContentsConstraint(ContentsExpression ce) {
+    ArrayExpression ae = ce.arrayExpression;
+    if (ce.isReal()) {
+      Object arr = pb.makeRealArrayVar(ae.getName());
+      double[] values = ce.getRealValues();
+      Object contents = pb.makeRealArrayConst(values);
+      if (contents != null) {
+        pb.post(pb.eq(arr, contents));
+      } else {
+        for (int i = 0; i < values.length; i++) {
+          pb.post(pb.eq(pb.realSelect(arr, pb.makeIntConst(i)), pb.makeRealConst(values[i])));
+        }
+      }
+    } else {
+      Object arr = pb.makeArrayVar(ae.getName());
+      long[] values = ce.getValues();
+      Object contents = pb.makeArrayConst(values);
+      if (contents != null) {
+        pb.post(pb.eq(arr, contents));
+      } else {
+        for (int i = 0; i < values.length; i++) {
+          pb.post(pb.eq(pb.select(arr, pb.makeIntConst(i)), pb.makeIntConst(values[i])));
+        }
+      }
+    }
+    return true;
+  }
+
 public static boolean createRealArrayConstraint(final RealArrayConstraint cRef) {
         final Comparator c_compRef = cRef.getComparator();
 
@@ -1068,6 +1165,7 @@ getExpression(stoex.value)), newae));
 
     symRealVar = new HashMap<SymbolicReal,Object>();
     symIntegerVar = new HashMap<SymbolicInteger,Object>();
+    translated = new IdentityHashMap<Expression,Object>();
     //result = null;
     tempVars = 0;
 
@@ -1098,6 +1196,11 @@ getExpression(stoex.value)), newae));
     return pb;
   }
 
+  // number of variables created by the last call to parse (used for solver metrics)
+  public static int variableCount() {
+    return symRealVar.size() + symIntegerVar.size();
+  }
+
   private static boolean addConstraint(Constraint cRef) {
     boolean constraintResult = true;
 
@@ -1116,13 +1219,13 @@ getExpression(stoex.value)), newae));
       constraintResult= createDPLinearOrIntegerConstraint((LogicalORLinearIntegerConstraints)cRef);
 
     } else if (cRef instanceof ArrayConstraint) {
-        if (pb instanceof ProblemZ3|| pb instanceof ProblemZ3Optimize || pb instanceof ProblemZ3Incremental || pb instanceof ProblemZ3BitVector || pb instanceof ProblemZ3BitVectorIncremental) {
+        if (pb.supports(Capability.ARRAYS)) {
             constraintResult = createArrayConstraint((ArrayConstraint)cRef);
         } else {
             throw new RuntimeException("## Error : Array constraints only handled by z3. Try specifying a z3 instance as symbolic.dp");
         }
     } else if (cRef instanceof RealArrayConstraint) {
-        if (pb instanceof ProblemZ3|| pb instanceof ProblemZ3Optimize || pb instanceof ProblemZ3Incremental || pb instanceof ProblemZ3BitVector || pb instanceof ProblemZ3BitVectorIncremental) {
+        if (pb.supports(Capability.ARRAYS)) {
             constraintResult = createRealArrayConstraint((RealArrayConstraint)cRef);
         } else {
             throw new RuntimeException("## Error : Array constraints only handled by z3. Try specifying a z3 instance as symbolic.dp");
@@ -1130,7 +1233,7 @@ getExpression(stoex.value)), newae));
     }
     else {
       //System.out.println("## Warning: Non Linear Integer Constraint (only coral or z3 can handle it)" + cRef);
-      if(pb instanceof ProblemCoral || pb instanceof ProblemZ3|| pb instanceof ProblemZ3Optimize || pb instanceof ProblemZ3BitVector || pb instanceof ProblemZ3Incremental || pb instanceof ProblemZ3BitVectorIncremental)
+      if(pb.supports(Capability.NON_LINEAR))
         constraintResult= createDPNonLinearIntegerConstraint((NonLinearIntegerConstraint)cRef);
       else
         throw new RuntimeException("## Error: Non Linear Integer Constraint not handled " + cRef);
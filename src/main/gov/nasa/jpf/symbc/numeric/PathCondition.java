@@ -39,18 +39,24 @@ package gov.nasa.jpf.symbc.numeric;
 
 import za.ac.sun.cs.green.Instance;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 
 import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
 import gov.nasa.jpf.symbc.arrays.ArrayConstraint;
 import gov.nasa.jpf.symbc.arrays.ArrayExpression;
+import gov.nasa.jpf.symbc.arrays.ContentsExpression;
 import gov.nasa.jpf.symbc.arrays.InitExpression;
 import gov.nasa.jpf.symbc.arrays.RealArrayConstraint;
 import gov.nasa.jpf.symbc.arrays.RealStoreExpression;
 import gov.nasa.jpf.symbc.arrays.StoreExpression;
 import gov.nasa.jpf.symbc.arrays.SelectExpression;
 import gov.nasa.jpf.symbc.concolic.PCAnalyzer;
+import gov.nasa.jpf.symbc.numeric.solvers.SolverMetrics;
+import gov.nasa.jpf.symbc.numeric.solvers.SolverRegistry;
 import gov.nasa.jpf.symbc.numeric.solvers.SolverTranslator;
 import gov.nasa.jpf.symbc.numeric.visitors.CollectVariableVisitor;
 import gov.nasa.jpf.symbc.string.StringPathCondition;
@@ -67,13 +73,31 @@ import gov.nasa.jpf.vm.VM;
 public class PathCondition implements Comparable<PathCondition> {
     public static boolean flagSolved = false;
 
+    // shared between copies until one of them adds an array expression, see
+    // putArrayExpression; do not modify it directly
     public HashMap<String, ArrayExpression> arrayExpressions;
+    private boolean arrayExpressionsShared = false;
 
     public Constraint header;
     int count = 0;
     protected int solverCalls = 0;
 
     private Instance instance = null;
+    private Constraint instanceHeader = null;
+
+    // the constraint list last found satisfiable (or not) by simplifyOld; the
+    // lists are never changed in place, so the answer holds as long as the
+    // header is the same object
+    private Constraint checkedHeader = null;
+    private boolean checkedResult;
+
+    // the solution found by the last check that came out satisfiable, valid
+    // as long as the header is the same object (see keepModels)
+    private Constraint modelHeader = null;
+    private SymbolicInteger[] modelInts;
+    private long[] modelIntValues;
+    private SymbolicReal[] modelReals;
+    private double[] modelRealValues;
 
     // TODO: to review
     public StringPathCondition spc = new StringPathCondition(this);
@@ -87,14 +111,24 @@ public class PathCondition implements Comparable<PathCondition> {
         PathCondition.isReplay = isReplay;
     }
 
+    // results of numeric satisfiability checks, keyed by canonicalKey(); null
+    // unless enabled (e.g. by the CheckpointListener or the QueryStoreListener)
+    public static QueryCache queryCache = null;
+
+    // if set, satisfiability checks also compute a solution and keep it with
+    // the path condition, so solve() does not have to call the solver again
+    // for the same constraints; set for every run by SymbolicInstructionFactory
+    public static boolean keepModels = false;
+
     public PathCondition() {
         header = null;
         arrayExpressions = new HashMap<String, ArrayExpression>();
     }
 
     public Instance getInstance() {
-        if (instance == null) {
+        if (instance == null || instanceHeader != header) {
             instance = SolverTranslator.createInstance(header);
+            instanceHeader = header;
         }
         return instance;
     }
@@ -103,16 +137,52 @@ public class PathCondition implements Comparable<PathCondition> {
         return this.solverCalls;
     }
 
+    /**
+     * Returns a copy of this path condition. The copy shares the constraint list
+     * and the array expressions with this path condition; the methods that add or
+     * remove constraints never change a list in place, so neither sees the
+     * changes of the other. The hash code and the last satisfiability check are
+     * carried over.
+     */
     public PathCondition make_copy() {
-        PathCondition pc_new = new PathCondition();
+        PathCondition pc_new = new PathCondition(this.arrayExpressions);
         pc_new.header = this.header;
         pc_new.count = this.count;
         pc_new.spc = this.spc.make_copy(pc_new); // TODO: to review
         pc_new.solverCalls = this.solverCalls;
-        pc_new.arrayExpressions = this.arrayExpressions;
+        pc_new.arrayExpressionsShared = true;
+        this.arrayExpressionsShared = true;
+        pc_new.hashCode = this.hashCode;
+        pc_new.instance = this.instance;
+        pc_new.instanceHeader = this.instanceHeader;
+        pc_new.checkedHeader = this.checkedHeader;
+        pc_new.checkedResult = this.checkedResult;
+        pc_new.modelHeader = this.modelHeader;
+        pc_new.modelInts = this.modelInts;
+        pc_new.modelIntValues = this.modelIntValues;
+        pc_new.modelReals = this.modelReals;
+        pc_new.modelRealValues = this.modelRealValues;
         return pc_new;
     }
 
+    // for make_copy; the array expressions are shared with the original
+    private PathCondition(HashMap<String, ArrayExpression> arrayExpressions) {
+        header = null;
+        this.arrayExpressions = arrayExpressions;
+    }
+
+    /**
+     * Adds an array expression to this path condition, without changing the
+     * array expressions of the path conditions it was copied from (or to).
+     */
+    public void putArrayExpression(String name, ArrayExpression ae) {
+        if (arrayExpressionsShared) {
+            arrayExpressions = new HashMap<String, ArrayExpression>(arrayExpressions);
+            arrayExpressionsShared = false;
+        }
+        arrayExpressions.put(name, ae);
+    }
+
     //Added by Aymeric
     public void _addDet(Comparator c, SelectExpression se, IntegerExpression ie) {
         Constraint t;
@@ -153,6 +223,14 @@ public class PathCondition implements Comparable<PathCondition> {
       prependUnlessRepeated(t);
     }
 
+    // the contents of a concrete array, as one constraint
+    public void _initializeArray(ContentsExpression ce, ArrayExpression ae) {
+      Constraint t;
+      flagSolved = false;
+      t = new ArrayConstraint(ce, Comparator.EQ, ae);
+      prependUnlessRepeated(t);
+    }
+
     // Added by Gideon
     public void _addDet(LogicalORLinearIntegerConstraints loic) {
         // throw new RuntimeException ("Not being used right now");
@@ -162,6 +240,8 @@ public class PathCondition implements Comparable<PathCondition> {
             t.and = header;
             header = t;
             count++;
+            if (hashCode != null)
+                hashCode = hashCode ^ t.hashCode();
         }
     }
 
@@ -260,22 +340,51 @@ public class PathCondition implements Comparable<PathCondition> {
             t.and = header;
             header = t;
             count++;
+            if (hashCode != null)
+                hashCode = hashCode ^ t.hashCode();
             return true;
         } else {
             return false;
         }
     }
 
+    /**
+     * Prepends the conjuncts of t to this path condition. The conjuncts are
+     * copied, t and the current constraints are left unchanged.
+     */
     public void prependAllConjuncts(Constraint t) {
-        t.last().and = header;
-        header = t;
+        header = copyConjuncts(t, header);
         count = length(header);
+        resetHashCode();
     }
 
+    /**
+     * Appends the conjuncts of t to this path condition. The current conjuncts
+     * are copied (they are shared with the path conditions this one was copied
+     * from), t is shared.
+     */
     public void appendAllConjuncts(Constraint t) {
-        Constraint tmp = header.last();
-        tmp.and = t;
+        header = copyConjuncts(header, t);
         count = length(header);
+        resetHashCode();
+    }
+
+    // returns a copy of the list c followed by tail
+    private static Constraint copyConjuncts(Constraint c, Constraint tail) {
+        Constraint first = null;
+        Constraint last = null;
+        for (; c != null; c = c.and) {
+            Constraint copy = c.unlinkedCopy();
+            if (last == null)
+                first = copy;
+            else
+                last.and = copy;
+            last = copy;
+        }
+        if (last == null)
+            return tail;
+        last.and = tail;
+        return first;
     }
 
     private static int length(Constraint c) {
@@ -343,10 +452,7 @@ public class PathCondition implements Comparable<PathCondition> {
     }
 
     private boolean solveWithSolution() {
-        if (instance == null) {
-            instance = SolverTranslator.createInstance(header);
-        }
-        boolean isSat = (Boolean) instance.request("sat");
+        boolean isSat = (Boolean) getInstance().request("sat");
         /* && spc.simplify() */; // strings are not supported by Green for now
         /*
          * This is untested and have shown a few issues so needs fixing first if (isSat)
@@ -371,10 +477,17 @@ public class PathCondition implements Comparable<PathCondition> {
 
     public boolean solveOld() {// warning: solve calls simplify
 
-        SymbolicConstraintsGeneral solver = new SymbolicConstraintsGeneral();
-
-        boolean result1 = solver.solve(this);
-        solver.cleanup();
+        boolean result1;
+        if (hasModel()) {
+            restoreModel();
+            result1 = true;
+        } else {
+            SymbolicConstraintsGeneral solver = new SymbolicConstraintsGeneral();
+            result1 = solver.solve(this);
+            solver.cleanup();
+            if (result1 && keepModels)
+                keepModel();
+        }
         PathCondition.flagSolved = true;
 
         // modification for string path condition
@@ -386,13 +499,42 @@ public class PathCondition implements Comparable<PathCondition> {
         SymbolicConstraintsGeneral solver = new SymbolicConstraintsGeneral();
         boolean result1;
 
-        if (SymbolicInstructionFactory.concolicMode) {
-            PCAnalyzer pa = new PCAnalyzer();
-            result1 = pa.isSatisfiable(this, solver);
-        } else
-            result1 = solver.isSatisfiable(this);
-        solverCalls++;
-        solver.cleanup();
+        String cacheKey = null;
+        Boolean cached = null;
+        if (queryCache != null && header != null && !SymbolicInstructionFactory.concolicMode) {
+            cacheKey = canonicalKey();
+            cached = queryCache.get(cacheKey);
+        }
+
+        if (checkedHeader != null && checkedHeader == header && !SymbolicInstructionFactory.concolicMode) {
+            result1 = checkedResult;
+        } else if (cached != null) {
+            result1 = cached;
+            if (SolverMetrics.enabled)
+                SolverMetrics.cacheHit(SymbolicConstraintsGeneral.backendName());
+        } else {
+            if (SymbolicInstructionFactory.concolicMode) {
+                PCAnalyzer pa = new PCAnalyzer();
+                result1 = pa.isSatisfiable(this, solver);
+            } else if (keepModels) {
+                result1 = solver.solve(this);
+                if (result1)
+                    keepModel();
+            } else
+                result1 = solver.isSatisfiable(this);
+            solverCalls++;
+            solver.cleanup();
+            // results forced by symbolic.max_pc_length/max_pc_msec are not real answers
+            boolean limitHit = count > SymbolicInstructionFactory.maxPcLength
+                    || (SymbolicInstructionFactory.maxPcMSec > 0 && System.currentTimeMillis()
+                            - SymbolicInstructionFactory.startSystemMillis > SymbolicInstructionFactory.maxPcMSec);
+            if (cacheKey != null && !limitHit)
+                queryCache.put(cacheKey, result1);
+            if (!limitHit && header != null && !SymbolicInstructionFactory.concolicMode) {
+                checkedHeader = header;
+                checkedResult = result1;
+            }
+        }
 
         if (SymbolicInstructionFactory.debugMode) {
             MinMax.Debug_no_path_constraints++;
@@ -410,6 +552,102 @@ public class PathCondition implements Comparable<PathCondition> {
         return result1 && result2;
     }
 
+    /**
+     * Returns whether the solution of the last satisfiable check of these
+     * constraints is still at hand.
+     */
+    public boolean hasModel() {
+        return modelHeader != null && modelHeader == header && !SymbolicInstructionFactory.concolicMode;
+    }
+
+    // the variables of these constraints and the solutions just found for them
+    private void keepModel() {
+        if (header == null || SymbolicInstructionFactory.concolicMode || !SolverRegistry.numeric().solves())
+            return;
+        CollectVariableVisitor variables = new CollectVariableVisitor();
+        for (Constraint c = header; c != null; c = c.and) {
+            if (c instanceof LogicalORLinearIntegerConstraints) {
+                for (LinearIntegerConstraint d : ((LogicalORLinearIntegerConstraints) c).getList())
+                    d.accept(variables);
+            } else {
+                c.accept(variables);
+            }
+        }
+        List<SymbolicInteger> ints = new ArrayList<SymbolicInteger>();
+        List<SymbolicReal> reals = new ArrayList<SymbolicReal>();
+        for (Expression v : variables.getVariables()) {
+            if (v instanceof SymbolicInteger)
+                ints.add((SymbolicInteger) v);
+            else if (v instanceof SymbolicReal)
+                reals.add((SymbolicReal) v);
+        }
+        modelInts = ints.toArray(new SymbolicInteger[ints.size()]);
+        modelIntValues = new long[modelInts.length];
+        for (int i = 0; i < modelInts.length; i++) {
+            modelIntValues[i] = modelInts[i].solution;
+        }
+        modelReals = reals.toArray(new SymbolicReal[reals.size()]);
+        modelRealValues = new double[modelReals.length];
+        for (int i = 0; i < modelReals.length; i++) {
+            modelRealValues[i] = modelReals[i].solution;
+        }
+        modelHeader = header;
+    }
+
+    // other paths may have solved the same variables since
+    private void restoreModel() {
+        for (int i = 0; i < modelInts.length; i++) {
+            modelInts[i].solution = modelIntValues[i];
+        }
+        for (int i = 0; i < modelReals.length; i++) {
+            modelReals[i].solution = modelRealValues[i];
+        }
+    }
+
+    /**
+     * Returns the constraints in a form that depends neither on their order nor
+     * on solutions found so far, followed by the bounds of the variables. Used
+     * as the key of queryCache, which may be kept across runs.
+     */
+    public String canonicalKey() {
+        TreeSet<String> conjuncts = new TreeSet<String>();
+        CollectVariableVisitor variables = new CollectVariableVisitor();
+        for (Constraint c = header; c != null; c = c.and) {
+            if (c instanceof LogicalORLinearIntegerConstraints) {
+                TreeSet<String> disjuncts = new TreeSet<String>();
+                for (LinearIntegerConstraint d : ((LogicalORLinearIntegerConstraints) c).getList()) {
+                    disjuncts.add(d.unlinkedCopy().stringPC());
+                    d.accept(variables);
+                }
+                conjuncts.add(join(disjuncts, " OR "));
+            } else {
+                conjuncts.add(c.unlinkedCopy().stringPC());
+                c.accept(variables);
+            }
+        }
+        TreeSet<String> bounds = new TreeSet<String>();
+        for (Expression v : variables.getVariables()) {
+            if (v instanceof SymbolicInteger) {
+                SymbolicInteger i = (SymbolicInteger) v;
+                bounds.add(i.getName() + "[" + i._min + "," + i._max + "]");
+            } else if (v instanceof SymbolicReal) {
+                SymbolicReal r = (SymbolicReal) v;
+                bounds.add(r.getName() + "[" + r._min + "," + r._max + "]");
+            }
+        }
+        return join(conjuncts, " &&\n") + "\n" + join(bounds, " ");
+    }
+
+    private static String join(TreeSet<String> strings, String separator) {
+        StringBuilder sb = new StringBuilder();
+        for (String s : strings) {
+            if (sb.length() > 0)
+                sb.append(separator);
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+
     public String stringPC() {
         return "constraint # = " + count + ((header == null) ? "" : "\n" + header.stringPC());
     }
@@ -571,14 +809,15 @@ public class PathCondition implements Comparable<PathCondition> {
     }
 
     /**
-     * Remove the header of the path condition, update the count, and reset the hash
+     * Remove the header of the path condition, update the count and the hash
      * code.
      */
     public void removeHeader() {
         assert header != null;
+        if (hashCode != null)
+            hashCode = hashCode ^ header.hashCode();
         header = header.and;
         count--;
-        resetHashCode();
     }
 
     /*
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric;
+
+/**
+ * Results of numeric satisfiability checks, keyed by
+ * {@link PathCondition#canonicalKey()} (see PathCondition.queryCache).
+ */
+public interface QueryCache {
+
+	/**
+	 * Returns the result for key, or null if it is not known.
+	 */
+	Boolean get(String key);
+
+	void put(String key, boolean sat);
+}
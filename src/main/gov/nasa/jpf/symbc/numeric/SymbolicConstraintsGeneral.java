@@ -54,8 +54,10 @@ import java.util.Map.Entry;
 public class SymbolicConstraintsGeneral {
     protected ProblemGeneral pb;
     protected Boolean result; // tells whether result is satisfiable or not
+    protected boolean presolved; // the last check was decided by the IntervalPresolver
 
     public boolean isSatisfiable(PathCondition pc) {
+        result = null;
         if (pc == null || pc.count == 0) {
             if (SymbolicInstructionFactory.debugMode)
                 System.out.println("## Warning: empty path condition");
@@ -65,59 +67,44 @@ public class SymbolicConstraintsGeneral {
         if (pc.count() > SymbolicInstructionFactory.maxPcLength) {
             System.out.println("## Warning: Path condition exceeds symbolic.max_pc_length="
                     + SymbolicInstructionFactory.maxPcLength + ".  Pretending it is unsatisfiable.");
+            if (SolverMetrics.enabled)
+                SolverMetrics.record(backendName(), pc.count(), 0, 0, 0, SolverMetrics.Outcome.TIMEOUT);
             return false;
         }
         if (SymbolicInstructionFactory.maxPcMSec > 0 && System.currentTimeMillis()
                 - SymbolicInstructionFactory.startSystemMillis > SymbolicInstructionFactory.maxPcMSec) {
             System.out.println("## Warning: Exploration time exceeds symbolic.max_pc_msec="
                     + SymbolicInstructionFactory.maxPcMSec + ".  Pretending all paths are unsatisfiable.");
+            if (SolverMetrics.enabled)
+                SolverMetrics.record(backendName(), pc.count(), 0, 0, 0, SolverMetrics.Outcome.TIMEOUT);
             return false;
         }
 
         // if (SymbolicInstructionFactory.debugMode)
         // System.out.println("checking: PC "+pc);
 
-        String[] dp = SymbolicInstructionFactory.dp;
-        if (dp == null) { // default: use choco
-            pb = new ProblemChoco();
-        } else if (dp[0].equalsIgnoreCase("choco")) {
-            pb = new ProblemChoco();
-            // } else if(dp[0].equalsIgnoreCase("choco2")){
-            // pb = new ProblemChoco2();
-        } else if (dp[0].equalsIgnoreCase("coral")) {
-            pb = new ProblemCoral();
-        } else if (dp[0].equalsIgnoreCase("iasolver")) {
-            pb = new ProblemIAsolver();
-        } else if (dp[0].equalsIgnoreCase("cvc3")) {
-            pb = new ProblemCVC3();
-        } else if (dp[0].equalsIgnoreCase("cvc3bitvec")) {
-            pb = new ProblemCVC3BitVector();
-        } else if (dp[0].equalsIgnoreCase("yices")) {
-            pb = new ProblemYices();
-        } else if (dp[0].equalsIgnoreCase("z3")) {
-            pb = new ProblemZ3();
-        } else if (dp[0].equalsIgnoreCase("z3inc")) {
-            pb = new ProblemZ3Incremental();
-        } else if (dp[0].equalsIgnoreCase("z3bitvectorinc")) {
-            pb = new ProblemZ3BitVectorIncremental();
-        } else if (dp[0].equalsIgnoreCase("debug")) {
-            pb = new DebugSolvers(pc);
-        } else if (dp[0].equalsIgnoreCase("compare")) {
-            pb = new ProblemCompare(pc, this);
-        } else if (dp[0].equalsIgnoreCase("z3bitvector")) {
-            pb = new ProblemZ3BitVector();
-        } else if (dp[0].equalsIgnoreCase("z3optimize")) {
-            pb = new ProblemZ3Optimize();
-        }
-        // added option to have no-solving
-        // as a result symbolic execution will explore an over-approximation of the
-        // program paths
-        // equivalent to a CFG analysis
-        else if (dp[0].equalsIgnoreCase("no_solver")) {
+        SolverRegistry.Backend backend = SolverRegistry.numeric();
+        // no_solver: symbolic execution explores an over-approximation of
+        // the program paths, equivalent to a CFG analysis
+        if (!backend.solves())
             return true;
-        } else
-            throw new RuntimeException(
-                    "## Error: unknown decision procedure symbolic.dp=" + dp[0] + "\n(use choco or IAsolver or CVC3)");
+
+        // the backend is only created if the presolver does not decide
+        pb = null;
+        presolved = false;
+        if (SymbolicInstructionFactory.presolve && IntervalPresolver.isExactFor(backend)) {
+            long t0 = SolverMetrics.enabled ? System.nanoTime() : 0;
+            result = IntervalPresolver.decide(pc);
+            if (result != null) {
+                presolved = true;
+                if (SolverMetrics.enabled)
+                    SolverMetrics.record("presolve", pc.count(), 0, 0, System.nanoTime() - t0,
+                            result ? SolverMetrics.Outcome.SAT : SolverMetrics.Outcome.UNSAT);
+                if (SymbolicInstructionFactory.debugMode)
+                    System.out.println("numeric PC (presolved): " + pc + " -> " + result + "\n");
+                return result;
+            }
+        }
 
         /*
          * Parse path condition to solver. Note: do not override the actual pb
@@ -125,7 +112,11 @@ public class SymbolicConstraintsGeneral {
          * work otherwise and the solver gets filled up with wrong assertions,
          * e.g. with Z3.
          */
+        pb = backend.create(pc, this);
+        boolean timed = SolverMetrics.enabled || SolverCorpus.recording();
+        long t0 = timed ? System.nanoTime() : 0;
         ProblemGeneral tempPb = PCParser.parse(pc, pb);
+        long t1 = timed ? System.nanoTime() : 0;
 
         if (tempPb == null)
             result = Boolean.FALSE;
@@ -143,6 +134,16 @@ public class SymbolicConstraintsGeneral {
             result = pb.solve();
         }
 
+        if (SolverMetrics.enabled) {
+            long t2 = System.nanoTime();
+            SolverMetrics.Outcome outcome = (result == null) ? SolverMetrics.Outcome.UNKNOWN
+                    : result.booleanValue() ? SolverMetrics.Outcome.SAT : SolverMetrics.Outcome.UNSAT;
+            SolverMetrics.record(backendName(), pc.count(), PCParser.variableCount(), t1 - t0, t2 - t1, outcome);
+        }
+        if (SolverCorpus.recording()) {
+            SolverCorpus.recordNumeric(backendName(), pc.header, result, System.nanoTime() - t0);
+        }
+
         if (SymbolicInstructionFactory.debugMode)
             System.out.println("numeric PC: " + pc + " -> " + result + "\n");
 
@@ -164,6 +165,28 @@ public class SymbolicConstraintsGeneral {
 
     }
 
+    /**
+     * Returns the answer of the last isSatisfiable: null if it was not decided
+     * (timeout, unknown, or a limit on the path condition was hit).
+     */
+    public Boolean lastResult() {
+        return result;
+    }
+
+    static String backendName() {
+        return SolverRegistry.numeric().name;
+    }
+
+    /**
+     * Returns whether the configured decision procedure accepts if-then-else
+     * terms (IfThenElseIntegerExpression, IfThenElseRealExpression).
+     */
+    public static boolean supportsIte() {
+        if (SymbolicInstructionFactory.greenSolver != null || SymbolicInstructionFactory.dp == null)
+            return false;
+        return SolverRegistry.numeric().has(ProblemGeneral.Capability.ITE);
+    }
+
     public boolean isSatisfiableGreen(PathCondition pc) {
         if (pc == null || pc.count == 0) {
             if (SymbolicInstructionFactory.debugMode)
@@ -187,17 +210,8 @@ public class SymbolicConstraintsGeneral {
     }
 
     public void cleanup() {
-        if (pb instanceof ProblemCVC3) {
-            ((ProblemCVC3) pb).cleanup();
-        } else if (pb instanceof ProblemCoral) {
-            ((ProblemCoral) pb).cleanup();
-        } else if (pb instanceof ProblemZ3) {
-            ((ProblemZ3) pb).cleanup();
-        } else if (pb instanceof ProblemZ3BitVector) {
-            ((ProblemZ3BitVector) pb).cleanup();
-        } else if (pb instanceof ProblemZ3Optimize) {
-            ((ProblemZ3Optimize) pb).cleanup();
-        }
+        if (pb != null)
+            pb.cleanup();
     }
 
     public boolean solve(PathCondition pc) {
@@ -207,11 +221,12 @@ public class SymbolicConstraintsGeneral {
         if (pc == null || pc.count == 0)
             return true;
 
-        String[] dp = SymbolicInstructionFactory.dp;
-        if (dp[0].equalsIgnoreCase("no_solver"))
+        if (!SolverRegistry.numeric().solves())
             return true;
 
         if (isSatisfiable(pc)) {
+            if (presolved) // the solutions are set already
+                return true;
 
             // compute solutions for real variables:
             Set<Entry<SymbolicReal, Object>> sym_realvar_mappings = PCParser.symRealVar.entrySet();
@@ -319,12 +334,17 @@ public class SymbolicConstraintsGeneral {
             return result;
         }
 
-        String[] dp = SymbolicInstructionFactory.dp;
-        if (dp[0].equalsIgnoreCase("no_solver")) {
+        if (!SolverRegistry.numeric().solves()) {
             return result;
         }
 
         if (isSatisfiable(pc)) {
+            if (presolved) { // the solutions are set already
+                for (SymbolicInteger v : PCParser.symIntegerVar.keySet()) {
+                    result.put(v.getName(), v.solution);
+                }
+                return result;
+            }
 
             // compute solutions for real variables:
             Set<Entry<SymbolicReal, Object>> sym_realvar_mappings = PCParser.symRealVar.entrySet();
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.logging.Level;
+
+import za.ac.sun.cs.green.Green;
+import za.ac.sun.cs.green.store.BasicStore;
+import za.ac.sun.cs.green.util.Reporter;
+
+/**
+ * A Green store in a {@link QueryStore} file, to keep Green's answers across
+ * runs without a redis server:
+ *
+ * green.store=gov.nasa.jpf.symbc.numeric.solvers.FileStore
+ * green.store.file=f     (default green.store)
+ */
+public class FileStore extends BasicStore {
+
+	private final QueryStore store;
+
+	public FileStore(Green solver, Properties properties) {
+		super(solver);
+		File file = new File(properties.getProperty("green.store.file", "green.store"));
+		try {
+			store = QueryStore.open(file);
+		} catch (IOException e) {
+			throw new RuntimeException("## Error: cannot open green store " + file + ": " + e);
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		store.close();
+	}
+
+	@Override
+	public void report(Reporter reporter) {
+		reporter.report(getClass().getSimpleName(), "hits = " + store.hits());
+		reporter.report(getClass().getSimpleName(), "misses = " + store.misses());
+		reporter.report(getClass().getSimpleName(), "insertionCount = " + store.puts());
+		reporter.report(getClass().getSimpleName(), "size = " + store.size());
+	}
+
+	@Override
+	public Object get(String key) {
+		byte[] value = store.get(key);
+		if (value == null)
+			return null;
+		try {
+			ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(value));
+			try {
+				return in.readObject();
+			} finally {
+				in.close();
+			}
+		} catch (IOException x) {
+			log.log(Level.SEVERE, "io problem", x);
+		} catch (ClassNotFoundException x) {
+			log.log(Level.SEVERE, "class not found problem", x);
+		}
+		return null;
+	}
+
+	@Override
+	public void put(String key, Serializable value) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(value);
+			out.close();
+			store.put(key, bytes.toByteArray());
+		} catch (IOException x) {
+			log.log(Level.SEVERE, "io problem", x);
+		}
+	}
+}
@@ -66,6 +66,11 @@ public class ProblemCVC3 extends ProblemGeneral {
     protected final int base = 10; //used in creating real variables
     protected HashMap model;
 
+	@Override
+	public boolean supports(Capability c) {
+		return c == Capability.ITE;
+	}
+
 	public ProblemCVC3() {
 		pb = null;
 		try{
@@ -913,4 +918,34 @@ public class ProblemCVC3 extends ProblemGeneral {
 		return null;
 	}
 
-}
\ No newline at end of file
+	@Override
+	public Object makeIntConst(long value) {
+		try{
+			return vc.ratExpr((int) value);
+		} catch (Exception e) {
+			e.printStackTrace();
+			throw new RuntimeException("## Error CVC3: Exception caught in CVC3 JNI: \n" + e);
+		}
+	}
+
+	@Override
+	public Object makeRealConst(double value) {
+		try{
+			return vc.ratExpr(Double.toString(value), base);
+		} catch (Exception e) {
+			e.printStackTrace();
+			throw new RuntimeException("## Error CVC3: Exception caught in CVC3 JNI: \n" + e);
+		}
+	}
+
+	@Override
+	public Object ite(Object cond, Object exp1, Object exp2) {
+		try{
+			return vc.iteExpr((Expr)cond, (Expr)exp1, (Expr)exp2);
+		} catch (Exception e) {
+			e.printStackTrace();
+			throw new RuntimeException("## Error CVC3: Exception caught in CVC3 JNI: \n" + e);
+		}
+	}
+
+}
@@ -87,6 +87,11 @@ public class ProblemCoral extends ProblemGeneral {
 	private coral.PC pc = new coral.PC();
 	private boolean optmize;
 
+	@Override
+	public boolean supports(Capability c) {
+		return c == Capability.NON_LINEAR;
+	}
+
 	public ProblemCoral() {
 		this(defaultKind);
 	}
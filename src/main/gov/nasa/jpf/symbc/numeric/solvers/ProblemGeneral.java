@@ -38,6 +38,26 @@
 package gov.nasa.jpf.symbc.numeric.solvers;
 
 public abstract class ProblemGeneral{
+
+	// what a decision procedure handles besides linear arithmetic; the last
+	// two describe a backend as registered in the SolverRegistry
+	public enum Capability {
+		NON_LINEAR, // non-linear integer constraints and operations
+		ARRAYS, // array constraints (select, store)
+		ITE, // if-then-else terms (see ite)
+		BIT_VECTORS, // integers are bounded bit-vectors
+		INCREMENTAL, // only the newest constraint is posted per query
+		EVERY_QUERY // every query has to reach it (it optimizes, or compares solvers)
+	}
+
+	public boolean supports(Capability c) {
+		return false;
+	}
+
+	// called after each query, e.g. to pop the scope of the query
+	public void cleanup() {
+	}
+
 	public abstract Object makeIntVar(String name, long _min, long _max);
 	public abstract Object makeRealVar(String name, double min, double max);
 
@@ -211,6 +231,16 @@ public abstract class ProblemGeneral{
       throw new RuntimeException("## Error : Array initialization not supported");
   }
 
+  // an array with the given contents; null if the solver cannot build one, then
+  // the contents are posted element by element
+  public Object makeArrayConst(long[] values) {
+      return null;
+  }
+
+  public Object makeRealArrayConst(double[] values) {
+      return null;
+  }
+
   public Object makeIntConst(long value) {
       throw new RuntimeException("## Error : makeIntConst not supported");
   }
@@ -219,6 +249,11 @@ public abstract class ProblemGeneral{
       throw new RuntimeException("## Error : makeRealConst not supported");
   }
 
+  // if cond then exp1 else exp2; cond is a constraint as returned by eq, lt, ...
+  public Object ite(Object cond, Object exp1, Object exp2) {
+      throw new RuntimeException("## Error : if-then-else expressions not supported");
+  }
+
 	public abstract Object mixed(Object exp1, Object exp2);
 
 	public abstract Boolean solve();
@@ -54,6 +54,11 @@ public class ProblemYices extends ProblemGeneral {
 
   HashMap<String, String> modelMap = new HashMap<String, String>();
 
+  @Override
+  public boolean supports(Capability c) {
+    return c == Capability.ITE;
+  }
+
   public ProblemYices() {
     //reset the old context
     if(oldYices!=null)
@@ -425,4 +430,19 @@ public Object rem(Object exp1, long exp2) {
 	return null;
 }
 
+@Override
+public Object makeIntConst(long value) {
+	return Long.toString(value);
+}
+
+@Override
+public Object makeRealConst(double value) {
+	return getYicesDouble(value);
+}
+
+@Override
+public Object ite(Object cond, Object exp1, Object exp2) {
+	return "(ite " + (String)cond + " " + (String)exp1 + " " + (String)exp2 + ")";
+}
+
 }
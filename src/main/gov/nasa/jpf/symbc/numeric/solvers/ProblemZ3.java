@@ -59,14 +59,27 @@ public class ProblemZ3 extends ProblemGeneral {
 	private static class Z3Wrapper {
 		private Context ctx;
 		private Solver solver;
+		// translations of concrete array contents, kept as long as the snapshot is in use
+		private final Map<Object, ArrayExpr> arrays = new WeakHashMap<Object, ArrayExpr>();
+
+		// queries answered with this context
+		private int queries;
 
 		private static Z3Wrapper instance = null;
 
 		public static Z3Wrapper getInstance() {
-			if (instance != null) {
-				return instance;
+			if (instance != null && Z3Contexts.due(instance.queries)) {
+				// between two queries, so no problem uses the old context any more
+				Z3Contexts.recycled("z3");
+				instance.ctx.dispose();
+				instance = null;
+			}
+			if (instance == null) {
+				instance = new Z3Wrapper();
 			}
-			return instance = new Z3Wrapper();
+			instance.queries++;
+			Z3Contexts.queried("z3");
+			return instance;
 		}
 
 		private Z3Wrapper() {
@@ -74,6 +87,7 @@ public class ProblemZ3 extends ProblemGeneral {
 			cfg.put("model", "true");
 			ctx = new Context(cfg);
 			solver = ctx.mkSolver();
+			Z3Contexts.created("z3");
 		}
 
 		public Solver getSolver() {
@@ -83,18 +97,29 @@ public class ProblemZ3 extends ProblemGeneral {
 		public Context getCtx() {
 			return this.ctx;
 		}
+
+		public Map<Object, ArrayExpr> getArrays() {
+			return this.arrays;
+		}
 	}
 
 	private Solver solver;
 	private Context ctx;
+	private Map<Object, ArrayExpr> arrays;
 
 	// Do we use the floating point theory or linear arithmetic over reals
 	private boolean useFpForReals = false;
 
+	@Override
+	public boolean supports(Capability c) {
+		return c == Capability.NON_LINEAR || c == Capability.ARRAYS || c == Capability.ITE;
+	}
+
 	public ProblemZ3() {
 		Z3Wrapper z3 = Z3Wrapper.getInstance();
 		solver = z3.getSolver();
 		ctx = z3.getCtx();
+		arrays = z3.getArrays();
 		solver.push();
 		useFpForReals = SymbolicInstructionFactory.fp;
 	}
@@ -1174,6 +1199,46 @@ public class ProblemZ3 extends ProblemGeneral {
       }
     }
 
+    // a store chain over a constant array of zeros, built once per snapshot
+    @Override
+    public Object makeArrayConst(long[] values) {
+        try {
+            ArrayExpr a = arrays.get(values);
+            if (a == null) {
+                Sort int_type = ctx.mkIntSort();
+                a = ctx.mkConstArray(int_type, ctx.mkInt(0));
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] != 0)
+                        a = ctx.mkStore(a, ctx.mkInt(i), ctx.mkInt(values[i]));
+                }
+                arrays.put(values, a);
+            }
+            return a;
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException("## Error Z3 : Exception caught in Z3 JNI: " + e);
+        }
+    }
+
+    @Override
+    public Object makeRealArrayConst(double[] values) {
+        try {
+            ArrayExpr a = arrays.get(values);
+            if (a == null) {
+                a = ctx.mkConstArray(ctx.mkIntSort(), ctx.mkReal(0));
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] != 0)
+                        a = ctx.mkStore(a, ctx.mkInt(i), ctx.mkReal("" + values[i]));
+                }
+                arrays.put(values, a);
+            }
+            return a;
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException("## Error Z3 : Exception caught in Z3 JNI: " + e);
+        }
+    }
+
     @Override
     public Object makeIntConst(long value) {
         try {
@@ -1194,4 +1259,14 @@ public class ProblemZ3 extends ProblemGeneral {
         }
     }
 
+    @Override
+    public Object ite(Object cond, Object exp1, Object exp2) {
+        try {
+            return ctx.mkITE((BoolExpr) cond, (Expr) exp1, (Expr) exp2);
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException("## Error Z3 : Exception caught in Z3 JNI: " + e);
+        }
+    }
+
 }
@@ -56,14 +56,24 @@ public class ProblemZ3BitVector extends ProblemGeneral {
         private Context ctx;
         private Solver solver;
 
+        // queries answered with this context
+        private int queries;
+
         private static Z3Wrapper instance = null;
 
         public static Z3Wrapper getInstance() {
-            if (instance != null) {
-                return instance;
+            if (instance != null && Z3Contexts.due(instance.queries)) {
+                // between two queries, so no problem uses the old context any more
+                Z3Contexts.recycled("z3bitvector");
+                instance.ctx.dispose();
+                instance = null;
             }
-
-            return instance = new Z3Wrapper();
+            if (instance == null) {
+                instance = new Z3Wrapper();
+            }
+            instance.queries++;
+            Z3Contexts.queried("z3bitvector");
+            return instance;
         }
 
         private Z3Wrapper() {
@@ -71,6 +81,7 @@ public class ProblemZ3BitVector extends ProblemGeneral {
             cfg.put("model", "true");
             ctx = new Context(cfg);
             solver = ctx.mkSolver();
+            Z3Contexts.created("z3bitvector");
         }
 
         public Solver getSolver() {
@@ -93,6 +104,11 @@ public class ProblemZ3BitVector extends ProblemGeneral {
     private long minAllowed;
     private long maxAllowed;
 
+    @Override
+    public boolean supports(Capability c) {
+        return c == Capability.NON_LINEAR || c == Capability.ARRAYS || c == Capability.BIT_VECTORS;
+    }
+
     public ProblemZ3BitVector() {
         Z3Wrapper z3 = Z3Wrapper.getInstance();
         solver = z3.getSolver();
@@ -38,21 +38,61 @@ public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements Inc
     private Context ctx;
     private Solver solver;
 
+    // queries answered with this context
+    private int queries;
+
     private static Z3Wrapper instance = null;
 
     public static Z3Wrapper getInstance() {
+      if (instance != null && Z3Contexts.due(instance.queries)) {
+        Z3Wrapper old = instance;
+        instance = new Z3Wrapper();
+        instance.restore(old.solver);
+        Z3Contexts.recycled("z3bitvectorinc");
+        old.ctx.dispose();
+      }
+      Z3Wrapper z3 = current();
+      z3.queries++;
+      Z3Contexts.queried("z3bitvectorinc");
+      return z3;
+    }
+
+    // the wrapper in use, without counting a query (for push and pop)
+    public static Z3Wrapper current() {
       if (instance != null) {
         return instance;
       }
-
       return instance = new Z3Wrapper();
     }
 
+    // asserts in this context what old asserts, scope by scope; the
+    // assertions of a scope follow those of the scopes below it
+    private void restore(Solver old) {
+      int depth = old.getNumScopes();
+      BoolExpr[] assertions = old.getAssertions();
+      int[] sizes = new int[depth + 1];
+      sizes[depth] = assertions.length;
+      for (int level = depth - 1; level >= 0; level--) {
+        old.pop();
+        sizes[level] = old.getNumAssertions();
+      }
+      int next = 0;
+      for (int level = 0; level <= depth; level++) {
+        if (level > 0) {
+          solver.push();
+        }
+        for (; next < sizes[level]; next++) {
+          solver.add((BoolExpr) assertions[next].translate(ctx));
+        }
+      }
+    }
+
     private Z3Wrapper() {
       HashMap<String, String> cfg = new HashMap<String, String>();
       cfg.put("model", "true");
       ctx = new Context(cfg);
       solver = ctx.mkSolver();
+      Z3Contexts.created("z3bitvectorinc");
     }
 
     public Solver getSolver() {
@@ -75,6 +115,11 @@ public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements Inc
   private long minAllowed;
   private long maxAllowed;
 
+  @Override
+  public boolean supports(Capability c) {
+    return c == Capability.NON_LINEAR || c == Capability.ARRAYS || c == Capability.BIT_VECTORS;
+  }
+
   public ProblemZ3BitVectorIncremental() {
     Z3Wrapper z3 = Z3Wrapper.getInstance();
     solver = z3.getSolver();
@@ -94,17 +139,17 @@ public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements Inc
 
   @Override
   public void push() {
-    solver.push();
+    Z3Wrapper.current().getSolver().push();
   }
 
   @Override
   public void pop() {
-    solver.pop();
+    Z3Wrapper.current().getSolver().pop();
   }
 
   @Override
   public void reset() {
-    solver.reset();
+    Z3Wrapper.current().getSolver().reset();
   }
 
   public void cleanup() {
@@ -60,13 +60,24 @@ public class ProblemZ3Optimize extends ProblemGeneral {
         private Context ctx;
         private Optimize solver;
 
+        // queries answered with this context
+        private int queries;
+
         private static Z3Wrapper instance = null;
 
         public static Z3Wrapper getInstance() {
-            if (instance != null) {
-                return instance;
+            if (instance != null && Z3Contexts.due(instance.queries)) {
+                // between two queries, so no problem uses the old context any more
+                Z3Contexts.recycled("z3optimize");
+                instance.ctx.dispose();
+                instance = null;
+            }
+            if (instance == null) {
+                instance = new Z3Wrapper();
             }
-            return instance = new Z3Wrapper();
+            instance.queries++;
+            Z3Contexts.queried("z3optimize");
+            return instance;
         }
 
         private Z3Wrapper() {
@@ -74,6 +85,7 @@ public class ProblemZ3Optimize extends ProblemGeneral {
             cfg.put("model", "true");
             ctx = new Context(cfg);
             solver = ctx.mkOptimize(); // ctx.mkSolver();
+            Z3Contexts.created("z3optimize");
         }
 
         public Optimize getSolver() {
@@ -93,6 +105,11 @@ public class ProblemZ3Optimize extends ProblemGeneral {
 
     private static int scopes = 0;
 
+    @Override
+    public boolean supports(Capability c) {
+        return c == Capability.NON_LINEAR || c == Capability.ARRAYS;
+    }
+
     public ProblemZ3Optimize() {
         Z3Wrapper z3 = Z3Wrapper.getInstance();
         solver = z3.getSolver();
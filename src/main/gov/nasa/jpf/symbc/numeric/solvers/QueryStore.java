@@ -0,0 +1,482 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
+import gov.nasa.jpf.symbc.numeric.MinMax;
+import gov.nasa.jpf.symbc.numeric.QueryCache;
+
+/**
+ * A file-backed key/value store for solver answers that outlive a run, e.g.
+ * for regression runs that explore mostly the same code again. No server is
+ * needed: the QueryStoreListener uses it for the answers of symbolic.dp, and
+ * FileStore for the answers of Green (instead of the RedisStore).
+ *
+ * The file is an append-only log of (key, value) records; a value put again
+ * for a key is appended and the old record becomes garbage. The log is
+ * memory-mapped for reading. The index (hash of the key -> offset of the
+ * record) is written next to the log (file.idx) when the store is closed, and
+ * rebuilt from the log if it is missing or out of date, e.g. after a crash.
+ * Closing also compacts the log if more than half of it is garbage.
+ *
+ * Only one process writes to a store at a time; others open it read-only.
+ */
+public class QueryStore {
+
+	static final int MAGIC = 0x53504651; // "SPFQ"
+	static final int VERSION = 1;
+	static final int HEADER = 8;
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	// stores open in this process, by canonical path
+	private static final Map<String, QueryStore> open = new HashMap<String, QueryStore>();
+
+	private final File file;
+	private final String path;
+	private RandomAccessFile raf;
+	private FileChannel channel;
+	private FileLock lock;
+	private MappedByteBuffer map;
+
+	// hash of the key -> offset of its newest record; two keys with the same
+	// hash only cost a miss, since the key of the record is compared
+	private final Map<Long, Long> index = new HashMap<Long, Long>();
+	private long end;
+	private long garbage;
+	private int users;
+
+	private int hits;
+	private int misses;
+	private int puts;
+
+	private QueryStore(File file, String path) {
+		this.file = file;
+		this.path = path;
+	}
+
+	/**
+	 * Opens (or creates) the store in file; stores are shared by everyone who
+	 * opens the same file, and each open needs a close.
+	 */
+	public static synchronized QueryStore open(File file) throws IOException {
+		String path = file.getCanonicalPath();
+		QueryStore s = open.get(path);
+		if (s == null) {
+			s = new QueryStore(file, path);
+			s.load();
+			open.put(path, s);
+		}
+		s.users++;
+		return s;
+	}
+
+	public void close() {
+		synchronized (QueryStore.class) {
+			if (--users > 0)
+				return;
+			open.remove(path);
+		}
+		synchronized (this) {
+			try {
+				if (lock != null) {
+					if (garbage * 2 > end - HEADER) {
+						try {
+							compact();
+						} catch (IOException e) {
+							// the log is left as it was, garbage and all
+							System.err.println("## Warning: cannot compact query store " + file + ": " + e);
+						}
+					}
+					writeIndex();
+					lock.release();
+				}
+				raf.close();
+			} catch (IOException e) {
+				System.err.println("## Warning: cannot close query store " + file + ": " + e);
+			}
+			map = null;
+		}
+	}
+
+	public synchronized boolean isReadOnly() {
+		return lock == null;
+	}
+
+	public synchronized int size() {
+		return index.size();
+	}
+
+	public synchronized int hits() {
+		return hits;
+	}
+
+	public synchronized int misses() {
+		return misses;
+	}
+
+	public synchronized int puts() {
+		return puts;
+	}
+
+	/**
+	 * Returns the value of key, or null if there is none.
+	 */
+	public synchronized byte[] get(String key) {
+		byte[] k = key.getBytes(UTF8);
+		Long offset = index.get(hash(k));
+		byte[] value = (offset == null) ? null : valueAt(offset, k);
+		if (value == null)
+			misses++;
+		else
+			hits++;
+		return value;
+	}
+
+	public synchronized void put(String key, byte[] value) {
+		if (lock == null)
+			return;
+		byte[] k = key.getBytes(UTF8);
+		long h = hash(k);
+		Long offset = index.get(h);
+		if (offset != null) {
+			byte[] old = valueAt(offset, k);
+			if (old != null && Arrays.equals(old, value))
+				return;
+			garbage += recordSize(offset);
+		}
+		ByteBuffer b = ByteBuffer.allocate(8 + k.length + value.length);
+		b.putInt(k.length).putInt(value.length).put(k).put(value);
+		b.flip();
+		try {
+			long at = end;
+			while (b.hasRemaining())
+				end += channel.write(b, end);
+			index.put(h, at);
+			puts++;
+		} catch (IOException e) {
+			// a broken store should not end the exploration
+			System.err.println("## Warning: cannot write query store " + file + ", opened read-only: " + e);
+			releaseLock();
+		}
+	}
+
+	/**
+	 * Rewrites the log with the newest record of every key only. The new log
+	 * is locked before it replaces the old one, so the store stays writable
+	 * and no other process can take it over in between; if that fails, the
+	 * old log is kept.
+	 */
+	public synchronized void compact() throws IOException {
+		if (lock == null)
+			return;
+		List<Long> live = new ArrayList<Long>(index.values());
+		Collections.sort(live);
+		File tmp = new File(file.getPath() + ".tmp");
+		Map<Long, Long> moved = new HashMap<Long, Long>();
+		RandomAccessFile tmpRaf = new RandomAccessFile(tmp, "rw");
+		FileLock tmpLock = null;
+		long at = HEADER;
+		try {
+			FileChannel tmpChannel = tmpRaf.getChannel();
+			try {
+				tmpLock = tmpChannel.tryLock();
+			} catch (OverlappingFileLockException e) {
+				tmpLock = null;
+			}
+			if (tmpLock == null)
+				throw new IOException(tmp + " is used by another process");
+			tmpChannel.truncate(0);
+			// not closed, that would close the channel
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(tmpChannel)));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			for (long offset : live) {
+				int size = recordSize(offset);
+				byte[] record = new byte[size];
+				read(offset, record);
+				out.write(record);
+				moved.put(offset, at);
+				at += size;
+			}
+			out.flush();
+			if (!tmp.renameTo(file))
+				throw new IOException("cannot replace " + file + " by " + tmp);
+		} catch (IOException e) {
+			tmpRaf.close();
+			throw e;
+		}
+		releaseLock();
+		raf.close();
+		raf = tmpRaf;
+		channel = tmpRaf.getChannel();
+		lock = tmpLock;
+		map = null;
+		for (Map.Entry<Long, Long> e : index.entrySet()) {
+			e.setValue(moved.get(e.getValue()));
+		}
+		end = at;
+		garbage = 0;
+	}
+
+	private void load() throws IOException {
+		openChannel();
+		if (channel.size() < HEADER) {
+			if (lock == null)
+				throw new IOException(file + " is not a query store");
+			ByteBuffer b = ByteBuffer.allocate(HEADER);
+			b.putInt(MAGIC).putInt(VERSION);
+			b.flip();
+			channel.truncate(0);
+			channel.write(b, 0);
+		} else {
+			ByteBuffer b = ByteBuffer.allocate(HEADER);
+			channel.read(b, 0);
+			if (b.getInt(0) != MAGIC || b.getInt(4) != VERSION)
+				throw new IOException(file + " is not a query store of this version");
+		}
+		end = channel.size();
+		if (!readIndex())
+			scan();
+	}
+
+	private void openChannel() throws IOException {
+		raf = new RandomAccessFile(file, "rw");
+		channel = raf.getChannel();
+		try {
+			lock = channel.tryLock();
+		} catch (OverlappingFileLockException e) {
+			lock = null;
+		}
+		if (lock == null)
+			System.err.println("## Warning: query store " + file + " is used by another process, opened read-only");
+	}
+
+	private void releaseLock() {
+		try {
+			if (lock != null)
+				lock.release();
+		} catch (IOException e) {
+			// the lock goes with the channel anyway
+		}
+		lock = null;
+	}
+
+	// rebuilds the index from the log; a record cut short by a crash is dropped
+	private void scan() throws IOException {
+		index.clear();
+		garbage = 0;
+		long offset = HEADER;
+		while (offset + 8 <= end) {
+			ByteBuffer lengths = ByteBuffer.allocate(8);
+			read(offset, lengths.array());
+			int keyLength = lengths.getInt(0);
+			int valueLength = lengths.getInt(4);
+			long next = offset + 8 + keyLength + valueLength;
+			if (keyLength < 0 || valueLength < 0 || next > end)
+				break;
+			byte[] k = new byte[keyLength];
+			read(offset + 8, k);
+			Long old = index.put(hash(k), offset);
+			if (old != null)
+				garbage += recordSize(old);
+			offset = next;
+		}
+		if (offset < end && lock != null) {
+			System.err.println("## Warning: dropped an incomplete record at the end of query store " + file);
+			channel.truncate(offset);
+		}
+		end = offset;
+	}
+
+	// index file: length of the log it belongs to, garbage, entries
+	private File indexFile() {
+		return new File(file.getPath() + ".idx");
+	}
+
+	private boolean readIndex() {
+		File f = indexFile();
+		if (!f.exists())
+			return false;
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+			try {
+				if (in.readLong() != end)
+					return false;
+				garbage = in.readLong();
+				int n = in.readInt();
+				for (int i = 0; i < n; i++) {
+					index.put(in.readLong(), in.readLong());
+				}
+				return true;
+			} finally {
+				in.close();
+			}
+		} catch (EOFException e) {
+			index.clear();
+			return false;
+		} catch (IOException e) {
+			index.clear();
+			return false;
+		}
+	}
+
+	private void writeIndex() throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile())));
+		try {
+			out.writeLong(end);
+			out.writeLong(garbage);
+			out.writeInt(index.size());
+			for (Map.Entry<Long, Long> e : index.entrySet()) {
+				out.writeLong(e.getKey());
+				out.writeLong(e.getValue());
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	// the value of the record at offset, if it is the one of key k
+	private byte[] valueAt(long offset, byte[] k) {
+		ByteBuffer m = mapped(offset + 8);
+		int keyLength = m.getInt((int) offset);
+		int valueLength = m.getInt((int) offset + 4);
+		if (keyLength != k.length)
+			return null;
+		m = mapped(offset + 8 + keyLength + valueLength);
+		for (int i = 0; i < keyLength; i++) {
+			if (m.get((int) offset + 8 + i) != k[i])
+				return null;
+		}
+		byte[] value = new byte[valueLength];
+		read(offset + 8 + keyLength, value);
+		return value;
+	}
+
+	private int recordSize(long offset) {
+		ByteBuffer m = mapped(offset + 8);
+		return 8 + m.getInt((int) offset) + m.getInt((int) offset + 4);
+	}
+
+	private void read(long offset, byte[] into) {
+		ByteBuffer m = mapped(offset + into.length).duplicate();
+		m.position((int) offset);
+		m.get(into);
+	}
+
+	// the log mapped at least up to limit; the mapping grows with the log
+	private ByteBuffer mapped(long limit) {
+		if (map == null || map.capacity() < limit) {
+			try {
+				long size = channel.size();
+				if (size > Integer.MAX_VALUE)
+					throw new RuntimeException("## Error: query store " + file + " is larger than 2GB");
+				map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			} catch (IOException e) {
+				throw new RuntimeException("## Error: cannot map query store " + file + ": " + e);
+			}
+		}
+		return map;
+	}
+
+	// 64 bit FNV-1a
+	static long hash(byte[] k) {
+		long h = 0xcbf29ce484222325L;
+		for (byte b : k) {
+			h ^= (b & 0xff);
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+	/**
+	 * The satisfiability answers of a decision procedure, as used for
+	 * PathCondition.queryCache: keys are prefixed with the name of the decision
+	 * procedure, whose semantics (e.g. bit-vectors) the answer depends on.
+	 */
+	public static class Answers implements QueryCache {
+
+		// key of the record that holds the configuration the answers were
+		// computed with; no canonical key starts with '#'
+		static final String CONFIGURATION = "#configuration";
+
+		private final QueryStore store;
+
+		/**
+		 * Answers kept in store under configuration, which also holds the
+		 * settings other than the decision procedure that the answers depend
+		 * on (see {@link #configuration()}). A store written under another
+		 * configuration is refused.
+		 */
+		public Answers(QueryStore store, String configuration) throws IOException {
+			this.store = store;
+			byte[] stored = store.get(CONFIGURATION);
+			if (stored == null) {
+				store.put(CONFIGURATION, configuration.getBytes(UTF8));
+			} else if (!configuration.equals(new String(stored, UTF8))) {
+				throw new IOException(store.file + ": written with " + new String(stored, UTF8) + ", not with "
+						+ configuration);
+			}
+		}
+
+		/**
+		 * Returns the settings of this run that satisfiability answers depend
+		 * on, besides the decision procedure and the path condition itself.
+		 */
+		public static String configuration() {
+			return "bvlength=" + SymbolicInstructionFactory.bvlength + " fp=" + SymbolicInstructionFactory.fp
+					+ " presolve=" + SymbolicInstructionFactory.presolve + " " + MinMax.ranges();
+		}
+
+		@Override
+		public Boolean get(String key) {
+			byte[] value = store.get(SolverRegistry.numeric().name + "\n" + key);
+			return (value == null || value.length != 1) ? null : Boolean.valueOf(value[0] != 0);
+		}
+
+		@Override
+		public void put(String key, boolean sat) {
+			store.put(SolverRegistry.numeric().name + "\n" + key, new byte[] { (byte) (sat ? 1 : 0) });
+		}
+	}
+}
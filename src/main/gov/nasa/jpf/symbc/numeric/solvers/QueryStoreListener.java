@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.io.File;
+import java.io.IOException;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.PropertyListenerAdapter;
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+
+/**
+ * Keeps the satisfiability answers of symbolic.dp in a {@link QueryStore}
+ * file, so the next run does not ask the solver again for the same path
+ * conditions (as the RedisStore does for Green).
+ *
+ * symbolic.query_store.file=f   store file (default spf.queries)
+ *
+ * The answers also depend on the bit-vector length, the floating point mode,
+ * the presolver and the default variable ranges; a store written with other
+ * settings is refused.
+ */
+public class QueryStoreListener extends PropertyListenerAdapter {
+
+	private final QueryStore store;
+
+	public QueryStoreListener(Config conf, JPF jpf) {
+		File file = new File(conf.getString("symbolic.query_store.file", "spf.queries"));
+		try {
+			store = QueryStore.open(file);
+		} catch (IOException e) {
+			throw new RuntimeException("## Error: cannot open query store " + file + ": " + e);
+		}
+	}
+
+	// the settings are read by the instruction factory, which is created
+	// after the listeners
+	@Override
+	public void searchStarted(Search search) {
+		try {
+			PathCondition.queryCache = new QueryStore.Answers(store, QueryStore.Answers.configuration());
+		} catch (IOException e) {
+			store.close();
+			throw new RuntimeException("## Error: cannot use query store " + e.getMessage());
+		}
+	}
+
+	@Override
+	public void searchFinished(Search search) {
+		System.out.println("query store: " + store.hits() + " hits, " + store.misses() + " misses, " + store.puts()
+				+ " new answers, " + store.size() + " stored");
+		PathCondition.queryCache = null;
+		store.close();
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.string.StringConstraint;
+import gov.nasa.jpf.symbc.string.StringPathCondition;
+
+/**
+ * A corpus of the path conditions sent to the solvers during a run, with the
+ * answers and the time it took to get them. Recording is switched on by the
+ * SolverCorpusListener; SolverReplay solves a corpus again, possibly with
+ * another decision procedure.
+ *
+ * The file is a gzipped object stream of {@link Entry}s. The stream is reset
+ * before every entry: constraints are shared and relinked along a path, and an
+ * object written before would otherwise be recorded as it was then. Repeated
+ * constraints are left to the compression.
+ */
+public class SolverCorpus {
+
+	public static final byte NUMERIC = 'N';
+	public static final byte STRING = 'S';
+
+	private static ObjectOutputStream out = null;
+	private static int written = 0;
+
+	public static class Entry implements Serializable {
+		private static final long serialVersionUID = 2L;
+
+		public byte kind;
+		public String dp;
+		public Constraint header;
+		public StringConstraint stringHeader;
+		public Boolean result; // null: the decision procedure did not decide
+		public long nanos;
+
+		public PathCondition toPathCondition() {
+			PathCondition pc = new PathCondition();
+			pc.header = header;
+			pc.recomputeCount();
+			return pc;
+		}
+
+		public StringPathCondition toStringPathCondition() {
+			StringPathCondition spc = new StringPathCondition(toPathCondition());
+			spc.header = stringHeader;
+			spc.recomputeCount();
+			return spc;
+		}
+	}
+
+	public static boolean recording() {
+		return out != null;
+	}
+
+	public static synchronized void open(File f) throws IOException {
+		close();
+		out = new ObjectOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(f))));
+		written = 0;
+	}
+
+	public static synchronized void close() {
+		if (out != null) {
+			try {
+				out.close();
+			} catch (IOException e) {
+				System.err.println("## Warning: cannot close solver corpus: " + e);
+			}
+			out = null;
+		}
+	}
+
+	public static synchronized int size() {
+		return written;
+	}
+
+	public static void recordNumeric(String dp, Constraint header, Boolean result, long nanos) {
+		Entry e = new Entry();
+		e.kind = NUMERIC;
+		e.dp = dp;
+		e.header = header;
+		e.result = result;
+		e.nanos = nanos;
+		write(e);
+	}
+
+	public static void recordString(String dp, StringConstraint stringHeader, Constraint header, boolean result,
+			long nanos) {
+		Entry e = new Entry();
+		e.kind = STRING;
+		e.dp = dp;
+		e.stringHeader = stringHeader;
+		e.header = header;
+		e.result = result;
+		e.nanos = nanos;
+		write(e);
+	}
+
+	private static synchronized void write(Entry e) {
+		if (out == null)
+			return;
+		try {
+			out.reset();
+			out.writeObject(e);
+			written++;
+		} catch (IOException ex) {
+			// a broken corpus should not end the exploration
+			System.err.println("## Warning: cannot write solver corpus, stopped recording: " + ex);
+			close();
+		}
+	}
+
+	/**
+	 * Reads the entries of a corpus file in the order they were recorded.
+	 */
+	public static class Reader {
+		private final ObjectInputStream in;
+
+		public Reader(File f) throws IOException {
+			in = new ObjectInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(f))));
+		}
+
+		/**
+		 * Returns the next entry, or null at the end of the corpus.
+		 */
+		public Entry next() throws IOException {
+			try {
+				return (Entry) in.readObject();
+			} catch (EOFException e) {
+				return null;
+			} catch (ClassNotFoundException e) {
+				throw new IOException("corpus written by another version: " + e.getMessage());
+			}
+		}
+
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.io.File;
+import java.io.IOException;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.PropertyListenerAdapter;
+import gov.nasa.jpf.search.Search;
+
+/**
+ * Records every path condition sent to the numeric and string solvers into a
+ * {@link SolverCorpus}, to be replayed later with SolverReplay.
+ *
+ * symbolic.corpus.file=f   corpus file (default spf.corpus.gz)
+ */
+public class SolverCorpusListener extends PropertyListenerAdapter {
+
+	private final File file;
+
+	public SolverCorpusListener(Config conf, JPF jpf) {
+		file = new File(conf.getString("symbolic.corpus.file", "spf.corpus.gz"));
+		try {
+			SolverCorpus.open(file);
+		} catch (IOException e) {
+			throw new RuntimeException("## Error: cannot create solver corpus " + file + ": " + e);
+		}
+	}
+
+	@Override
+	public void searchFinished(Search search) {
+		int n = SolverCorpus.size();
+		SolverCorpus.close();
+		System.out.println("recorded " + n + " solver queries in " + file);
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Registry of solver statistics, one entry per backend (symbolic.dp or
+ * string:symbolic.string_dp). Collection is off unless {@link #enabled} is set,
+ * which the SolverMetricsListener does.
+ *
+ * For every query we record the latency (as a histogram with power of two
+ * buckets, in microseconds), the time spent translating the path condition
+ * into the backend's representation versus solving it, the length of the path
+ * condition, the number of variables, and the outcome.
+ */
+public class SolverMetrics {
+
+	public enum Outcome { SAT, UNSAT, UNKNOWN, TIMEOUT }
+
+	public static boolean enabled = false;
+
+	// number of latency buckets: [0,1us), [1,2us), [2,4us), ... , [2^30us, inf)
+	public static final int BUCKETS = 32;
+
+	private static final Map<String, Backend> backends = new TreeMap<String, Backend>();
+
+	public static class Backend {
+		public final String name;
+		public long queries;
+		public final long[] outcomes = new long[Outcome.values().length];
+		public long cacheHits;
+		public long translateNanos;
+		public long solveNanos;
+		public long maxNanos;
+		public long pcLengthSum;
+		public int pcLengthMax;
+		public long varCountSum;
+		public int varCountMax;
+		public final long[] histogram = new long[BUCKETS];
+
+		Backend(String name) {
+			this.name = name;
+		}
+
+		public long count(Outcome o) {
+			return outcomes[o.ordinal()];
+		}
+
+		/**
+		 * Returns an upper bound (in microseconds) of the latency below which
+		 * the given fraction of the queries fall.
+		 */
+		public long percentileMicros(double fraction) {
+			long target = (long) Math.ceil(queries * fraction);
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += histogram[i];
+				if (seen >= target && seen > 0)
+					return 1L << i;
+			}
+			return 1L << (BUCKETS - 1);
+		}
+	}
+
+	public static synchronized Backend get(String name) {
+		Backend b = backends.get(name);
+		if (b == null) {
+			b = new Backend(name);
+			backends.put(name, b);
+		}
+		return b;
+	}
+
+	public static synchronized void record(String backend, int pcLength, int varCount, long translateNanos,
+			long solveNanos, Outcome outcome) {
+		Backend b = get(backend);
+		long total = translateNanos + solveNanos;
+		b.queries++;
+		b.outcomes[outcome.ordinal()]++;
+		b.translateNanos += translateNanos;
+		b.solveNanos += solveNanos;
+		b.maxNanos = Math.max(b.maxNanos, total);
+		b.pcLengthSum += pcLength;
+		b.pcLengthMax = Math.max(b.pcLengthMax, pcLength);
+		b.varCountSum += varCount;
+		b.varCountMax = Math.max(b.varCountMax, varCount);
+		b.histogram[bucket(total / 1000)]++;
+	}
+
+	public static synchronized void cacheHit(String backend) {
+		get(backend).cacheHits++;
+	}
+
+	static int bucket(long micros) {
+		int i = 0;
+		while (micros > 0 && i < BUCKETS - 1) {
+			micros >>= 1;
+			i++;
+		}
+		return i;
+	}
+
+	public static synchronized void reset() {
+		backends.clear();
+	}
+
+	public static synchronized void printReport(PrintWriter pw) {
+		if (backends.isEmpty()) {
+			pw.println("no solver queries recorded");
+			return;
+		}
+		for (Backend b : backends.values()) {
+			pw.println("backend: " + b.name);
+			pw.println("  queries:        " + b.queries + " (sat " + b.count(Outcome.SAT) + ", unsat "
+					+ b.count(Outcome.UNSAT) + ", unknown " + b.count(Outcome.UNKNOWN) + ", timeout "
+					+ b.count(Outcome.TIMEOUT) + ")");
+			pw.println("  cache hits:     " + b.cacheHits);
+			pw.println("  translate time: " + (b.translateNanos / 1000000) + " ms");
+			pw.println("  solve time:     " + (b.solveNanos / 1000000) + " ms");
+			if (b.queries > 0) {
+				pw.println("  latency (us):   p50 < " + b.percentileMicros(0.5) + ", p90 < " + b.percentileMicros(0.9)
+						+ ", p99 < " + b.percentileMicros(0.99) + ", max " + (b.maxNanos / 1000));
+				pw.println("  pc length:      avg " + (b.pcLengthSum / b.queries) + ", max " + b.pcLengthMax);
+				pw.println("  variables:      avg " + (b.varCountSum / b.queries) + ", max " + b.varCountMax);
+			}
+		}
+	}
+
+	public static synchronized void writeCsv(PrintWriter pw) {
+		pw.print("backend,queries,sat,unsat,unknown,timeout,cache_hits,translate_ns,solve_ns,max_ns,"
+				+ "pc_length_sum,pc_length_max,var_count_sum,var_count_max");
+		for (int i = 0; i < BUCKETS; i++) {
+			pw.print(",lt_" + (1L << i) + "us");
+		}
+		pw.println();
+		for (Backend b : backends.values()) {
+			pw.print(b.name + "," + b.queries);
+			for (Outcome o : Outcome.values()) {
+				pw.print("," + b.count(o));
+			}
+			pw.print("," + b.cacheHits + "," + b.translateNanos + "," + b.solveNanos + "," + b.maxNanos + ","
+					+ b.pcLengthSum + "," + b.pcLengthMax + "," + b.varCountSum + "," + b.varCountMax);
+			for (int i = 0; i < BUCKETS; i++) {
+				pw.print("," + b.histogram[i]);
+			}
+			pw.println();
+		}
+	}
+
+	public static synchronized void writeJson(PrintWriter pw) {
+		pw.println("{");
+		int n = 0;
+		for (Backend b : backends.values()) {
+			pw.println("  \"" + b.name + "\": {");
+			pw.println("    \"queries\": " + b.queries + ",");
+			for (Outcome o : Outcome.values()) {
+				pw.println("    \"" + o.name().toLowerCase() + "\": " + b.count(o) + ",");
+			}
+			pw.println("    \"cache_hits\": " + b.cacheHits + ",");
+			pw.println("    \"translate_ns\": " + b.translateNanos + ",");
+			pw.println("    \"solve_ns\": " + b.solveNanos + ",");
+			pw.println("    \"max_ns\": " + b.maxNanos + ",");
+			pw.println("    \"pc_length_sum\": " + b.pcLengthSum + ",");
+			pw.println("    \"pc_length_max\": " + b.pcLengthMax + ",");
+			pw.println("    \"var_count_sum\": " + b.varCountSum + ",");
+			pw.println("    \"var_count_max\": " + b.varCountMax + ",");
+			pw.print("    \"histogram_us\": [");
+			for (int i = 0; i < BUCKETS; i++) {
+				pw.print((i > 0 ? ", " : "") + b.histogram[i]);
+			}
+			pw.println("]");
+			pw.println("  }" + (++n < backends.size() ? "," : ""));
+		}
+		pw.println("}");
+	}
+}
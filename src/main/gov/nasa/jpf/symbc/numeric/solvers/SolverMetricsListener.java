@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.PropertyListenerAdapter;
+import gov.nasa.jpf.report.ConsolePublisher;
+import gov.nasa.jpf.report.Publisher;
+import gov.nasa.jpf.report.PublisherExtension;
+
+/**
+ * Collects {@link SolverMetrics} during the run and reports them at the end,
+ * together with the lifetime of the Z3 contexts (see {@link Z3Contexts}).
+ *
+ * symbolic.metrics.csv=file    also write the metrics as CSV
+ * symbolic.metrics.json=file   also write the metrics as JSON
+ */
+public class SolverMetricsListener extends PropertyListenerAdapter implements PublisherExtension {
+
+	private final String csvFile;
+	private final String jsonFile;
+
+	public SolverMetricsListener(Config conf, JPF jpf) {
+		csvFile = conf.getString("symbolic.metrics.csv");
+		jsonFile = conf.getString("symbolic.metrics.json");
+		SolverMetrics.reset();
+		SolverMetrics.enabled = true;
+		jpf.addPublisherExtension(ConsolePublisher.class, this);
+	}
+
+	@Override
+	public void publishFinished(Publisher publisher) {
+		PrintWriter pw = publisher.getOut();
+		publisher.publishTopicStart("Solver Metrics");
+		SolverMetrics.printReport(pw);
+		if (Z3Contexts.used()) {
+			publisher.publishTopicStart("Z3 Contexts");
+			Z3Contexts.printReport(pw);
+		}
+
+		try {
+			if (csvFile != null) {
+				PrintWriter out = new PrintWriter(new FileWriter(csvFile));
+				try {
+					SolverMetrics.writeCsv(out);
+				} finally {
+					out.close();
+				}
+			}
+			if (jsonFile != null) {
+				PrintWriter out = new PrintWriter(new FileWriter(jsonFile));
+				try {
+					SolverMetrics.writeJson(out);
+				} finally {
+					out.close();
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("## Warning: cannot write solver metrics: " + e);
+		} finally {
+			// static, so the next run in this VM does not pay for timing the
+			// queries unless it has this listener too
+			SolverMetrics.enabled = false;
+			SolverMetrics.reset();
+		}
+	}
+}
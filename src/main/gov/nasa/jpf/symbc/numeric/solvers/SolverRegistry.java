@@ -0,0 +1,332 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.lang.reflect.Constructor;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicConstraintsGeneral;
+import gov.nasa.jpf.symbc.numeric.solvers.ProblemGeneral.Capability;
+import gov.nasa.jpf.symbc.string.StringPathCondition;
+import gov.nasa.jpf.symbc.string.SymbolicStringConstraintsGeneral;
+import gov.nasa.jpf.symbc.string.graph.StringGraph;
+
+/**
+ * The numeric (symbolic.dp) and string (symbolic.string_dp) decision
+ * procedures, by name, with what they can handle. The name in the
+ * configuration is looked up once and then again only when it changes, not
+ * for every query.
+ *
+ * Other decision procedures can be added by configuration:
+ *
+ * symbolic.solvers=name,...                    numeric decision procedures
+ * symbolic.solvers.name.class=c                a ProblemGeneral with a public
+ *                                              no-argument constructor
+ * symbolic.solvers.name.capabilities=a,...     e.g. NON_LINEAR,ARRAYS
+ *
+ * symbolic.string_solvers=name,...             string decision procedures
+ * symbolic.string_solvers.name.class=c         a StringProcedure with a public
+ *                                              no-argument constructor
+ * symbolic.string_solvers.name.capabilities=a,...
+ */
+public class SolverRegistry {
+
+	public interface Factory {
+		// pc and scg are only needed by the backends that solve with others
+		ProblemGeneral create(PathCondition pc, SymbolicConstraintsGeneral scg);
+	}
+
+	/**
+	 * A string decision procedure that solves the string graph built from the
+	 * string path condition, together with its numeric path condition (which
+	 * a procedure that falls back to another one may replace).
+	 */
+	public interface StringProcedure {
+		boolean isSat(StringGraph graph, StringPathCondition pc);
+	}
+
+	/**
+	 * A string decision procedure that takes the string path condition as it
+	 * is, without the string graph.
+	 */
+	public interface StringPathProcedure {
+		boolean isSat(StringPathCondition pc);
+	}
+
+	public static class Backend {
+		public final String name;
+		public final Set<Capability> capabilities;
+		final Factory factory; // null: no solving
+
+		Backend(String name, Factory factory, Set<Capability> capabilities) {
+			this.name = name;
+			this.factory = factory;
+			this.capabilities = capabilities;
+		}
+
+		public boolean has(Capability c) {
+			return capabilities.contains(c);
+		}
+
+		public boolean solves() {
+			return factory != null;
+		}
+
+		public ProblemGeneral create(PathCondition pc, SymbolicConstraintsGeneral scg) {
+			return factory.create(pc, scg);
+		}
+	}
+
+	public static class StringBackend {
+		public final String name;
+		public final Set<Capability> capabilities;
+		// the solver as known to SymbolicStringConstraintsGeneral
+		public final String solver;
+		// exactly one of them is set
+		public final StringProcedure procedure;
+		public final StringPathProcedure pathProcedure;
+
+		StringBackend(String name, String solver, StringProcedure procedure, StringPathProcedure pathProcedure,
+				Set<Capability> capabilities) {
+			this.name = name;
+			this.solver = solver;
+			this.procedure = procedure;
+			this.pathProcedure = pathProcedure;
+			this.capabilities = capabilities;
+		}
+
+		public boolean has(Capability c) {
+			return capabilities.contains(c);
+		}
+	}
+
+	// numeric names are not case sensitive, they are kept in lower case
+	private static final Map<String, Backend> numeric = new LinkedHashMap<String, Backend>();
+	private static final Map<String, StringBackend> strings = new LinkedHashMap<String, StringBackend>();
+
+	// the last lookups, by the identity of the configured name
+	private static String numericName;
+	private static Backend numericBackend;
+	private static String stringName;
+	private static StringBackend stringBackend;
+
+	static {
+		register("choco", new Factory() {
+			public ProblemGeneral create(PathCondition pc, SymbolicConstraintsGeneral scg) {
+				return new ProblemChoco();
+			}
+		});
+		register("coral", new Factory() {
+			public ProblemGeneral create(PathCondition pc, SymbolicConstraintsGeneral scg) {
+				return new ProblemCoral();
+			}
+		}, Capability.NON_LINEAR);
+		register("iasolver", new Factory() {
+			public ProblemGeneral create(PathCondition pc, SymbolicConstraintsGeneral scg) {
+				return new ProblemIAsolver();
+			}
+		});
+		register("cvc3", new Factory() {
+			public ProblemGeneral create(PathCondition pc, SymbolicConstraintsGeneral scg) {
+				return new ProblemCVC3();
+			}
+		}, Capability.ITE);
+		register("cvc3bitvec", new Factory() {
+			public ProblemGeneral create(PathCondition pc, SymbolicConstraintsGeneral scg) {
+				return new ProblemCVC3BitVector();
+			}
+		}, Capability.BIT_VECTORS);
+		register("yices", new Factory() {
+			public ProblemGeneral create(PathCondition pc, SymbolicConstraintsGeneral scg) {
+				return new ProblemYices();
+			}
+		}, Capability.ITE);
+		register("z3", new Factory() {
+			public ProblemGeneral create(PathCondition pc, SymbolicConstraintsGeneral scg) {
+				return new ProblemZ3();
+			}
+		}, Capability.NON_LINEAR, Capability.ARRAYS, Capability.ITE);
+		register("z3inc", new Factory() {
+			public ProblemGeneral create(PathCondition pc, SymbolicConstraintsGeneral scg) {
+				return new ProblemZ3Incremental();
+			}
+		}, Capability.NON_LINEAR, Capability.ARRAYS, Capability.ITE, Capability.INCREMENTAL);
+		register("z3bitvectorinc", new Factory() {
+			public ProblemGeneral create(PathCondition pc, SymbolicConstraintsGeneral scg) {
+				return new ProblemZ3BitVectorIncremental();
+			}
+		}, Capability.NON_LINEAR, Capability.ARRAYS, Capability.BIT_VECTORS, Capability.INCREMENTAL);
+		register("debug", new Factory() {
+			public ProblemGeneral create(PathCondition pc, SymbolicConstraintsGeneral scg) {
+				return new DebugSolvers(pc);
+			}
+		}, Capability.EVERY_QUERY);
+		register("compare", new Factory() {
+			public ProblemGeneral create(PathCondition pc, SymbolicConstraintsGeneral scg) {
+				return new ProblemCompare(pc, scg);
+			}
+		}, Capability.EVERY_QUERY);
+		register("z3bitvector", new Factory() {
+			public ProblemGeneral create(PathCondition pc, SymbolicConstraintsGeneral scg) {
+				return new ProblemZ3BitVector();
+			}
+		}, Capability.NON_LINEAR, Capability.ARRAYS, Capability.BIT_VECTORS);
+		register("z3optimize", new Factory() {
+			public ProblemGeneral create(PathCondition pc, SymbolicConstraintsGeneral scg) {
+				return new ProblemZ3Optimize();
+			}
+		}, Capability.NON_LINEAR, Capability.ARRAYS, Capability.EVERY_QUERY);
+		// symbolic execution explores an over-approximation of the program
+		// paths, equivalent to a CFG analysis
+		register("no_solver", null);
+
+		registerString("automata", SymbolicStringConstraintsGeneral.AUTOMATA,
+				SymbolicStringConstraintsGeneral.AUTOMATA_PROCEDURE);
+		registerString("z3str2", SymbolicStringConstraintsGeneral.Z3STR2,
+				SymbolicStringConstraintsGeneral.Z3STR2_PROCEDURE);
+		registerString("ABC", SymbolicStringConstraintsGeneral.ABC, SymbolicStringConstraintsGeneral.ABC_PROCEDURE);
+		registerString("sat", SymbolicStringConstraintsGeneral.SAT, SymbolicStringConstraintsGeneral.SAT_PROCEDURE);
+		registerString("cvc", SymbolicStringConstraintsGeneral.CVC, SymbolicStringConstraintsGeneral.CVC_PROCEDURE,
+				Capability.BIT_VECTORS);
+		registerString("cvc_inc", SymbolicStringConstraintsGeneral.CVC_INC,
+				SymbolicStringConstraintsGeneral.CVC_INC_PROCEDURE, Capability.BIT_VECTORS, Capability.INCREMENTAL);
+		registerString("z3", SymbolicStringConstraintsGeneral.Z3, SymbolicStringConstraintsGeneral.Z3_PROCEDURE);
+		registerString("z3_inc", SymbolicStringConstraintsGeneral.Z3_INC,
+				SymbolicStringConstraintsGeneral.Z3_INC_PROCEDURE, Capability.INCREMENTAL);
+		// z3, falling back to automata
+		registerString("wrapper", SymbolicStringConstraintsGeneral.WRAPPER,
+				SymbolicStringConstraintsGeneral.WRAPPER_PROCEDURE);
+	}
+
+	private static Set<Capability> capabilities(Capability... capabilities) {
+		Set<Capability> set = EnumSet.noneOf(Capability.class);
+		Collections.addAll(set, capabilities);
+		return Collections.unmodifiableSet(set);
+	}
+
+	public static synchronized void register(String name, Factory factory, Capability... capabilities) {
+		numeric.put(name.toLowerCase(), new Backend(name.toLowerCase(), factory, capabilities(capabilities)));
+		numericName = null;
+	}
+
+	public static synchronized void registerString(String name, String solver, StringProcedure procedure,
+			Capability... capabilities) {
+		strings.put(name, new StringBackend(name, solver, procedure, null, capabilities(capabilities)));
+		stringName = null;
+	}
+
+	public static synchronized void registerString(String name, String solver, StringPathProcedure procedure,
+			Capability... capabilities) {
+		strings.put(name, new StringBackend(name, solver, null, procedure, capabilities(capabilities)));
+		stringName = null;
+	}
+
+	/**
+	 * Registers the decision procedures named in the configuration.
+	 */
+	public static void configure(Config conf) {
+		for (String name : conf.getStringArray("symbolic.solvers", new String[0])) {
+			final Constructor<?> c = constructor(conf, "symbolic.solvers." + name, ProblemGeneral.class);
+			register(name, new Factory() {
+				public ProblemGeneral create(PathCondition pc, SymbolicConstraintsGeneral scg) {
+					return (ProblemGeneral) instantiate(c);
+				}
+			}, configuredCapabilities(conf, "symbolic.solvers." + name));
+		}
+		for (String name : conf.getStringArray("symbolic.string_solvers", new String[0])) {
+			Constructor<?> c = constructor(conf, "symbolic.string_solvers." + name, StringProcedure.class);
+			registerString(name, name, (StringProcedure) instantiate(c),
+					configuredCapabilities(conf, "symbolic.string_solvers." + name));
+		}
+	}
+
+	private static Constructor<?> constructor(Config conf, String key, Class<?> type) {
+		String className = conf.getString(key + ".class");
+		if (className == null)
+			throw new RuntimeException("## Error: no " + key + ".class given");
+		try {
+			Class<?> cls = Class.forName(className);
+			if (!type.isAssignableFrom(cls))
+				throw new RuntimeException("## Error: " + key + ".class=" + className + " is not a " + type.getName());
+			return cls.getConstructor();
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeException("## Error: cannot load " + key + ".class=" + className);
+		} catch (NoSuchMethodException e) {
+			throw new RuntimeException("## Error: " + className + " has no public constructor without arguments");
+		}
+	}
+
+	private static Object instantiate(Constructor<?> c) {
+		try {
+			return c.newInstance();
+		} catch (Exception e) {
+			throw new RuntimeException("## Error: cannot create a " + c.getDeclaringClass().getName() + ": " + e);
+		}
+	}
+
+	private static Capability[] configuredCapabilities(Config conf, String key) {
+		String[] names = conf.getStringArray(key + ".capabilities", new String[0]);
+		Capability[] capabilities = new Capability[names.length];
+		for (int i = 0; i < names.length; i++) {
+			try {
+				capabilities[i] = Capability.valueOf(names[i].toUpperCase());
+			} catch (IllegalArgumentException e) {
+				throw new RuntimeException("## Error: unknown capability " + names[i] + " in " + key + ".capabilities");
+			}
+		}
+		return capabilities;
+	}
+
+	/**
+	 * Returns the numeric decision procedure of symbolic.dp (choco if not set).
+	 */
+	public static synchronized Backend numeric() {
+		String[] dp = SymbolicInstructionFactory.dp;
+		String name = (dp == null) ? "choco" : dp[0];
+		if (name != numericName) {
+			Backend b = numeric.get(name.toLowerCase());
+			if (b == null)
+				throw new RuntimeException("## Error: unknown decision procedure symbolic.dp=" + name + "\n(use one of "
+						+ numeric.keySet() + ")");
+			numericBackend = b;
+			numericName = name;
+		}
+		return numericBackend;
+	}
+
+	/**
+	 * Returns the string decision procedure of symbolic.string_dp, or null if
+	 * there is none of that name (then string path conditions are not solved).
+	 */
+	public static synchronized StringBackend string() {
+		String name = SymbolicInstructionFactory.string_dp[0];
+		if (name != stringName) {
+			stringBackend = strings.get(name);
+			stringName = name;
+		}
+		return stringBackend;
+	}
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
+import gov.nasa.jpf.symbc.numeric.SymbolicConstraintsGeneral;
+import gov.nasa.jpf.symbc.string.StringPathCondition;
+import gov.nasa.jpf.symbc.string.SymbolicStringConstraintsGeneral;
+
+/**
+ * Solves the path conditions of a {@link SolverCorpus} again, and reports the
+ * throughput and the queries where the answer differs from the recorded one.
+ * Queries that were not decided (timeouts, unknown), when recorded or when
+ * replayed, are counted separately and are not disagreements.
+ *
+ * usage: SolverReplay [-threads n] corpus [+key=value ...]
+ *
+ * e.g. SolverReplay spf.corpus.gz +symbolic.dp=z3 +symbolic.string_dp=automata
+ *
+ * Without symbolic.dp (symbolic.string_dp) every query is solved with the
+ * decision procedure it was recorded with. Since the parser and the solver
+ * wrappers keep their state in statics, more than one thread means more than
+ * one JVM: each one replays every n-th query of the corpus.
+ */
+public class SolverReplay {
+
+	static final String MARKER = "##REPLAY:";
+	static final String DISAGREE = "##DISAGREE:";
+
+	// only the first few disagreements are listed
+	static final int MAX_LISTED = 20;
+
+	int queries;
+	int sat;
+	int unknown;
+	int disagreements;
+	long nanos;
+	long recordedNanos;
+	List<String> listed = new ArrayList<String>();
+
+	public static void main(String[] args) {
+		int threads = 1;
+		int shard = 0;
+		boolean isShard = false;
+		String corpus = null;
+		List<String> options = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-threads") && i + 1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-shard") && i + 1 < args.length) {
+				String[] s = args[++i].split("/");
+				shard = Integer.parseInt(s[0]);
+				threads = Integer.parseInt(s[1]);
+				isShard = true;
+			} else if (args[i].startsWith("+")) {
+				options.add(args[i]);
+			} else if (corpus == null) {
+				corpus = args[i];
+			}
+		}
+		if (corpus == null || threads < 1) {
+			System.err.println("usage: SolverReplay [-threads n] corpus [+key=value ...]");
+			System.exit(1);
+		}
+
+		try {
+			if (isShard) {
+				SolverReplay r = new SolverReplay();
+				r.replay(new File(corpus), options, shard, threads);
+				r.printShard();
+			} else if (threads == 1) {
+				long start = System.currentTimeMillis();
+				SolverReplay r = new SolverReplay();
+				r.replay(new File(corpus), options, 0, 1);
+				r.report(System.currentTimeMillis() - start, 1);
+			} else {
+				replayInProcesses(corpus, options, threads);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(-1);
+		}
+	}
+
+	void replay(File file, List<String> options, int shard, int shards) throws IOException {
+		Config conf = new Config(options.toArray(new String[options.size()]));
+		new SymbolicInstructionFactory(conf);
+		boolean recordedDp = conf.getString("symbolic.dp") == null;
+		boolean recordedStringDp = conf.getString("symbolic.string_dp") == null;
+
+		SymbolicConstraintsGeneral solver = new SymbolicConstraintsGeneral();
+		SymbolicStringConstraintsGeneral stringSolver = new SymbolicStringConstraintsGeneral();
+
+		SolverCorpus.Reader in = new SolverCorpus.Reader(file);
+		try {
+			SolverCorpus.Entry e;
+			for (int index = 0; (e = in.next()) != null; index++) {
+				if (index % shards != shard)
+					continue;
+
+				Boolean result;
+				long start;
+				if (e.kind == SolverCorpus.NUMERIC) {
+					if (recordedDp)
+						SymbolicInstructionFactory.dp = new String[] { e.dp };
+					start = System.nanoTime();
+					result = solver.isSatisfiable(e.toPathCondition()) ? Boolean.TRUE : solver.lastResult();
+					solver.cleanup();
+				} else {
+					if (recordedStringDp)
+						SymbolicInstructionFactory.string_dp = new String[] { e.dp };
+					StringPathCondition spc = e.toStringPathCondition();
+					start = System.nanoTime();
+					result = stringSolver.isSatisfiable(spc);
+				}
+				long time = System.nanoTime() - start;
+
+				queries++;
+				nanos += time;
+				recordedNanos += e.nanos;
+				if (result == null || e.result == null)
+					unknown++;
+				else if (result)
+					sat++;
+				if (result != null && e.result != null && !result.equals(e.result)) {
+					disagreements++;
+					if (listed.size() < MAX_LISTED)
+						listed.add(index + " " + (char) e.kind + " " + e.dp + ": recorded " + e.result + ", replayed "
+								+ result);
+				}
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	void printShard() {
+		for (String s : listed) {
+			System.out.println(DISAGREE + " " + s);
+		}
+		System.out.println(MARKER + " " + queries + " " + sat + " " + disagreements + " " + nanos + " " + recordedNanos
+				+ " " + unknown);
+	}
+
+	void parseShard(String line) {
+		if (line.startsWith(DISAGREE)) {
+			if (listed.size() < MAX_LISTED)
+				listed.add(line.substring(DISAGREE.length()).trim());
+		} else if (line.startsWith(MARKER)) {
+			String[] f = line.substring(MARKER.length()).trim().split(" ");
+			queries += Integer.parseInt(f[0]);
+			sat += Integer.parseInt(f[1]);
+			disagreements += Integer.parseInt(f[2]);
+			nanos += Long.parseLong(f[3]);
+			recordedNanos += Long.parseLong(f[4]);
+			unknown += Integer.parseInt(f[5]);
+		}
+	}
+
+	static void replayInProcesses(String corpus, List<String> options, int n)
+			throws IOException, InterruptedException {
+		long start = System.currentTimeMillis();
+		List<Process> procs = new ArrayList<Process>();
+		for (int i = 0; i < n; i++) {
+			List<String> cmd = new ArrayList<String>();
+			cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+			cmd.add("-cp");
+			cmd.add(System.getProperty("java.class.path"));
+			String libPath = System.getProperty("java.library.path");
+			if (libPath != null)
+				cmd.add("-Djava.library.path=" + libPath);
+			cmd.add(SolverReplay.class.getName());
+			cmd.add("-shard");
+			cmd.add(i + "/" + n);
+			cmd.add(corpus);
+			cmd.addAll(options);
+			ProcessBuilder pb = new ProcessBuilder(cmd);
+			pb.redirectErrorStream(true);
+			procs.add(pb.start());
+		}
+
+		final SolverReplay total = new SolverReplay();
+		List<Thread> readers = new ArrayList<Thread>();
+		for (final Process p : procs) {
+			Thread t = new Thread(new Runnable() {
+				public void run() {
+					try {
+						BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream()));
+						String line;
+						while ((line = r.readLine()) != null) {
+							synchronized (total) {
+								total.parseShard(line);
+							}
+						}
+						p.waitFor();
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			});
+			t.start();
+			readers.add(t);
+		}
+		for (Thread t : readers) {
+			t.join();
+		}
+		total.report(System.currentTimeMillis() - start, n);
+	}
+
+	void report(long wallMillis, int n) {
+		System.out.println("====================================================== solver replay");
+		System.out.println("processes:        " + n);
+		System.out.println("queries:          " + queries + " (sat " + sat + ", unsat " + (queries - sat - unknown)
+				+ ", undecided " + unknown + ")");
+		System.out.println("wall time:        " + wallMillis + " ms");
+		if (wallMillis > 0)
+			System.out.println("throughput:       " + (queries * 1000L / wallMillis) + " queries/s");
+		System.out.println("solver time:      " + (nanos / 1000000) + " ms (recorded " + (recordedNanos / 1000000)
+				+ " ms)");
+		System.out.println("disagreements:    " + disagreements);
+		for (String s : listed) {
+			System.out.println("  query " + s);
+		}
+		if (disagreements > listed.size())
+			System.out.println("  ...");
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+
+import gov.nasa.jpf.Config;
+
+/**
+ * Lifetime of the Z3 contexts. Every Z3 backend keeps one context for all its
+ * queries, and the context keeps every term it ever made, so in long runs the
+ * native memory only grows. With a limit set, the backends replace their
+ * context by a fresh one between two queries; the incremental backends carry
+ * their scope stack over to the new context.
+ *
+ * symbolic.z3.recycle_queries=n   replace a context after n queries (0: never)
+ * symbolic.z3.recycle_bytes=n     replace a context once the resident memory of
+ *                                 the process exceeds n bytes (0: never; the
+ *                                 memory is read from /proc, so only on Linux)
+ *
+ * The resident memory is not only Z3's. If replacing a context did not bring
+ * it down, the memory is checked (and the context replaced) after twice as
+ * many queries as before, until a replacement helps again.
+ *
+ * The queries, replacements and memory are reported by the
+ * SolverMetricsListener.
+ */
+public class Z3Contexts {
+
+	static int recycleQueries = 0;
+	static long recycleBytes = 0;
+
+	// queries a context answers at least before it is replaced for memory, as
+	// the memory may well be held by something else than Z3
+	static final int MIN_QUERIES = 100;
+
+	private static final Map<String, Backend> backends = new TreeMap<String, Backend>();
+	private static long peakBytes = 0;
+	// queries before the memory is checked again, and the resident memory when
+	// a context was last replaced for it (0: not yet)
+	private static int memoryQueries = MIN_QUERIES;
+	private static long recycledAtBytes = 0;
+
+	static class Backend {
+		long contexts;
+		long queries;
+		long recycles;
+	}
+
+	public static synchronized void configure(Config conf) {
+		recycleQueries = conf.getInt("symbolic.z3.recycle_queries", 0);
+		recycleBytes = conf.getLong("symbolic.z3.recycle_bytes", 0);
+		memoryQueries = MIN_QUERIES;
+		recycledAtBytes = 0;
+		// the report is per run
+		backends.clear();
+		peakBytes = 0;
+	}
+
+	private static Backend get(String name) {
+		Backend b = backends.get(name);
+		if (b == null) {
+			b = new Backend();
+			backends.put(name, b);
+		}
+		return b;
+	}
+
+	public static synchronized void created(String backend) {
+		get(backend).contexts++;
+	}
+
+	public static synchronized void queried(String backend) {
+		get(backend).queries++;
+	}
+
+	/**
+	 * Returns whether a context that answered the given number of queries is
+	 * to be replaced before the next one.
+	 */
+	public static synchronized boolean due(int queries) {
+		if (recycleQueries > 0 && queries >= recycleQueries)
+			return true;
+		if (recycleBytes > 0 && queries >= memoryQueries) {
+			long bytes = residentBytes();
+			peakBytes = Math.max(peakBytes, bytes);
+			if (bytes <= recycleBytes) {
+				memoryQueries = MIN_QUERIES;
+				recycledAtBytes = 0;
+				return false;
+			}
+			if (recycledAtBytes > 0 && bytes >= recycledAtBytes) {
+				// the last replacement did not help, the memory is held elsewhere
+				memoryQueries = (memoryQueries > Integer.MAX_VALUE / 2) ? Integer.MAX_VALUE : memoryQueries * 2;
+			} else {
+				memoryQueries = MIN_QUERIES;
+			}
+			recycledAtBytes = bytes;
+			return true;
+		}
+		return false;
+	}
+
+	public static synchronized void recycled(String backend) {
+		get(backend).recycles++;
+	}
+
+	public static synchronized boolean used() {
+		return !backends.isEmpty();
+	}
+
+	/**
+	 * Returns the resident memory of this process in bytes, or 0 where it
+	 * cannot be read.
+	 */
+	static long residentBytes() {
+		try {
+			BufferedReader r = new BufferedReader(new FileReader("/proc/self/status"));
+			try {
+				String line;
+				while ((line = r.readLine()) != null) {
+					if (line.startsWith("VmRSS:")) {
+						String[] f = line.substring(6).trim().split("\\s+");
+						return Long.parseLong(f[0]) * 1024; // in kB
+					}
+				}
+			} finally {
+				r.close();
+			}
+		} catch (IOException e) {
+			// not on Linux
+		} catch (NumberFormatException e) {
+			// unexpected format
+		}
+		return 0;
+	}
+
+	public static synchronized void printReport(PrintWriter pw) {
+		for (Map.Entry<String, Backend> e : backends.entrySet()) {
+			Backend b = e.getValue();
+			pw.println("backend: " + e.getKey());
+			pw.println("  contexts:       " + b.contexts + " (recycled " + b.recycles + ")");
+			pw.println("  queries:        " + b.queries);
+		}
+		long bytes = residentBytes();
+		peakBytes = Math.max(peakBytes, bytes);
+		if (bytes > 0)
+			pw.println("resident memory:  " + (bytes >> 20) + " MB (peak sampled " + (peakBytes >> 20) + " MB)");
+		if (recycleBytes > 0 && memoryQueries > MIN_QUERIES)
+			pw.println("memory checked:   every " + memoryQueries + " queries (replacements did not lower it)");
+	}
+}
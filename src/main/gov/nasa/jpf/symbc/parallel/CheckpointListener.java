@@ -0,0 +1,377 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.parallel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.PropertyListenerAdapter;
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
+import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.QueryCache;
+import gov.nasa.jpf.vm.ChoiceGenerator;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * Periodically writes the frontier of the (depth first) exploration to a file,
+ * so that a later run can resume where this one stopped.
+ *
+ * symbolic.checkpoint.file=f                checkpoint file
+ * symbolic.checkpoint.interval_msec=60000   time between two checkpoints
+ * symbolic.checkpoint.resume=true           resume from f if it exists
+ *
+ * With a depth first search everything to the left of the current path has
+ * been explored, so the frontier is made of the unexplored alternatives of the
+ * choice generators on the current path, plus the current path itself. Each
+ * entry is stored as a choice vector (see {@link PathPrefix}) together with the
+ * path condition at that point. The file also holds the results of the
+ * satisfiability checks done so far, so that replaying the prefixes on resume
+ * does not hit the solver again.
+ *
+ * When symbolic.max_pc_msec runs out, a last checkpoint is written and the
+ * search is terminated, instead of letting the remaining paths be pruned as
+ * unsatisfiable.
+ */
+public class CheckpointListener extends PropertyListenerAdapter {
+
+	static final int MAGIC = 0x53504643; // "SPFC"
+	static final int VERSION = 1;
+
+	private final File file;
+	private final long interval;
+	private final boolean stopOnError;
+	private long lastCheckpoint;
+
+	// true if the search ended before exploring everything
+	private boolean stopped = false;
+
+	// prefixes left by the previous run; null if not resuming
+	private Trie resumed;
+
+	// results of the satisfiability checks, installed as PathCondition.queryCache
+	private final Answers answers = new Answers();
+
+	public CheckpointListener(Config conf, JPF jpf) {
+		file = new File(conf.getString("symbolic.checkpoint.file", "spf.checkpoint"));
+		interval = conf.getLong("symbolic.checkpoint.interval_msec", 60000);
+		stopOnError = !conf.getBoolean("search.multiple_errors", false);
+		PathCondition.queryCache = answers;
+
+		if (conf.getBoolean("symbolic.checkpoint.resume", true) && file.exists()) {
+			try {
+				resumed = new Trie();
+				read(file, resumed, answers.map);
+				System.out.println("resuming from " + file + ": " + resumed.size() + " prefixes, "
+						+ answers.map.size() + " cached queries");
+			} catch (IOException e) {
+				throw new RuntimeException("## Error: cannot read checkpoint " + file + ": " + e);
+			}
+		}
+		lastCheckpoint = System.currentTimeMillis();
+	}
+
+	@Override
+	public void choiceGeneratorAdvanced(VM vm, ChoiceGenerator<?> currentCG) {
+		if (resumed != null) {
+			ChoiceGenerator<?>[] cgs = vm.getChoiceGenerators();
+			if (!resumed.overlaps(PathPrefix.fromChain(cgs, cgs.length))) {
+				vm.getSystemState().setIgnored(true);
+			}
+		}
+	}
+
+	@Override
+	public void stateAdvanced(Search search) {
+		long now = System.currentTimeMillis();
+		if (SymbolicInstructionFactory.maxPcMSec > 0
+				&& now - SymbolicInstructionFactory.startSystemMillis > SymbolicInstructionFactory.maxPcMSec) {
+			checkpoint(search.getVM());
+			stopped = true;
+			search.terminate();
+		} else if (now - lastCheckpoint > interval) {
+			checkpoint(search.getVM());
+		}
+	}
+
+	@Override
+	public void propertyViolated(Search search) {
+		if (stopOnError) {
+			stopped = true;
+		}
+	}
+
+	@Override
+	public void searchConstraintHit(Search search) {
+		stopped = true;
+	}
+
+	@Override
+	public void searchFinished(Search search) {
+		// the answers of this run must not leak into the next one
+		if (PathCondition.queryCache == answers) {
+			PathCondition.queryCache = null;
+		}
+		if (stopped || search.isDone()) {
+			return; // ended early, keep the last checkpoint
+		}
+		// the exploration is complete: nothing left to resume
+		file.delete();
+	}
+
+	void checkpoint(VM vm) {
+		lastCheckpoint = System.currentTimeMillis();
+		ChoiceGenerator<?>[] cgs = vm.getChoiceGenerators();
+
+		List<PathPrefix> prefixes = new ArrayList<PathPrefix>();
+		List<String> pcs = new ArrayList<String>();
+
+		for (int i = 0; i < cgs.length; i++) {
+			ChoiceGenerator<?> cg = cgs[i];
+			if (cg.hasMoreChoices()) {
+				PathPrefix base = PathPrefix.fromChain(cgs, i);
+				String pc = pcString(cg.getPreviousChoiceGeneratorOfType(PCChoiceGenerator.class));
+				for (int c = cg.getProcessedNumberOfChoices(); c < cg.getTotalNumberOfChoices(); c++) {
+					add(base.extend(c), pc, prefixes, pcs);
+				}
+			}
+		}
+		if (cgs.length > 0) {
+			ChoiceGenerator<?> last = cgs[cgs.length - 1];
+			PCChoiceGenerator pcg = (last instanceof PCChoiceGenerator) ? (PCChoiceGenerator) last
+					: last.getPreviousChoiceGeneratorOfType(PCChoiceGenerator.class);
+			add(PathPrefix.fromChain(cgs, cgs.length), pcString(pcg), prefixes, pcs);
+		}
+
+		try {
+			write(prefixes, pcs, answers.map);
+		} catch (IOException e) {
+			System.err.println("## Warning: cannot write checkpoint " + file + ": " + e);
+		}
+	}
+
+	/*
+	 * When resuming, only the part of an entry that was left to explore by the
+	 * previous run goes into the new checkpoint.
+	 */
+	private void add(PathPrefix p, String pc, List<PathPrefix> prefixes, List<String> pcs) {
+		if (resumed == null) {
+			prefixes.add(p);
+			pcs.add(pc);
+		} else {
+			for (PathPrefix q : resumed.restrict(p)) {
+				prefixes.add(q);
+				pcs.add(pc);
+			}
+		}
+	}
+
+	private static String pcString(PCChoiceGenerator cg) {
+		if (cg == null)
+			return "";
+		PathCondition pc = cg.peekCurrentPC();
+		return (pc == null) ? "" : pc.toString();
+	}
+
+	void write(List<PathPrefix> prefixes, List<String> pcs, Map<String, Boolean> cache) throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmp))));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(prefixes.size());
+			for (int i = 0; i < prefixes.size(); i++) {
+				PathPrefix p = prefixes.get(i);
+				out.writeInt(p.length());
+				for (int d = 0; d < p.length(); d++)
+					out.writeInt(p.get(d));
+				writeString(out, pcs.get(i));
+			}
+			out.writeInt(cache.size());
+			for (Map.Entry<String, Boolean> e : cache.entrySet()) {
+				writeString(out, e.getKey());
+				out.writeBoolean(e.getValue());
+			}
+		} finally {
+			out.close();
+		}
+		// replace the old checkpoint only once the new one is complete
+		file.delete();
+		if (!tmp.renameTo(file))
+			throw new IOException("cannot rename " + tmp + " to " + file);
+	}
+
+	static void read(File f, Trie prefixes, Map<String, Boolean> cache) throws IOException {
+		DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new GZIPInputStream(new FileInputStream(f))));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException("not a checkpoint file (or written by another version)");
+			int n = in.readInt();
+			for (int i = 0; i < n; i++) {
+				int[] c = new int[in.readInt()];
+				for (int d = 0; d < c.length; d++)
+					c[d] = in.readInt();
+				readString(in); // path condition, kept for inspection only
+				prefixes.add(new PathPrefix(c));
+			}
+			int m = in.readInt();
+			for (int i = 0; i < m; i++) {
+				String key = readString(in);
+				cache.put(key, in.readBoolean());
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	// writeUTF is limited to 64k, which long path conditions exceed
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] b = s.getBytes("UTF-8");
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] b = new byte[in.readInt()];
+		in.readFully(b);
+		return new String(b, "UTF-8");
+	}
+
+	/**
+	 * Results of satisfiability checks, all of which go into the checkpoint.
+	 */
+	static class Answers implements QueryCache {
+		final Map<String, Boolean> map = new HashMap<String, Boolean>();
+
+		@Override
+		public Boolean get(String key) {
+			return map.get(key);
+		}
+
+		@Override
+		public void put(String key, boolean sat) {
+			map.put(key, sat);
+		}
+	}
+
+	/**
+	 * Set of prefixes, stored as a tree of choices.
+	 */
+	static class Trie {
+		final Map<Integer, Trie> children = new HashMap<Integer, Trie>();
+		boolean leaf;
+		int size;
+
+		void add(PathPrefix p) {
+			Trie t = this;
+			for (int d = 0; d < p.length() && !t.leaf; d++) {
+				Trie c = t.children.get(p.get(d));
+				if (c == null) {
+					c = new Trie();
+					t.children.put(p.get(d), c);
+				}
+				t = c;
+			}
+			if (!t.leaf) {
+				size -= t.leaves();
+				t.leaf = true;
+				t.children.clear(); // everything below is included anyway
+				size++;
+			}
+		}
+
+		int size() {
+			return size;
+		}
+
+		private int leaves() {
+			if (leaf)
+				return 1;
+			int n = 0;
+			for (Trie c : children.values()) {
+				n += c.leaves();
+			}
+			return n;
+		}
+
+		/**
+		 * Returns true if p is below one of the prefixes, or one of the
+		 * prefixes is below p, i.e. if there is something left to explore
+		 * along p.
+		 */
+		boolean overlaps(PathPrefix p) {
+			Trie t = this;
+			for (int d = 0; d < p.length(); d++) {
+				if (t.leaf)
+					return true;
+				t = t.children.get(p.get(d));
+				if (t == null)
+					return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Returns the part of the subtree below p that is covered by the
+		 * prefixes.
+		 */
+		List<PathPrefix> restrict(PathPrefix p) {
+			List<PathPrefix> result = new ArrayList<PathPrefix>();
+			Trie t = this;
+			for (int d = 0; d < p.length(); d++) {
+				if (t.leaf) {
+					result.add(p);
+					return result;
+				}
+				t = t.children.get(p.get(d));
+				if (t == null)
+					return result;
+			}
+			t.collect(p, result);
+			return result;
+		}
+
+		private void collect(PathPrefix p, List<PathPrefix> result) {
+			if (leaf) {
+				result.add(p);
+			} else {
+				for (Map.Entry<Integer, Trie> e : children.entrySet()) {
+					e.getValue().collect(p.extend(e.getKey()), result);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.parallel;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coordinator for exploring the symbolic execution tree with several local
+ * worker JVMs.
+ *
+ * A first JPF run explores the tree down to a given number of PC choices and
+ * reports the path prefixes it reached. These prefixes are put in a queue from
+ * which the workers take their next subtree. When the queue runs dry while
+ * workers are still busy, idle workers ask a busy one to split its subtree
+ * (see {@link PathPrefixListener}), and the donated prefixes go back into the
+ * queue.
+ *
+ * The output of every run is kept in the output directory; merged.txt has the
+ * outputs of all runs (in the order they finished) followed by a summary with
+ * the number of paths and property violations over all runs.
+ *
+ * Nothing else is merged: what other listeners produce in a run, e.g. method
+ * summaries, generated tests or coverage, only covers the subtree of that run,
+ * and runs writing to the same file overwrite each other. Use such listeners
+ * in an unpartitioned run.
+ *
+ * A run that exits with an error or ends without reporting its results (see
+ * {@link PathPrefixListener#RESULT}) is not repeated, since it may have given
+ * away part of its subtree already; the summary lists it, and the explorer
+ * exits with 1.
+ *
+ * usage: PartitionedExplorer [-workers n] [-depth k] [-out dir] [-vmargs "args"]
+ *                            app.jpf [+key=value ...]
+ */
+public class PartitionedExplorer {
+
+	static final String LISTENER = "+listener+=" + PathPrefixListener.class.getName();
+
+	int workers = Runtime.getRuntime().availableProcessors();
+	int depth = 4;
+	File outDir = new File("partitions");
+	String[] vmArgs = new String[0];
+	String appConfig;
+	List<String> jpfArgs = new ArrayList<String>();
+
+	final LinkedBlockingDeque<PathPrefix> queue = new LinkedBlockingDeque<PathPrefix>();
+	// prefixes that are queued or being explored
+	final AtomicInteger pending = new AtomicInteger();
+	final AtomicInteger runs = new AtomicInteger();
+	final List<Worker> busy = new ArrayList<Worker>();
+	final List<Worker> finished = new ArrayList<Worker>();
+
+	public static void main(String[] args) {
+		PartitionedExplorer explorer = new PartitionedExplorer();
+		if (!explorer.parseArgs(args)) {
+			System.err.println("usage: PartitionedExplorer [-workers n] [-depth k] [-out dir] [-vmargs \"args\"] app.jpf [+key=value ...]");
+			System.exit(1);
+		}
+		try {
+			if (!explorer.run())
+				System.exit(1);
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(-1);
+		}
+	}
+
+	boolean parseArgs(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			String a = args[i];
+			if (a.equals("-workers") && i + 1 < args.length) {
+				workers = Integer.parseInt(args[++i]);
+			} else if (a.equals("-depth") && i + 1 < args.length) {
+				depth = Integer.parseInt(args[++i]);
+			} else if (a.equals("-out") && i + 1 < args.length) {
+				outDir = new File(args[++i]);
+			} else if (a.equals("-vmargs") && i + 1 < args.length) {
+				vmArgs = args[++i].trim().split("\\s+");
+			} else if (a.startsWith("+")) {
+				jpfArgs.add(a);
+			} else if (appConfig == null) {
+				appConfig = a;
+			} else {
+				return false;
+			}
+		}
+		return appConfig != null && workers > 0 && depth > 0;
+	}
+
+	/**
+	 * Explores the tree; returns false if a run failed, so that part of the
+	 * tree is missing from the results.
+	 */
+	public boolean run() throws IOException, InterruptedException {
+		long start = System.currentTimeMillis();
+		outDir.mkdirs();
+
+		// the initial split run: explores the top of the tree itself
+		Worker first = new Worker(0, new PathPrefix(new int[0]), depth);
+		first.run();
+		if (first.failed())
+			throw new IOException("the initial run failed, see " + first.out);
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 1; i <= workers; i++) {
+			final int id = i;
+			Thread t = new Thread(new Runnable() {
+				public void run() {
+					try {
+						workLoop(id);
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			}, "worker-" + id);
+			t.start();
+			threads.add(t);
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+
+		return merge(System.currentTimeMillis() - start);
+	}
+
+	void workLoop(int id) throws IOException, InterruptedException {
+		while (true) {
+			PathPrefix p = queue.poll();
+			if (p == null) {
+				if (pending.get() == 0) {
+					return;
+				}
+				requestSteal();
+				p = queue.poll(PathPrefixListener.STEAL_POLL_MSEC, TimeUnit.MILLISECONDS);
+				if (p == null) {
+					continue;
+				}
+			}
+			Worker w = new Worker(id, p, 0);
+			synchronized (busy) {
+				busy.add(w);
+			}
+			try {
+				w.run();
+			} finally {
+				synchronized (busy) {
+					busy.remove(w);
+				}
+				pending.decrementAndGet();
+			}
+		}
+	}
+
+	/*
+	 * Asks the worker that has been running longest (and so most likely owns
+	 * the biggest subtree) to give away part of its work.
+	 */
+	void requestSteal() throws IOException {
+		synchronized (busy) {
+			for (Worker w : busy) {
+				if (w.stealFile.exists()) {
+					return; // a request is already pending
+				}
+			}
+			if (!busy.isEmpty()) {
+				busy.get(0).stealFile.createNewFile();
+			}
+		}
+	}
+
+	void enqueue(PathPrefix p) {
+		pending.incrementAndGet();
+		queue.add(p);
+	}
+
+	boolean merge(long elapsed) throws IOException {
+		List<Worker> done;
+		synchronized (finished) {
+			done = new ArrayList<Worker>(finished);
+		}
+		int paths = 0;
+		int violations = 0;
+		List<Worker> failed = new ArrayList<Worker>();
+		PrintWriter pw = new PrintWriter(new FileWriter(new File(outDir, "merged.txt")));
+		try {
+			for (Worker w : done) {
+				BufferedReader r = new BufferedReader(new FileReader(w.out));
+				try {
+					String line;
+					while ((line = r.readLine()) != null) {
+						if (!line.startsWith(PathPrefix.MARKER) && !line.startsWith(PathPrefixListener.RESULT))
+							pw.println(line);
+					}
+				} finally {
+					r.close();
+				}
+				if (w.failed()) {
+					failed.add(w);
+				} else {
+					paths += w.paths;
+					violations += w.violations;
+				}
+			}
+			pw.println("====================================================== partitioned exploration");
+			pw.println("workers:      " + workers);
+			pw.println("split depth:  " + depth);
+			pw.println("jpf runs:     " + runs.get());
+			pw.println("paths:        " + paths);
+			pw.println("violations:   " + violations);
+			pw.println("elapsed time: " + elapsed + " ms");
+			for (Worker w : failed) {
+				pw.println("FAILED:       " + w.out.getName() + " prefix [" + w.prefix + "] exit " + w.exit);
+			}
+		} finally {
+			pw.close();
+		}
+		System.out.println("explored the tree with " + runs.get() + " JPF runs in " + elapsed + " ms: " + paths
+				+ " paths, " + violations + " property violations, see " + new File(outDir, "merged.txt"));
+		if (!failed.isEmpty())
+			System.err.println("## Error: " + failed.size() + " runs failed, their subtrees are missing");
+		return failed.isEmpty();
+	}
+
+	class Worker {
+		final int id;
+		final PathPrefix prefix;
+		final int split;
+		final File stealFile;
+		final File out;
+
+		int exit;
+		// as reported by the PathPrefixListener; -1 if nothing was reported
+		int paths = -1;
+		int violations;
+
+		Worker(int id, PathPrefix prefix, int split) {
+			this.id = id;
+			this.prefix = prefix;
+			this.split = split;
+			int n = runs.getAndIncrement();
+			this.stealFile = new File(outDir, "steal-" + n);
+			this.out = new File(outDir, "run-" + n + ".txt");
+		}
+
+		List<String> command() {
+			List<String> cmd = new ArrayList<String>();
+			cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+			for (String a : vmArgs) {
+				if (a.length() > 0)
+					cmd.add(a);
+			}
+			cmd.add("-cp");
+			cmd.add(System.getProperty("java.class.path"));
+			cmd.add("gov.nasa.jpf.JPF");
+			cmd.add(LISTENER);
+			if (prefix.length() > 0)
+				cmd.add("+symbolic.prefix=" + prefix);
+			if (split > 0)
+				cmd.add("+symbolic.prefix.split_depth=" + split);
+			else
+				cmd.add("+symbolic.prefix.steal_file=" + stealFile.getAbsolutePath());
+			cmd.addAll(jpfArgs);
+			cmd.add(appConfig);
+			return cmd;
+		}
+
+		void run() throws IOException, InterruptedException {
+			ProcessBuilder pb = new ProcessBuilder(command());
+			pb.redirectErrorStream(true);
+			Process proc = pb.start();
+
+			PrintWriter pw = new PrintWriter(new FileWriter(out));
+			try {
+				pw.println("## worker " + id + " prefix [" + prefix + "]");
+				BufferedReader r = new BufferedReader(new InputStreamReader(proc.getInputStream()));
+				String line;
+				while ((line = r.readLine()) != null) {
+					if (line.startsWith(PathPrefix.MARKER)) {
+						enqueue(PathPrefix.parse(line));
+					} else if (line.startsWith(PathPrefixListener.RESULT)) {
+						String[] f = line.substring(PathPrefixListener.RESULT.length()).trim().split(" ");
+						paths = Integer.parseInt(f[0]);
+						violations = Integer.parseInt(f[1]);
+					}
+					pw.println(line);
+				}
+				exit = proc.waitFor();
+				if (exit != 0)
+					pw.println("## worker " + id + " exited with " + exit);
+			} finally {
+				pw.close();
+				stealFile.delete();
+			}
+			synchronized (finished) {
+				finished.add(this);
+			}
+		}
+
+		boolean failed() {
+			return exit != 0 || paths < 0;
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.parallel;
+
+import gov.nasa.jpf.vm.ChoiceGenerator;
+
+/**
+ * A path prefix is the sequence of choice indices taken by the choice
+ * generators on a path, starting at the root of the search tree. Since the
+ * exploration is deterministic, replaying the same choices in a fresh JPF run
+ * reaches the same state, which lets us hand out subtrees to other JVMs.
+ *
+ * Prefixes are written as comma separated lists, e.g. "0,1,1", which is also
+ * the format expected by the symbolic.prefix property.
+ */
+public class PathPrefix {
+
+	// marker used by workers to report prefixes on their standard output
+	public static final String MARKER = "##PREFIX:";
+
+	private final int[] choices;
+
+	public PathPrefix(int[] choices) {
+		this.choices = choices;
+	}
+
+	public int length() {
+		return choices.length;
+	}
+
+	public int get(int depth) {
+		return choices[depth];
+	}
+
+	/**
+	 * Returns a prefix one longer than this one.
+	 */
+	public PathPrefix extend(int choice) {
+		int[] c = new int[choices.length + 1];
+		System.arraycopy(choices, 0, c, 0, choices.length);
+		c[choices.length] = choice;
+		return new PathPrefix(c);
+	}
+
+	/**
+	 * Returns the index of the choice currently processed by the given choice
+	 * generator.
+	 */
+	public static int choiceIndex(ChoiceGenerator<?> cg) {
+		return cg.getProcessedNumberOfChoices() - 1;
+	}
+
+	/**
+	 * Builds the prefix of the current path from the choice generator chain
+	 * (as returned by SystemState.getChoiceGenerators()), using the first
+	 * len generators.
+	 */
+	public static PathPrefix fromChain(ChoiceGenerator<?>[] cgs, int len) {
+		int[] c = new int[len];
+		for (int i = 0; i < len; i++) {
+			c[i] = choiceIndex(cgs[i]);
+		}
+		return new PathPrefix(c);
+	}
+
+	public static PathPrefix parse(String s) {
+		s = s.trim();
+		if (s.startsWith(MARKER)) {
+			s = s.substring(MARKER.length()).trim();
+		}
+		if (s.length() == 0) {
+			return new PathPrefix(new int[0]);
+		}
+		return parse(s.split(","));
+	}
+
+	public static PathPrefix parse(String[] elems) {
+		int[] c = new int[elems.length];
+		for (int i = 0; i < elems.length; i++) {
+			c[i] = Integer.parseInt(elems[i].trim());
+		}
+		return new PathPrefix(c);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < choices.length; i++) {
+			if (i > 0)
+				sb.append(',');
+			sb.append(choices[i]);
+		}
+		return sb.toString();
+	}
+}
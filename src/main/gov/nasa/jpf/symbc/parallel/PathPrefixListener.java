@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.parallel;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.PropertyListenerAdapter;
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.vm.ChoiceGenerator;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * Worker side of the partitioned exploration (see {@link PartitionedExplorer}).
+ *
+ * symbolic.prefix=c0,c1,...      only explore the subtree below this path prefix
+ * symbolic.prefix.split_depth=k  stop k PC choices below the prefix and report
+ *                                the reached prefixes instead of exploring them
+ * symbolic.prefix.steal_file=f   when f appears, donate the unexplored alternatives
+ *                                of the shallowest open choice generator
+ *
+ * Prefixes are reported on standard output, one per line, starting with
+ * {@link PathPrefix#MARKER}. At the end, the number of paths completed and of
+ * property violations found in this run are reported in a line starting with
+ * {@link #RESULT}; paths ignored because they are outside the prefix, split
+ * off or donated are not counted. The other results of the run (summaries,
+ * generated tests, coverage) are not reported to the explorer.
+ *
+ * If symbolic.optimizechoices=false, the path condition is not re-solved while
+ * replaying the prefix: the prefix was feasible when it was recorded. With the
+ * optimization on, choice generators are only created after solving both
+ * branches, so we have to keep solving to get the same choice generator chain.
+ */
+public class PathPrefixListener extends PropertyListenerAdapter {
+
+	// minimum delay between two checks for a steal request
+	static final long STEAL_POLL_MSEC = 500;
+
+	static final String RESULT = "##RESULT:";
+
+	private final PathPrefix prefix;
+	private final int splitDepth;
+	private final File stealFile;
+	private final boolean replay;
+
+	private long lastStealPoll = 0;
+
+	private int paths = 0;
+	private int violations = 0;
+
+	// choice generators whose remaining choices were handed to another worker
+	private final Set<ChoiceGenerator<?>> donated =
+			Collections.newSetFromMap(new IdentityHashMap<ChoiceGenerator<?>, Boolean>());
+
+	public PathPrefixListener(Config conf, JPF jpf) {
+		String[] p = conf.getStringArray("symbolic.prefix");
+		prefix = (p == null) ? new PathPrefix(new int[0]) : PathPrefix.parse(p);
+		splitDepth = conf.getInt("symbolic.prefix.split_depth", 0);
+		String steal = conf.getString("symbolic.prefix.steal_file");
+		stealFile = (steal == null) ? null : new File(steal);
+		replay = !conf.getBoolean("symbolic.optimizechoices", true);
+	}
+
+	@Override
+	public void choiceGeneratorAdvanced(VM vm, ChoiceGenerator<?> currentCG) {
+		ChoiceGenerator<?>[] cgs = vm.getChoiceGenerators();
+		int depth = cgs.length - 1;
+
+		if (donated.contains(currentCG)) {
+			vm.getSystemState().setIgnored(true);
+			return;
+		}
+		if (depth < prefix.length()) {
+			if (PathPrefix.choiceIndex(currentCG) != prefix.get(depth)) {
+				vm.getSystemState().setIgnored(true);
+				return;
+			}
+		}
+		if (replay) {
+			PathCondition.setReplay(depth < prefix.length());
+		}
+	}
+
+	@Override
+	public void stateAdvanced(Search search) {
+		if (search.isEndState()) {
+			paths++;
+		}
+	}
+
+	@Override
+	public void propertyViolated(Search search) {
+		violations++;
+	}
+
+	@Override
+	public void searchFinished(Search search) {
+		System.out.println(RESULT + " " + paths + " " + violations);
+	}
+
+	@Override
+	public void choiceGeneratorRegistered(VM vm, ChoiceGenerator<?> nextCG, ThreadInfo currentThread,
+			Instruction executedInstruction) {
+		ChoiceGenerator<?>[] cgs = vm.getChoiceGenerators();
+
+		if (splitDepth > 0 && nextCG instanceof PCChoiceGenerator) {
+			int pcDepth = 0;
+			for (int i = prefix.length(); i < cgs.length; i++) {
+				if (cgs[i] instanceof PCChoiceGenerator)
+					pcDepth++;
+			}
+			if (pcDepth >= splitDepth) {
+				System.out.println(PathPrefix.MARKER + " " + PathPrefix.fromChain(cgs, cgs.length));
+				vm.getSystemState().setIgnored(true);
+				return;
+			}
+		}
+
+		if (stealFile != null) {
+			long now = System.currentTimeMillis();
+			if (now - lastStealPoll > STEAL_POLL_MSEC) {
+				lastStealPoll = now;
+				if (stealFile.exists()) {
+					donate(cgs);
+					stealFile.delete();
+				}
+			}
+		}
+	}
+
+	/*
+	 * Hands out the remaining alternatives of the shallowest choice generator
+	 * below our prefix that still has choices left; this is the biggest chunk
+	 * of unexplored work we own.
+	 */
+	private void donate(ChoiceGenerator<?>[] cgs) {
+		for (int i = prefix.length(); i < cgs.length; i++) {
+			ChoiceGenerator<?> cg = cgs[i];
+			if (!donated.contains(cg) && cg.hasMoreChoices()) {
+				PathPrefix base = PathPrefix.fromChain(cgs, i);
+				for (int c = cg.getProcessedNumberOfChoices(); c < cg.getTotalNumberOfChoices(); c++) {
+					System.out.println(PathPrefix.MARKER + " " + base.extend(c));
+				}
+				donated.add(cg);
+				return;
+			}
+		}
+	}
+}
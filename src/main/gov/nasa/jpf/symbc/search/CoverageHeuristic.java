@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gov.nasa.jpf.symbc.search;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * Explores first the states that end at a symbolic branch with an outcome
+ * that was not seen yet, and among those, the ones that were reached by
+ * covering a new outcome themselves. Branches are identified by method and
+ * bytecode offset; an outcome is a choice of their PCChoiceGenerator.
+ *
+ * An outcome counts as covered once the search advances over it, whether the
+ * state it leads to is queued or not (e.g. an end state); outcomes that lead
+ * to ignored states (infeasible branches) are not covered. Priorities are
+ * computed when a state is queued, so a state can keep its priority after
+ * another path covered its branch.
+ */
+public class CoverageHeuristic extends PCHeuristic {
+
+	protected final Set<String> covered = new HashSet<String>();
+
+	// whether the last advance covered a new outcome
+	private boolean newOutcome;
+
+	public CoverageHeuristic(Config config, VM vm) {
+		super(config, vm);
+	}
+
+	@Override
+	protected void notifyStateAdvanced() {
+		newOutcome = false;
+		PCChoiceGenerator cg = getCurrentPCChoiceGenerator();
+		if (cg != null && !isIgnoredState())
+			newOutcome = covered.add(branchOf(cg) + ":" + cg.getNextChoice());
+		super.notifyStateAdvanced();
+	}
+
+	@Override
+	protected int computeHeuristicValue() {
+		int value = 0;
+		if (getCurrentPCChoiceGenerator() != null && !newOutcome)
+			value += 1; // got here over a known outcome
+
+		PCChoiceGenerator next = getNextPCChoiceGenerator();
+		if (next != null && isCovered(next))
+			value += 2; // nothing new behind the next branch
+
+		return value;
+	}
+
+	protected boolean isCovered(PCChoiceGenerator cg) {
+		String branch = branchOf(cg);
+		for (int choice = 0; choice < cg.getTotalNumberOfChoices(); choice++) {
+			if (!covered.contains(branch + ":" + choice))
+				return false;
+		}
+		return true;
+	}
+
+	public int getCoveredOutcomes() {
+		return covered.size();
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gov.nasa.jpf.symbc.search;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.search.heuristic.SimplePriorityHeuristic;
+import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
+import gov.nasa.jpf.vm.ChoiceGenerator;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * Common root of the searches that order the states by the path condition
+ * tree: the priority of a new state is computed from the PCChoiceGenerator
+ * that led to it and the one it is going to branch at next.
+ *
+ * The states are kept (as VM snapshots) in the priority queue of
+ * HeuristicSearch, the lowest value first. The frontier is bounded with
+ *
+ * search.heuristic.queue_limit=n   keep only the n best states (default: unbounded)
+ *
+ * e.g. search.class=gov.nasa.jpf.symbc.search.CoverageHeuristic
+ */
+public abstract class PCHeuristic extends SimplePriorityHeuristic {
+
+	public PCHeuristic(Config config, VM vm) {
+		super(config, vm);
+	}
+
+	/**
+	 * The choice generator of the symbolic branch that was taken to get to the
+	 * current state, or null if there was none yet.
+	 */
+	protected PCChoiceGenerator getCurrentPCChoiceGenerator() {
+		return vm.getSystemState().getLastChoiceGeneratorOfType(PCChoiceGenerator.class);
+	}
+
+	/**
+	 * The choice generator of the symbolic branch the current state ends at,
+	 * or null if the next choice is not a symbolic one.
+	 */
+	protected PCChoiceGenerator getNextPCChoiceGenerator() {
+		ChoiceGenerator<?> cg = vm.getSystemState().getNextChoiceGenerator();
+		return (cg instanceof PCChoiceGenerator) ? (PCChoiceGenerator) cg : null;
+	}
+
+	/**
+	 * The number of symbolic branches on the path to the current state.
+	 */
+	protected int getPCDepth() {
+		int depth = 0;
+		for (PCChoiceGenerator cg = getCurrentPCChoiceGenerator(); cg != null; cg = cg
+				.getPreviousChoiceGeneratorOfType(PCChoiceGenerator.class)) {
+			depth++;
+		}
+		return depth;
+	}
+
+	protected static String branchOf(PCChoiceGenerator cg) {
+		return cg.getMethodName() + ":" + cg.getOffset();
+	}
+}
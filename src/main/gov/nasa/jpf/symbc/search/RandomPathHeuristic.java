@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gov.nasa.jpf.symbc.search;
+
+import java.util.Random;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * Random path selection: a state is picked as if walking down the symbolic
+ * execution tree from the root and flipping a coin at every branch, i.e. a
+ * state d symbolic branches deep is picked with probability proportional to
+ * 2^-d. Unlike a uniform choice among the queued states, this does not favor
+ * the deep subtrees that produce most of the states.
+ *
+ * Every state gets the key e * 2^d, with e drawn from Exp(1); the one with the
+ * lowest key wins with the probability above (compared as logarithms).
+ *
+ * symbolic.heuristic.seed=n   seed of the random numbers (default 42)
+ */
+public class RandomPathHeuristic extends PCHeuristic {
+
+	// resolution of the logarithmic keys
+	static final double SCALE = 1000.0;
+
+	protected final Random random;
+
+	public RandomPathHeuristic(Config config, VM vm) {
+		super(config, vm);
+		random = new Random(config.getLong("symbolic.heuristic.seed", 42));
+	}
+
+	@Override
+	protected int computeHeuristicValue() {
+		double e = -Math.log(1.0 - random.nextDouble());
+		double key = Math.log(e) + getPCDepth() * Math.log(2);
+		return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, key * SCALE));
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gov.nasa.jpf.symbc.search;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * Explores the states with the shortest path condition first, i.e. the
+ * symbolic execution tree level by level of constraints (states reached by
+ * concrete choices do not count).
+ */
+public class ShortestPCHeuristic extends PCHeuristic {
+
+	public ShortestPCHeuristic(Config config, VM vm) {
+		super(config, vm);
+	}
+
+	@Override
+	protected int computeHeuristicValue() {
+		PCChoiceGenerator cg = getCurrentPCChoiceGenerator();
+		if (cg == null)
+			return 0;
+		PathCondition pc = cg.peekCurrentPC();
+		return (pc == null) ? 0 : pc.count();
+	}
+}
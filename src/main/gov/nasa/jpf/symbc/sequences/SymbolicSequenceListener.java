@@ -152,7 +152,7 @@ public class SymbolicSequenceListener extends PropertyListenerAdapter implements
 		error = "\"" + error.substring(0,error.indexOf("\n")) + "...\"";
 
 		if ((cg instanceof PCChoiceGenerator) &&
-				      ((PCChoiceGenerator) cg).getCurrentPC() != null){
+				      ((PCChoiceGenerator) cg).peekCurrentPC() != null){
 
 			PathCondition pc = ((PCChoiceGenerator) cg).getCurrentPC();
 			System.out.println("pc "+ pc.count() + " "+pc);
@@ -285,7 +285,7 @@ public class SymbolicSequenceListener extends PropertyListenerAdapter implements
 			}
 
 			if ((cg instanceof PCChoiceGenerator) &&
-				      ((PCChoiceGenerator) cg).getCurrentPC() != null){
+				      ((PCChoiceGenerator) cg).peekCurrentPC() != null){
 
 				PathCondition pc = ((PCChoiceGenerator) cg).getCurrentPC();
 				//solve the path condition
@@ -53,11 +53,14 @@ package gov.nasa.jpf.symbc.string;
 import gov.nasa.jpf.symbc.numeric.ConstraintExpressionVisitor;
 import gov.nasa.jpf.symbc.numeric.visitors.CollectVariableVisitor;
 
+import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
-public class StringConstraint {
+public class StringConstraint implements Serializable {
+  private static final long serialVersionUID = 1L;
+
   StringExpression left;
 
   StringComparator comp;
@@ -70,15 +70,16 @@ import gov.nasa.jpf.symbc.string.graph.PreProcessGraph;
 public abstract class StringExpression extends Expression {
 
   SymbolicInteger length = null;
-  Map<String, SymbolicCharAtInteger> charAt = null;
-  Map<StringExpression, SymbolicIndexOfInteger> indexOf = null;
-  Map<StringExpression, SymbolicLastIndexOfInteger> lastIndexOf = null;
-  Map<StringExpression, SymbolicLastIndexOf2Integer> lastIndexOf2 = null;
-  Map<StringExpression, Set<SymbolicIndexOf2Integer>> indexOf2 = null;
-  Map<IntegerExpression, SymbolicIndexOfCharInteger> indexOfChar = null;
-  Map<IntegerExpression, SymbolicLastIndexOfCharInteger> lastIndexOfChar = null;
-  Map<IntegerExpression, SymbolicLastIndexOfChar2Integer> lastIndexOfChar2 = null;
-  Map<IntegerExpression,Set<SymbolicIndexOfChar2Integer>> indexOfChar2 = null;
+  // caches of the derived integers, rebuilt on demand (not part of recorded PCs)
+  transient Map<String, SymbolicCharAtInteger> charAt = null;
+  transient Map<StringExpression, SymbolicIndexOfInteger> indexOf = null;
+  transient Map<StringExpression, SymbolicLastIndexOfInteger> lastIndexOf = null;
+  transient Map<StringExpression, SymbolicLastIndexOf2Integer> lastIndexOf2 = null;
+  transient Map<StringExpression, Set<SymbolicIndexOf2Integer>> indexOf2 = null;
+  transient Map<IntegerExpression, SymbolicIndexOfCharInteger> indexOfChar = null;
+  transient Map<IntegerExpression, SymbolicLastIndexOfCharInteger> lastIndexOfChar = null;
+  transient Map<IntegerExpression, SymbolicLastIndexOfChar2Integer> lastIndexOfChar2 = null;
+  transient Map<IntegerExpression,Set<SymbolicIndexOfChar2Integer>> indexOfChar2 = null;
 
 //   protected StringDependentNode dependentsHead = null;
 //   protected StringRelationshipNode relationshipsHead = null;
@@ -65,6 +65,9 @@ public class StringPathCondition {
 
 	  private PathCondition npc = null;
 
+	  // the answer of the last solve or simplify; not copied
+	  private SymbolicStringConstraintsGeneral.Verdict verdict = null;
+
 	  public StringPathCondition(PathCondition npc) {
 	    this.setNpc(npc);
 	    header = null;
@@ -120,6 +123,13 @@ public class StringPathCondition {
 	    return count;
 	  }
 
+	  public void recomputeCount() {
+	    count = 0;
+	    for (StringConstraint c = header; c != null; c = c.and) {
+	      count++;
+	    }
+	  }
+
 	  public boolean hasConstraint(StringConstraint c) {
 	    StringConstraint t = header;
 
@@ -135,17 +145,27 @@ public class StringPathCondition {
 
 	  public boolean solve() {// warning: solve calls simplify
 		  SymbolicStringConstraintsGeneral solver = new SymbolicStringConstraintsGeneral();
-		  boolean result = solver.isSatisfiable(this);
+		  verdict = solver.check(this);
+		  boolean result = (verdict == SymbolicStringConstraintsGeneral.Verdict.SAT);
 		  StringPathCondition.flagSolved = result;
 		  return result;
 	  }
 
 	  public boolean simplify() {
 	    SymbolicStringConstraintsGeneral solver = new SymbolicStringConstraintsGeneral();
-	    boolean result = solver.isSatisfiable(this);
+	    verdict = solver.check(this);
+	    boolean result = (verdict == SymbolicStringConstraintsGeneral.Verdict.SAT);
 	    return result;
 	  }
 
+	  /**
+	   * Returns why the last solve or simplify accepted or rejected this
+	   * path condition, or null if it has not been solved.
+	   */
+	  public SymbolicStringConstraintsGeneral.Verdict getVerdict() {
+	    return verdict;
+	  }
+
 	  public String stringPC() {
 	    return "SPC # = " + count + ((header == null) ? "" : "\n" + header.stringPC()) +"\n"
 	    		+ "NPC "+npc.stringPC();
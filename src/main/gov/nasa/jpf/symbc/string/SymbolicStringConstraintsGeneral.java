@@ -35,6 +35,9 @@ import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
 import gov.nasa.jpf.symbc.numeric.LogicalORLinearIntegerConstraints;
 import gov.nasa.jpf.symbc.numeric.PathCondition;
 import gov.nasa.jpf.symbc.numeric.SymbolicConstraintsGeneral;
+import gov.nasa.jpf.symbc.numeric.solvers.SolverCorpus;
+import gov.nasa.jpf.symbc.numeric.solvers.SolverMetrics;
+import gov.nasa.jpf.symbc.numeric.solvers.SolverRegistry;
 import gov.nasa.jpf.symbc.string.graph.Edge;
 import gov.nasa.jpf.symbc.string.graph.EdgeCharAt;
 import gov.nasa.jpf.symbc.string.graph.EdgeConcat;
@@ -59,6 +62,7 @@ import gov.nasa.jpf.symbc.string.graph.EdgeStartsWith;
 import gov.nasa.jpf.symbc.string.graph.EdgeSubstring1Equal;
 import gov.nasa.jpf.symbc.string.graph.EdgeSubstring2Equal;
 import gov.nasa.jpf.symbc.string.graph.EdgeTrimEqual;
+import gov.nasa.jpf.symbc.string.graph.LengthAbstraction;
 import gov.nasa.jpf.symbc.string.graph.PreProcessGraph;
 import gov.nasa.jpf.symbc.string.graph.StringGraph;
 import gov.nasa.jpf.symbc.string.graph.Vertex;
@@ -79,6 +83,8 @@ import gov.nasa.jpf.util.LogManager;
  * The solving is split into six steps
  * 
  * 1. Convert the constraints to a StringGraph (what this class does)
+ *    (with symbolic.string_length_check, first check the lengths alone,
+ *    gov.nasa.jpf.symbc.string.graph.LengthAbstraction)
  * 2. Preprocess the StringGraph (gov.nasa.jpf.symbc.string.graph.PreProcessGraph
  * 3. Solve the integer constriants (only choco for now)
  * 4. Solve the string constriants with automata/sat/cvc
@@ -92,6 +98,20 @@ import gov.nasa.jpf.util.LogManager;
  */
 public class SymbolicStringConstraintsGeneral {
 
+	/**
+	 * Why a string path condition was accepted or rejected. Only the UNSAT_
+	 * verdicts are proofs: a timeout proves nothing, and neither does a
+	 * procedure that takes the path condition directly (ABC, z3str2), as
+	 * it does not tell its timeouts apart.
+	 */
+	public enum Verdict {
+		SAT, UNSAT_LENGTHS, UNSAT_PREPROCESSOR, UNSAT_SOLVER, REJECTED, TIMEOUT;
+		
+		public boolean isUnsat() {
+			return this == UNSAT_LENGTHS || this == UNSAT_PREPROCESSOR || this == UNSAT_SOLVER;
+		}
+	}
+
 	/* Useless from now on */
   static Logger logger = LogManager.getLogger("stringsolver");
 	public static int constraintCount = 0;
@@ -123,6 +143,97 @@ public class SymbolicStringConstraintsGeneral {
 	public static final String Z3_INC = "Z3_INC";
 	public static final String WRAPPER = "WRAPPER"; //automata+z3
 	
+	/* How each of them solves, as registered in the SolverRegistry */
+	public static final SolverRegistry.StringPathProcedure ABC_PROCEDURE = new SolverRegistry.StringPathProcedure() {
+		public boolean isSat(StringPathCondition pc) {
+			return TranslateToABC.isSat(pc);
+		}
+	};
+	
+	public static final SolverRegistry.StringPathProcedure Z3STR2_PROCEDURE = new SolverRegistry.StringPathProcedure() {
+		public boolean isSat(StringPathCondition pc) {
+			System.out.println("$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$");
+			System.out.println("Calling Z3str2\n");
+			final Output dpresult = TranslateToZ3str2.solve(pc);
+			return dpresult.isSAT();
+		}
+	};
+	
+	public static final SolverRegistry.StringProcedure SAT_PROCEDURE = new SolverRegistry.StringProcedure() {
+		public boolean isSat(StringGraph graph, StringPathCondition pc) {
+			return TranslateToSAT.isSat(graph, pc.getNpc());
+		}
+	};
+	
+	public static final SolverRegistry.StringProcedure AUTOMATA_PROCEDURE = new SolverRegistry.StringProcedure() {
+		public boolean isSat(StringGraph graph, StringPathCondition pc) {
+			TranslateToAutomata.duration = 0;
+			TranslateToAutomata.int_duration = 0;
+			TranslateToAutomata.loops = 0;
+			boolean result = TranslateToAutomata2.isSat(graph, pc.getNpc());
+			timeInvoked++;
+			return result;
+		}
+	};
+	
+	public static final SolverRegistry.StringProcedure CVC_PROCEDURE = new SolverRegistry.StringProcedure() {
+		public boolean isSat(StringGraph graph, StringPathCondition pc) {
+			return TranslateToCVC.isSat(graph, pc.getNpc());
+		}
+	};
+	
+	public static final SolverRegistry.StringProcedure CVC_INC_PROCEDURE = new SolverRegistry.StringProcedure() {
+		public boolean isSat(StringGraph graph, StringPathCondition pc) {
+			return TranslateToCVCInc.isSat(graph, pc.getNpc());
+		}
+	};
+	
+	public static final SolverRegistry.StringProcedure Z3_PROCEDURE = new SolverRegistry.StringProcedure() {
+		public boolean isSat(StringGraph graph, StringPathCondition pc) {
+			return TranslateToZ3.isSat(graph, pc.getNpc());
+		}
+	};
+	
+	public static final SolverRegistry.StringProcedure Z3_INC_PROCEDURE = new SolverRegistry.StringProcedure() {
+		public boolean isSat(StringGraph graph, StringPathCondition pc) {
+			TranslateToZ3Inc.duration = 0;
+			TranslateToZ3Inc.int_duration = 0;
+			TranslateToZ3Inc.loops = 0;
+			boolean result = TranslateToZ3Inc.isSat(graph, pc.getNpc());
+			string_duration += TranslateToZ3Inc.duration;
+			int_duration += TranslateToZ3Inc.int_duration;
+			timeInvoked++;
+			return result;
+		}
+	};
+	
+	/* z3, and automata on what z3 was given if z3 fails */
+	public static final SolverRegistry.StringProcedure WRAPPER_PROCEDURE = new SolverRegistry.StringProcedure() {
+		public boolean isSat(StringGraph graph, StringPathCondition pc) {
+			StringGraph cloneGraph = new StringGraph(graph);
+			PathCondition cloneNpc = pc.getNpc().make_copy();
+			boolean pcSolved = PathCondition.flagSolved;
+			boolean result = false;
+			try {
+				result = TranslateToZ3.isSat(graph, pc.getNpc());
+			} catch (Exception e) {
+				logger.info("wrapper-z3 throwed exception; " + e.getMessage());
+			}
+			try {
+				if (result == false) {
+					logger.warning("z3 failed; restoring graph/pc and trying again with automata...");
+					graph.restore(cloneGraph);
+					pc.setNpc(cloneNpc);
+					PathCondition.flagSolved = pcSolved;
+					result = AUTOMATA_PROCEDURE.isSat(graph, pc);
+				}
+			} catch (Exception e) {
+				logger.severe("wrapper-automata throwed exception; " + e.getMessage());
+			}
+			return result;
+		}
+	};
+	
 	/* Default solver */
 	public static String solver = AUTOMATA;
 	
@@ -150,6 +261,9 @@ public class SymbolicStringConstraintsGeneral {
 	public static long int_duration = 0;
 	
 	public static long entered = 0;
+
+	/*Solver metrics: when the decision procedure was called*/
+	private long solveStartNanos;
 	
 	public SymbolicStringConstraintsGeneral () {
 		
@@ -365,18 +479,53 @@ public class SymbolicStringConstraintsGeneral {
 	}
 
 	public boolean isSatisfiable(StringPathCondition pc) {
+		return check(pc) == Verdict.SAT;
+	}
+	
+	/**
+	 * Solves the given path condition like isSatisfiable, and tells why it
+	 * was rejected.
+	 */
+	public Verdict check(StringPathCondition pc) {
 		logger.info(">>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>");
 		if (SymbolicInstructionFactory.debugMode)
 			System.out.println("string analysis: " + pc);
 		//println ("Path Constraint # " + entered);
 		//println ("CURRENT PATH CONSTRAINT:\n");
 		//println(pc.toString());
-		boolean result = inner_isSatisfiable(pc);
+		long start = (SolverMetrics.enabled || SolverCorpus.recording()) ? System.nanoTime() : 0;
+		solveStartNanos = 0;
+		global_graph = null;
+		// solving adds constraints to the numeric PC, so remember what we were given
+		StringConstraint header = (pc == null) ? null : pc.header;
+		Constraint npcHeader = (pc == null) ? null : pc.getNpc().header;
+		Verdict result = inner_isSatisfiable(pc);
+		if (SolverMetrics.enabled) {
+			recordMetrics(pc, start, result);
+		}
+		if (SolverCorpus.recording() && pc != null) {
+			SolverCorpus.recordString(SymbolicInstructionFactory.string_dp[0], header, npcHeader, result == Verdict.SAT, System.nanoTime() - start);
+		}
 		entered++;
 		logger.info("\n");
 		return result;
 	}
 	
+	/*
+	 * Everything before the call to the decision procedure (building and
+	 * preprocessing the graph) counts as translation time. Solvers that take
+	 * the path condition directly (ABC, z3str2) only have solving time.
+	 */
+	private void recordMetrics(StringPathCondition pc, long start, Verdict result) {
+		long end = System.nanoTime();
+		long translate = (solveStartNanos == 0) ? 0 : solveStartNanos - start;
+		long solve = (solveStartNanos == 0) ? end - start : end - solveStartNanos;
+		SolverMetrics.Outcome outcome = (result == Verdict.TIMEOUT) ? SolverMetrics.Outcome.TIMEOUT
+				: (result == Verdict.SAT) ? SolverMetrics.Outcome.SAT : SolverMetrics.Outcome.UNSAT;
+		int vertices = (global_graph == null) ? 0 : global_graph.getVertices().size();
+		SolverMetrics.record("string:" + solver, (pc == null) ? 0 : pc.count(), vertices, translate, solve, outcome);
+	}
+
 	/**
 	 * Main entry point, solves (not only tests satisfiability) the given
 	 * path condition
@@ -384,54 +533,22 @@ public class SymbolicStringConstraintsGeneral {
 	 * @param pc
 	 * @return
 	 */
-	private boolean inner_isSatisfiable(StringPathCondition pc) {
-		String string_dp[] = SymbolicInstructionFactory.string_dp;
+	private Verdict inner_isSatisfiable(StringPathCondition pc) {
 		/* Set up solver */
-		if (string_dp[0].equals("automata")) {
-			solver = AUTOMATA;
-		}
-		else if (string_dp[0].equals("z3str2")) {
-			solver = Z3STR2;
-		}
-		else if (string_dp[0].equals("ABC")) {
-			solver = ABC;
-		}
-		else if (string_dp[0].equals("sat")) {
-			solver = SAT;
-		}
-		else if (string_dp[0].equals("cvc")) {
-			solver = CVC;
-		}
-		else if (string_dp[0].equals("cvc_inc")) {
-			solver = CVC_INC;
-		}
-		else if (string_dp[0].equals("z3")) {
-			solver = Z3;
-		}
-		else if (string_dp[0].equals("z3_inc")) {
-			solver = Z3_INC;
-		} else if (string_dp[0].equals("wrapper")) {
-			solver = WRAPPER;
-		} else {
+		SolverRegistry.StringBackend backend = SolverRegistry.string();
+		if (backend == null) {
 			/* No solver, return true */
 			//println ("[isSatisfiable] No Solver");
-			return true;
+			return Verdict.SAT;
 		}
+		solver = backend.solver;
 		
 		logger.info("Using solver: " + solver);
 
-		if(solver.equals(ABC)){
-			boolean dpresult = TranslateToABC.isSat(pc);
+		if (backend.pathProcedure != null) {
+			boolean dpresult = backend.pathProcedure.isSat(pc);
 			constraintCount = constraintCount + 1;
-			return dpresult;
-		}
-		
-		else if(solver.equals(Z3STR2)){
-			System.out.println("$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$$");
-			System.out.println("Calling Z3str2\n");
-			final Output dpresult = TranslateToZ3str2.solve(pc);
-			constraintCount = constraintCount + 1;
-			return dpresult.isSAT();
+			return dpresult ? Verdict.SAT : Verdict.REJECTED;
 		}
 		
 		
@@ -447,14 +564,14 @@ public class SymbolicStringConstraintsGeneral {
 			if (EJECT_TEXT) { /* For research into other solving techniques */
 				SymbolicStringConstraintsGeneralToText temp = new SymbolicStringConstraintsGeneralToText();
 				cancelTimer();
-				return temp.isSatisfiable(pc);
+				return temp.isSatisfiable(pc) ? Verdict.SAT : Verdict.REJECTED;
 			}
 			
 			setOfSolution = new HashSet<StringSymbolic>();
 			StringConstraint sc;
 			if (pc == null) {
 				cancelTimer();
-				return true;
+				return Verdict.SAT;
 			}
 			else {sc = pc.header;}
 			//if (sc == null) {return true;}
@@ -499,6 +616,17 @@ public class SymbolicStringConstraintsGeneral {
 			}
 			
 			
+			/* Many path conditions are unsat because of the lengths alone,
+			 * which the numeric solver finds out a lot faster */
+			if (SymbolicInstructionFactory.stringLengthCheck && !LengthAbstraction.isSat(global_graph, pc.getNpc())) {
+				cancelTimer();
+				if (SymbolicInstructionFactory.regressMode) {
+					String output = "##STRING PC: (UNSAT) " + pc;
+					System.out.println(output);
+				}
+				return Verdict.UNSAT_LENGTHS;
+			}
+			
 			//First solve any previous integer constriants
 			SymbolicConstraintsGeneral scg = new SymbolicConstraintsGeneral();
 			scg.solve(pc.getNpc());
@@ -512,7 +640,7 @@ public class SymbolicStringConstraintsGeneral {
 			
 			if (SymbolicInstructionFactory.preprocesOnly) {
 				System.out.println("Preprocessoring only");
-				return resultOfPp;
+				return resultOfPp ? Verdict.SAT : Verdict.UNSAT_PREPROCESSOR;
 			}
 			
 			//boolean resultOfPp = PreProcessGraphDisabled.preprocess(global_graph, pc.npc);
@@ -527,82 +655,17 @@ public class SymbolicStringConstraintsGeneral {
 					System.out.println(output);
 				}
 
-				return false;
+				return Verdict.UNSAT_PREPROCESSOR;
 			}
 			/* Call the string solver, it will in turn churn away until all
 			 * options are exhuasted or a satisfiable solution has turned up
 			 */
 			boolean decisionProcedure = false;
+			if (SolverMetrics.enabled) {
+				solveStartNanos = System.nanoTime();
+			}
 			try {
-				if (solver.equals(SAT)) {
-					//println ("[isSatisfiable] Using SAT Solver");
-					decisionProcedure = TranslateToSAT.isSat(global_graph, pc.getNpc());
-				}
-				if (solver.equals(ABC)) {
-					logger.info ("[isSatisfiable] Using ABC Solver");
-					//decisionProcedure = TranslateToSAT.isSat(global_graph, pc.npc);
-					decisionProcedure = false;
-				}
-				else if (solver.equals(AUTOMATA)) {
-					//println ("[isSatisfiable] Using Automata's");
-					TranslateToAutomata.duration = 0;
-					TranslateToAutomata.int_duration = 0;
-					TranslateToAutomata.loops = 0;
-					decisionProcedure = TranslateToAutomata2.isSat(global_graph, pc.getNpc());
-					timeInvoked++;
-				}
-				else if (solver.equals(CVC)) {
-					//println ("[isSatisfiable] Using Bitvector's");
-					decisionProcedure = TranslateToCVC.isSat(global_graph, pc.getNpc()); 
-				}
-				else if (solver.equals(CVC_INC)) {
-					//println ("[isSatisfiable] Using Bitvector's");
-					decisionProcedure = TranslateToCVCInc.isSat(global_graph, pc.getNpc()); 
-				}
-				else if (solver.equals(Z3)) {
-					//println ("[isSatisfiable] Using Z3");
-					decisionProcedure = TranslateToZ3.isSat(global_graph, pc.getNpc()); 
-				}
-				else if (solver.equals(Z3_INC)) {
-					TranslateToZ3Inc.duration = 0;
-					TranslateToZ3Inc.int_duration = 0;
-					TranslateToZ3Inc.loops = 0;
-					decisionProcedure = TranslateToZ3Inc.isSat(global_graph, pc.getNpc());
-					string_duration += TranslateToZ3Inc.duration;
-					int_duration += TranslateToZ3Inc.int_duration ;
-					//System.out.println("Loops: " + TranslateToZ3Inc.loops);
-					timeInvoked++;
-				} else if (solver.equals(WRAPPER)) {
-					StringGraph cloneGraph = new StringGraph(global_graph);
-					PathCondition cloneNpc = pc.getNpc().make_copy();
-					boolean pcSolved = PathCondition.flagSolved;
-					//start with z3, and swap to automata if something goes wrong
-					try {
-						decisionProcedure = TranslateToZ3.isSat(global_graph, pc.getNpc());
-					} catch (Exception e) {
-						logger.info("wrapper-z3 throwed exception; " + e.getMessage());
-					} 
-					try {
-						if (decisionProcedure == false) {
-							logger.warning("z3 failed; restoring graph/pc and trying again with automata...");
-							global_graph = cloneGraph;
-							pc.setNpc(cloneNpc);
-							PathCondition.flagSolved = pcSolved;
-							
-							TranslateToAutomata.duration = 0;
-							TranslateToAutomata.int_duration = 0;
-							TranslateToAutomata.loops = 0;
-							decisionProcedure = TranslateToAutomata2.isSat(
-									global_graph, pc.getNpc());
-							timeInvoked++;
-						}
-					} catch (Exception e) {
-						logger.severe("wrapper-automata throwed exception; " + e.getMessage());
-					}
-				}
-				else {
-					throw new RuntimeException("Unknown string solver!!!");
-				}
+				decisionProcedure = backend.procedure.isSat(global_graph, pc);
 			} catch (StackOverflowError e) {
 				System.err.println("Stacked overflowed");
 				e.printStackTrace();
@@ -618,7 +681,7 @@ public class SymbolicStringConstraintsGeneral {
 					System.out.println(output);
 				}
 				
-				return false;
+				return Verdict.UNSAT_SOLVER;
 			}
 			/* check if there was a timeout */
 			checkTimeOut();
@@ -722,7 +785,7 @@ public class SymbolicStringConstraintsGeneral {
 				String output = "##STRING PC: (SOLVED) " + pc;
 				System.out.println(output);
 			}
-			return true;
+			return Verdict.SAT;
 		} catch (SymbolicStringTimedOutException e) {
 			System.err.println("Symbolic String Executioner timed out");
 			timedOut = false;
@@ -732,7 +795,7 @@ public class SymbolicStringConstraintsGeneral {
 				System.out.println(output);
 			}
 			
-			return false; // or return true?
+			return Verdict.TIMEOUT; // or return true?
 		}
 	}
 	
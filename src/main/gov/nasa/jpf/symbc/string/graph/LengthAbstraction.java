@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.string.graph;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.QueryCache;
+import gov.nasa.jpf.symbc.numeric.SymbolicConstraintsGeneral;
+
+/**
+ * Checks the lengths of the strings in a StringGraph before it is
+ * preprocessed: the length relations of the edges (a prefix is not longer
+ * than the string, the lengths of a concatenation add up, charAt is in
+ * range, ...) together with the integer constraints make up a linear
+ * integer problem, which the numeric solver decides.
+ * 
+ * Only relations the preprocessor adds as well are used, so if this check
+ * gives unsat, so would the preprocessor, only later. Queries the numeric
+ * solver does not decide let the path condition through. Answers are cached
+ * (in PathCondition.queryCache if there is one).
+ */
+public class LengthAbstraction {
+	
+	private static final int CACHE_SIZE = 10000;
+	
+	private static Map<String, Boolean> cache = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		
+		protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+	
+	public static int checks = 0;
+	public static int rejected = 0;
+	
+	/**
+	 * Returns false if the lengths alone make g unsatisfiable under the
+	 * integer constraints npc. Neither g nor npc is changed.
+	 */
+	public static boolean isSat (StringGraph g, PathCondition npc) {
+		PathCondition pc = npc.make_copy();
+		addLengthConstraints(g, pc);
+		if (pc.header == null) {
+			return true;
+		}
+		checks++;
+		QueryCache answers = PathCondition.queryCache;
+		String key = pc.canonicalKey();
+		Boolean result = (answers != null) ? answers.get(key) : cache.get(key);
+		if (result == null) {
+			SymbolicConstraintsGeneral scg = new SymbolicConstraintsGeneral();
+			result = scg.isSatisfiable(pc) ? Boolean.TRUE : scg.lastResult();
+			scg.cleanup();
+			// not decided (timeout, unknown, symbolic.max_pc_length/max_pc_msec):
+			// no proof, the full pipeline has to decide, and nothing is cached
+			if (result == null)
+				return true;
+			if (answers != null)
+				answers.put(key, result);
+			else
+				cache.put(key, result);
+		}
+		if (!result) {
+			rejected++;
+		}
+		return result;
+	}
+	
+	private static void addLengthConstraints (StringGraph g, PathCondition pc) {
+		/* The preprocessor merges equal vertices first, and bounds the
+		 * lengths of those that are not equal to a constant */
+		Map<Vertex, Vertex> representative = new HashMap<Vertex, Vertex>();
+		for (Vertex v: g.getVertices()) {
+			representative.put(v, v);
+		}
+		for (Edge e: g.getEdges()) {
+			if (e instanceof EdgeEqual) {
+				Vertex r1 = find(representative, e.getSource());
+				Vertex r2 = find(representative, e.getDest());
+				if (r1 != r2) {
+					representative.put(r1.isConstant() ? r2 : r1, r1.isConstant() ? r1 : r2);
+				}
+				pc._addDet(Comparator.EQ, e.getSource().getSymbolicLength(), e.getDest().getSymbolicLength());
+			}
+		}
+		for (Vertex v: g.getVertices()) {
+			if (!find(representative, v).isConstant()) {
+				pc._addDet(Comparator.GE, v.getSymbolicLength(), 1);
+				pc._addDet(Comparator.LE, v.getSymbolicLength(), PreProcessGraph.MAXIMUM_LENGTH);
+			}
+		}
+		
+		for (Edge e: g.getEdges()) {
+			if (e instanceof EdgeStartsWith || e instanceof EdgeEndsWith || e instanceof EdgeContains) {
+				pc._addDet(Comparator.GE, e.getSource().getSymbolicLength(), e.getDest().getSymbolicLength());
+			}
+			else if (e instanceof EdgeConcat) {
+				pc._addDet(Comparator.EQ, e.getSources().get(0).getSymbolicLength()._plus(e.getSources().get(1).getSymbolicLength()), e.getDest().getSymbolicLength());
+			}
+			else if (e instanceof EdgeCharAt) {
+				EdgeCharAt eca = (EdgeCharAt) e;
+				pc._addDet(Comparator.GE, eca.index, new IntegerConstant(0));
+				pc._addDet(Comparator.LT, eca.index, e.getSource().getSymbolicLength());
+			}
+			else if (e instanceof EdgeNotCharAt) {
+				EdgeNotCharAt enca = (EdgeNotCharAt) e;
+				pc._addDet(Comparator.GE, enca.index, new IntegerConstant(0));
+				pc._addDet(Comparator.LT, enca.index, e.getSource().getSymbolicLength());
+			}
+			else if (e instanceof EdgeSubstring1Equal) {
+				EdgeSubstring1Equal es1e = (EdgeSubstring1Equal) e;
+				pc._addDet(Comparator.LE, e.getDest().getSymbolicLength(), e.getSource().getSymbolicLength());
+				if (es1e.getArgument1Symbolic() != null) {
+					pc._addDet(Comparator.GE, es1e.getArgument1Symbolic(), 0);
+				} else {
+					pc._addDet(Comparator.GE, e.getSource().getSymbolicLength(), new IntegerConstant(es1e.getArgument1())._plus(e.getDest().getSymbolicLength()));
+				}
+			}
+			else if (e instanceof EdgeSubstring2Equal) {
+				EdgeSubstring2Equal es2e = (EdgeSubstring2Equal) e;
+				if (!es2e.hasSymbolicArgs()) {
+					pc._addDet(Comparator.LE, e.getDest().getSymbolicLength(), e.getSource().getSymbolicLength());
+					pc._addDet(Comparator.GE, e.getSource().getSymbolicLength(), new IntegerConstant(es2e.getArgument2()));
+					pc._addDet(Comparator.EQ, e.getDest().getSymbolicLength(), new IntegerConstant(es2e.getArgument2() - es2e.getArgument1()));
+				}
+				else if (es2e.getSymbolicArgument1() == null && es2e.getSymbolicArgument2() != null) {
+					pc._addDet(Comparator.LE, e.getDest().getSymbolicLength(), e.getSource().getSymbolicLength());
+					pc._addDet(Comparator.GE, e.getSource().getSymbolicLength(), es2e.getSymbolicArgument2());
+					pc._addDet(Comparator.GE, es2e.getSymbolicArgument2(), 0);
+					pc._addDet(Comparator.GE, es2e.getSymbolicArgument2(), es2e.getArgument1());
+				}
+				// anything else is left to the preprocessor to complain about
+			}
+			else if (e instanceof EdgeTrimEqual) {
+				pc._addDet(Comparator.LE, e.getDest().getSymbolicLength(), e.getSource().getSymbolicLength());
+			}
+		}
+	}
+	
+	private static Vertex find (Map<Vertex, Vertex> representative, Vertex v) {
+		Vertex r = representative.get(v);
+		while (r != null && r != v) {
+			v = r;
+			r = representative.get(v);
+		}
+		return v;
+	}
+}
@@ -62,6 +62,15 @@ public class StringGraph {
 		}
 	}
 	
+	/**
+	 * Takes over the vertices and edges of 'copy', e.g. to undo what a solver
+	 * did to this graph; 'copy' must not be used afterwards
+	 */
+	public void restore (StringGraph copy) {
+		this.vertices = copy.vertices;
+		this.edges = copy.edges;
+	}
+	
 	/*public void addEquals (String n1, String n2) {
 		Vertex v1 = new Vertex (n1);
 		Vertex v2 = new Vertex (n2);
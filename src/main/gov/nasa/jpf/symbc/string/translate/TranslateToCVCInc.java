@@ -51,6 +51,7 @@ import gov.nasa.jpf.symbc.string.graph.EdgeTrimEqual;
 import gov.nasa.jpf.symbc.string.graph.StringGraph;
 import gov.nasa.jpf.symbc.string.graph.Vertex;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -100,8 +101,44 @@ public class TranslateToCVCInc {
 	
 	private static SymbolicConstraintsGeneral scg;
 	
-	//most sign, first letter
+	/*
+	 * The validity checker is kept between queries, with every formula posted
+	 * in a scope of its own. A query walks the formulas of the previous one as
+	 * long as its own are the same, and only pops back to the first one that
+	 * differs. Along a path the string graph only grows, so each query just
+	 * posts what its last edges add. Variables are not scoped in CVC3, so a
+	 * vertex gets a variable for every length it is tried with.
+	 */
+	private static List<String> scopes = new ArrayList<String>();
+	// the answer of CVC3 when the formula was posted
+	private static List<Boolean> scopeResults = new ArrayList<Boolean>();
+	// number of scopes of the current query found so far
+	private static int depth;
+	
 	public static boolean isSat (StringGraph g, PathCondition pc) {
+		try {
+			return inner_isSat(g, pc);
+		} catch (RuntimeException e) {
+			// the scopes may not be what we think they are
+			reset();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Deletes the validity checker; the next query starts from scratch.
+	 */
+	public static void reset () {
+		if (vc != null) {
+			vc.delete();
+			vc = null;
+		}
+		scopes.clear();
+		scopeResults.clear();
+	}
+	
+	//most sign, first letter
+	private static boolean inner_isSat (StringGraph g, PathCondition pc) {
 		if (scg == null) scg = new SymbolicConstraintsGeneral();
 		CVCEverCalled = false;
 		global_graph = g;
@@ -109,15 +146,13 @@ public class TranslateToCVCInc {
 		expr = null;
 		//println ("[isSat] Bitvector: PC passed on: " + pc.header);
 		map = new HashMap<Vertex, ExprMut>();
+		depth = 0;
 		try{
-			//if (vc == null) {
+			if (vc == null) {
 		        flags = ValidityChecker.createFlags(null);
 		        flags.setFlag("dagify-exprs",false);
 		        vc = ValidityChecker.create(flags);
-			//}
-			//else {
-				//Do nothing
-			//}
+			}
 	       // System.out.//println("validity checker is initialized");
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -134,8 +169,7 @@ public class TranslateToCVCInc {
 						scg.solve(pc);
 						PathCondition.flagSolved = true;
 						//println ("[isSat] solved " + global_pc.header.toString());
-						vc.delete();
-						return isSat (g, pc); //remove recursion
+						return inner_isSat (g, pc); //remove recursion
 					}
 					else {
 						//println ("[isSat] integer solver could not solve");
@@ -155,6 +189,9 @@ public class TranslateToCVCInc {
 		
 		//println ("[post] Formula to check: " + vc.trueExpr());
 		//println ("[post] On top of       : " + vc.getAssumptions());
+		// the previous query may have posted more
+		popTo(depth);
+		vc.push();
 		SatResult satResult = vc.checkUnsat(vc.trueExpr());
 		if (satResult == SatResult.SATISFIABLE) {
 			HashMap model = vc.getConcreteModel();
@@ -162,24 +199,43 @@ public class TranslateToCVCInc {
 	    	
 	    	for (Object e: model.entrySet()) {
 	    		Entry entry = (Entry) e;
-	    		String vertexName = entry.getKey().toString();
+	    		String varName = entry.getKey().toString();
+	    		int width = varName.lastIndexOf(WIDTH);
+	    		if (width < 0) continue;
+	    		Vertex v = g.findVertex(varName.substring(0, width));
+	    		// variables of earlier queries are still around
+	    		if (v == null || !varName.equals(varName(v))) continue;
 	    		String rawData = entry.getValue().toString();
 	    		rawData = fromRawData(rawData);
 	    		////println (vertexName + " = " + rawData);
-	    		Vertex v = g.findVertex(vertexName);
 	    		v.setSolution(rawData);
 	    	}
 			//println ("[isSat] Done walking through the edges");
-			/* TODO: Remove*/
-			vc.delete();
+			vc.pop();
 			return true;
 		}
 		else {
-			vc.delete();
+			vc.pop();
 			return false;
 		}
 	}
 	
+	private static final String WIDTH = "_w";
+	
+	private static String varName (Vertex v) {
+		return v.getName() + WIDTH + (8 * v.getLength());
+	}
+	
+	private static void popTo (int n) {
+		for (int i = scopes.size(); i > n; i--) {
+			vc.pop();
+		}
+		if (scopes.size() > n) {
+			scopes.subList(n, scopes.size()).clear();
+			scopeResults.subList(n, scopeResults.size()).clear();
+		}
+	}
+	
 	private static boolean handle (Edge e) {
 		if (e instanceof EdgeStartsWith) {
 			return handleEdgeStartsWith ((EdgeStartsWith) e);
@@ -1415,26 +1471,39 @@ public class TranslateToCVCInc {
 			expr = vc.andExpr(ee, expr);
 		}
 		
+		CVCEverCalled = true;
+		String formula = ee.toString();
+		if (depth < scopes.size() && scopes.get(depth).equals(formula)) {
+			// posted by the previous query on top of the same formulas
+			return scopeResults.get(depth++);
+		}
+		popTo(depth);
+		vc.push(); // the scope of ee
+		
 		vc.push();	
 		//println ("[post] Formula to check: " + ee);
 		//println ("[post] On top of       : " + vc.getAssumptions());
 		//long timing = System.currentTimeMillis();
 		SatResult satResult = vc.checkUnsat(ee);
 		//totalTiming += System.currentTimeMillis() - timing;
-		CVCEverCalled = true;
+		boolean result;
 		if (satResult == SatResult.SATISFIABLE) {
 			//println ("[post]: " + vc.);
 			//vc.pop();
 			//println ("[post] returned true");
 			vc.pop();
 			vc.assertFormula(ee);
-			return true;
+			result = true;
 		}
 		else {
 			vc.pop();
 			//println ("[post] returned false");
-			return false;
+			result = false;
 		}
+		scopes.add(formula);
+		scopeResults.add(result);
+		depth++;
+		return result;
 	}
 	
 	private static boolean[] toBits (char c) {
@@ -1457,7 +1526,7 @@ public class TranslateToCVCInc {
 		if (result == null) {
 			//8 is easier
 			//result = vc.varExpr("a", vc.arrayType(vc.intType(), vc.intType()));
-			result = vc.varExpr(v.getName(), vc.bitvecType(8 * v.getLength()));
+			result = vc.varExpr(varName(v), vc.bitvecType(8 * v.getLength()));
 			//println ("[ExprMut] " + v.getName() +  " length: " + (8 * v.getLength()));
 			map.put(v, result);
 			//Apply character constraints to each character
@@ -54,6 +54,7 @@ import gov.nasa.jpf.symbc.string.graph.StringGraph;
 import gov.nasa.jpf.symbc.string.graph.Vertex;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -104,11 +105,33 @@ public class TranslateToZ3Inc {
 	static Stack<LogicalORLinearIntegerConstraints> stack1;
 	static Stack<LinearIntegerConstraint> stack2;
 	
+	/*
+	 * z3 is kept running between queries, with every message sent to it
+	 * (declaration or assertion) in a scope of its own. A query walks the
+	 * messages of the previous one as long as its own are the same, and only
+	 * pops back to the first one that differs. Along a path the string graph
+	 * only grows, so each query just sends what its last edges add.
+	 */
+	private static List<String> scopes = new ArrayList<String>();
+	// z3's answer when the message was sent
+	private static List<Boolean> scopeResults = new ArrayList<Boolean>();
+	// number of scopes of the current query found so far
+	private static int depth;
+	// the answers of z3 are for the scopes as they are
+	private static boolean checked;
+	
 	public static boolean isSat (StringGraph g, PathCondition pc) {
 		stack1 = new Stack<LogicalORLinearIntegerConstraints>();
 		stack2 = new Stack<LinearIntegerConstraint>();
 		long startTime = System.currentTimeMillis();
-		boolean result = inner_isSat(g, pc);
+		boolean result;
+		try {
+			result = inner_isSat(g, pc);
+		} catch (RuntimeException e) {
+			// we do not know what z3 got of the last message
+			reset();
+			throw e;
+		}
 		duration = duration + (System.currentTimeMillis() - startTime);
 		if (result == false) {
 			//println ("Stack: [" + stack1.toString() + "]");
@@ -128,6 +151,7 @@ public class TranslateToZ3Inc {
 		//println ("[isSat] Bitvector: PC passed on: " + pc.header);
 		//println ("Entered Z3");
 		map = new HashMap<Vertex, BVExpr>();
+		depth = 0;
 		
 		if (z3Interface == null) {
 			try {
@@ -193,7 +217,6 @@ public class TranslateToZ3Inc {
 						scg.solve(pc);
 						PathCondition.flagSolved = true;
 						//println ("[isSat] solved " + global_pc.header.toString());
-						z3Interface.close(); z3Interface = null;
 						stack1 = new Stack<LogicalORLinearIntegerConstraints>();
 						stack2 = new Stack<LinearIntegerConstraint>();
 						
@@ -203,22 +226,31 @@ public class TranslateToZ3Inc {
 						//println ("[isSat] integer solver could not solve");
 						//println ("[isSat] string expr: " + expr.toString());
 						//println ("[isSat] not solved: " + global_pc.header.toString());
-						z3Interface.close(); z3Interface = null;
 						return false;
 					}
 				}
 				else {
 					//println ("No change to path condition");
-					z3Interface.close(); z3Interface = null;
 					return false;
 				}
 			}
 		}
 		//println ("Done with edges");
 		if (!Z3EverCalled) {
-			z3Interface.close(); z3Interface = null;
 			return true;
 		}
+		// the previous query may have had more messages, and z3 has to answer
+		// for this one
+		try {
+			popTo(depth);
+			if (!checked) {
+				z3Interface.sendIncMessage("");
+				checked = true;
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(0);
+		}
 		
 		//println ("[post] Formula to check: " + vc.trueExpr());
 		//println ("[post] On top of       : " + vc.getAssumptions());
@@ -239,13 +271,11 @@ public class TranslateToZ3Inc {
         		v.setSolution(rawData);
         	}
            // System.out.//println("Satisfiable (Invalid)\n");
-        	z3Interface.close(); z3Interface = null;
         	//println ("Returning true");
             return true;
 		}
 		else {
 			//println ("Z3 interface UNSAT");
-			z3Interface.close(); z3Interface = null;
 			return false;
 		}
 	}
@@ -1844,19 +1874,20 @@ public class TranslateToZ3Inc {
 		//println ("[post] Formula to check: " + ee);
 		//println ("[post] On top of       : " + vc.getAssumptions());
 		//long timing = System.currentTimeMillis();
+		boolean sat = false;
 		try {
 			StringBuffer sb = new StringBuffer ();
 			sb.append ("(assert ");
 			sb.append (ee.toSMTLib());
 			sb.append (")");
-			z3Interface.sendIncMessage(sb.toString());
+			sat = send(sb.toString());
 		} catch (IOException e) {
 			e.printStackTrace();
 			System.exit(0);
 		}
 		//totalTiming += System.currentTimeMillis() - timing;
 		Z3EverCalled = true;
-		if (z3Interface.isSAT()) {
+		if (sat) {
 			//println ("[post]: " + vc.);
 			//vc.pop();
 			//println ("[post] returned true");
@@ -1868,6 +1899,47 @@ public class TranslateToZ3Inc {
 		}
 	}
 	
+	/*
+	 * Sends msg in a scope of its own, unless the previous query sent the same
+	 * message at this depth.
+	 */
+	private static boolean send (String msg) throws IOException {
+		if (depth < scopes.size() && scopes.get(depth).equals(msg)) {
+			return scopeResults.get(depth++);
+		}
+		popTo(depth);
+		z3Interface.sendCommand("(push 1)");
+		z3Interface.sendIncMessage(msg);
+		scopes.add(msg);
+		scopeResults.add(z3Interface.isSAT());
+		depth++;
+		checked = true;
+		return z3Interface.isSAT();
+	}
+	
+	private static void popTo (int n) throws IOException {
+		int pops = scopes.size() - n;
+		if (pops > 0) {
+			z3Interface.sendCommand("(pop " + pops + ")");
+			scopes.subList(n, scopes.size()).clear();
+			scopeResults.subList(n, scopeResults.size()).clear();
+			checked = false;
+		}
+	}
+	
+	/**
+	 * Stops z3; the next query starts from scratch.
+	 */
+	public static void reset () {
+		if (z3Interface != null) {
+			z3Interface.close();
+			z3Interface = null;
+		}
+		scopes.clear();
+		scopeResults.clear();
+		checked = false;
+	}
+	
 	private static boolean[] toBits (char c) {
 		boolean[] result = new boolean[8];
 		int num = (int) c;
@@ -1895,7 +1967,7 @@ public class TranslateToZ3Inc {
 			try {
 				BVVar var = (BVVar) result;
 				//println ("Var: " + var.toSMTLibDec());
-				z3Interface.sendIncMessage(var.toSMTLibDec());
+				send(var.toSMTLibDec());
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
@@ -157,6 +157,14 @@ public class Z3Interface {
 		}
 	}
 	
+	/**
+	 * Sends a command that has no answer, e.g. push or pop.
+	 */
+	public void sendCommand (String msg) throws IOException {
+		stdin.write((msg + "\n").getBytes());
+		stdin.flush();
+	}
+	
 	public void sendIncMessage (String msg) throws IOException{
 		//println ("Entered sendIncMessage");
 		if (Z3Version.equals (Z3_2_18)) {
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.summaries;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import gov.nasa.jpf.symbc.numeric.BinaryLinearIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.BinaryNonLinearIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.BinaryRealExpression;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.Expression;
+import gov.nasa.jpf.symbc.numeric.IfThenElseIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.IfThenElseRealExpression;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.IntegerExpression;
+import gov.nasa.jpf.symbc.numeric.MathRealExpression;
+import gov.nasa.jpf.symbc.numeric.Operator;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.RealConstant;
+import gov.nasa.jpf.symbc.numeric.RealExpression;
+
+/**
+ * Replaces the formal arguments of a summary by the actual ones. Only the
+ * numeric expressions are handled; isSupported tells whether an expression
+ * can be substituted in.
+ */
+public class Substitution {
+
+	private final Map<Expression, Expression> map = new IdentityHashMap<Expression, Expression>();
+
+	public Substitution(Expression[] formals, Expression[] actuals) {
+		for (int i = 0; i < formals.length; i++) {
+			map.put(formals[i], actuals[i]);
+		}
+	}
+
+	/**
+	 * Returns whether e only consists of constants, the given variables and
+	 * the operations substitute knows about.
+	 */
+	public static boolean isSupported(Expression e, Expression[] variables) {
+		if (e instanceof IntegerConstant || e instanceof RealConstant)
+			return true;
+		for (Expression v : variables) {
+			if (e == v)
+				return true;
+		}
+		if (e instanceof BinaryLinearIntegerExpression) {
+			BinaryLinearIntegerExpression b = (BinaryLinearIntegerExpression) e;
+			return isSupported(b.getLeft(), variables) && isSupported(b.getRight(), variables);
+		} else if (e instanceof BinaryNonLinearIntegerExpression) {
+			BinaryNonLinearIntegerExpression b = (BinaryNonLinearIntegerExpression) e;
+			return isSupported(b.left, variables) && isSupported(b.right, variables);
+		} else if (e instanceof BinaryRealExpression) {
+			BinaryRealExpression b = (BinaryRealExpression) e;
+			return isSupported(b.getLeft(), variables) && isSupported(b.getRight(), variables);
+		} else if (e instanceof MathRealExpression) {
+			MathRealExpression m = (MathRealExpression) e;
+			return isSupported(m.getArg1(), variables)
+					&& (m.getArg2() == null || isSupported(m.getArg2(), variables));
+		} else if (e instanceof IfThenElseIntegerExpression) {
+			IfThenElseIntegerExpression ite = (IfThenElseIntegerExpression) e;
+			return isSupported(ite.left, variables) && isSupported(ite.right, variables)
+					&& isSupported(ite.thenExpr, variables) && isSupported(ite.elseExpr, variables);
+		} else if (e instanceof IfThenElseRealExpression) {
+			IfThenElseRealExpression ite = (IfThenElseRealExpression) e;
+			return isSupported(ite.left, variables) && isSupported(ite.right, variables)
+					&& isSupported(ite.thenExpr, variables) && isSupported(ite.elseExpr, variables);
+		}
+		return false;
+	}
+
+	public Expression apply(Expression e) {
+		Expression s = map.get(e);
+		if (s != null)
+			return s;
+		if (e instanceof IntegerConstant || e instanceof RealConstant) {
+			return e;
+		} else if (e instanceof BinaryLinearIntegerExpression) {
+			BinaryLinearIntegerExpression b = (BinaryLinearIntegerExpression) e;
+			return apply(b.getOp(), apply(b.getLeft()), apply(b.getRight()));
+		} else if (e instanceof BinaryNonLinearIntegerExpression) {
+			BinaryNonLinearIntegerExpression b = (BinaryNonLinearIntegerExpression) e;
+			return apply(b.op, apply(b.left), apply(b.right));
+		} else if (e instanceof BinaryRealExpression) {
+			BinaryRealExpression b = (BinaryRealExpression) e;
+			RealExpression l = (RealExpression) apply(b.getLeft());
+			RealExpression r = (RealExpression) apply(b.getRight());
+			switch (b.getOp()) {
+			case PLUS:
+				return l._plus(r);
+			case MINUS:
+				return l._minus(r);
+			case MUL:
+				return l._mul(r);
+			case DIV:
+				return l._div(r);
+			default:
+				throw new RuntimeException("## Error: cannot substitute into " + e);
+			}
+		} else if (e instanceof MathRealExpression) {
+			MathRealExpression m = (MathRealExpression) e;
+			RealExpression a1 = (RealExpression) apply(m.getArg1());
+			if (m.getArg2() == null)
+				return new MathRealExpression(m.getOp(), a1);
+			return new MathRealExpression(m.getOp(), a1, (RealExpression) apply(m.getArg2()));
+		} else if (e instanceof IfThenElseIntegerExpression) {
+			IfThenElseIntegerExpression ite = (IfThenElseIntegerExpression) e;
+			return new IfThenElseIntegerExpression((IntegerExpression) apply(ite.left), ite.comp,
+					(IntegerExpression) apply(ite.right), (IntegerExpression) apply(ite.thenExpr),
+					(IntegerExpression) apply(ite.elseExpr));
+		} else if (e instanceof IfThenElseRealExpression) {
+			IfThenElseRealExpression ite = (IfThenElseRealExpression) e;
+			return new IfThenElseRealExpression((RealExpression) apply(ite.left), ite.comp,
+					(RealExpression) apply(ite.right), (RealExpression) apply(ite.thenExpr),
+					(RealExpression) apply(ite.elseExpr));
+		}
+		throw new RuntimeException("## Error: cannot substitute into " + e);
+	}
+
+	private static IntegerExpression apply(Operator op, Expression left, Expression right) {
+		IntegerExpression l = (IntegerExpression) left;
+		IntegerExpression r = (IntegerExpression) right;
+		switch (op) {
+		case PLUS:
+			return l._plus(r);
+		case MINUS:
+			return l._minus(r);
+		case MUL:
+			return l._mul(r);
+		case DIV:
+			return l._div(r);
+		case REM:
+			return l._rem(r);
+		case AND:
+			return l._and(r);
+		case OR:
+			return l._or(r);
+		case XOR:
+			return l._xor(r);
+		case SHIFTL:
+			return l._shiftL(r);
+		case SHIFTR:
+			return l._shiftR(r);
+		case SHIFTUR:
+			return l._shiftUR(r);
+		case CMP:
+			return l._cmp(r);
+		default:
+			throw new RuntimeException("## Error: cannot substitute into " + left + op + right);
+		}
+	}
+
+	/**
+	 * Adds the constraint "left c right" to pc, whatever the types of the
+	 * sides are.
+	 */
+	public static void addConstraint(PathCondition pc, Expression left, Comparator c, Expression right) {
+		if (left instanceof IntegerExpression) {
+			if (right instanceof IntegerExpression)
+				pc._addDet(c, (IntegerExpression) left, (IntegerExpression) right);
+			else
+				pc._addDet(c, (IntegerExpression) left, (RealExpression) right);
+		} else {
+			if (right instanceof IntegerExpression)
+				pc._addDet(c, (RealExpression) left, (IntegerExpression) right);
+			else
+				pc._addDet(c, (RealExpression) left, (RealExpression) right);
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.summaries;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.Expression;
+
+/**
+ * The summary of a method: one case per path through it, each with the
+ * constraints the path adds over the formal arguments and the expression it
+ * returns. The cases together cover all the paths that return normally.
+ */
+public class Summary implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public enum State {
+		RECORDING, // the method is being explored to build the summary
+		COMPLETE, // all cases are known
+		UNUSABLE // the method cannot be summarized, it is always executed
+	}
+
+	public static class Case implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		public final Expression[] lefts;
+		public final Comparator[] comparators;
+		public final Expression[] rights;
+		public final Expression result;
+
+		public Case(List<Expression> lefts, List<Comparator> comparators, List<Expression> rights, Expression result) {
+			this.lefts = lefts.toArray(new Expression[lefts.size()]);
+			this.comparators = comparators.toArray(new Comparator[comparators.size()]);
+			this.rights = rights.toArray(new Expression[rights.size()]);
+			this.result = result;
+		}
+
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < lefts.length; i++) {
+				if (i > 0)
+					sb.append(" && ");
+				sb.append(lefts[i]).append(comparators[i]).append(rights[i]);
+			}
+			return ((lefts.length == 0) ? "true" : sb.toString()) + " -> " + result;
+		}
+	}
+
+	public final String method;
+	public final Expression[] formals;
+	public final List<Case> cases = new ArrayList<Case>();
+	State state;
+
+	// the choice generator of the call the summary is recorded at
+	transient SummaryChoiceGenerator recorder;
+
+	public Summary(String method, Expression[] formals) {
+		this.method = method;
+		this.formals = formals;
+		this.state = State.RECORDING;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public String toString() {
+		StringBuilder sb = new StringBuilder(method).append(" (").append(state).append(")");
+		for (Case c : cases) {
+			sb.append("\n  ").append(c);
+		}
+		return sb.toString();
+	}
+}
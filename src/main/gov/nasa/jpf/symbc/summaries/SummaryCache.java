@@ -0,0 +1,524 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.summaries;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.jvm.bytecode.JVMInvokeInstruction;
+import gov.nasa.jpf.symbc.bytecode.BytecodeUtils;
+import gov.nasa.jpf.symbc.bytecode.BytecodeUtils.VarType;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.Expression;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.MinMax;
+import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.RealConstant;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.SymbolicReal;
+import gov.nasa.jpf.vm.ChoiceGenerator;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.LocalVarInfo;
+import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.StackFrame;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.Types;
+
+/**
+ * Method summaries for compositional symbolic execution. The first call of a
+ * summarized method with symbolic arguments executes the callee on fresh
+ * symbolic variables and records one {@link Summary.Case} per path that
+ * returns (see SummaryListener); once all of them are explored, later calls
+ * with the same concrete arguments branch over the cases instead of executing
+ * the callee again.
+ *
+ * Only static, side-effect-free methods with primitive arguments and a
+ * primitive result are summarized. They are selected with the
+ * gov.nasa.jpf.symbc.Summarize annotation or with
+ *
+ * symbolic.summaries=true
+ * symbolic.summaries.methods=pkg.Class.method,...
+ * symbolic.summaries.cache_size=n  summaries kept in memory (default 100)
+ * symbolic.summaries.max_cases=n   larger summaries are dropped (default 64)
+ * symbolic.summaries.file=f        summaries are loaded from and saved to f
+ *
+ * Recording needs the SummaryListener, and depth-first search: a summary is
+ * complete once the search has backtracked over the call it is recorded at,
+ * which other searches do with cases still unexplored. With other searches
+ * only the summaries loaded from symbolic.summaries.file are used. Summaries
+ * are keyed with a hash of the callee's code, so saved ones are not used
+ * after the method has changed.
+ */
+public class SummaryCache {
+
+	static int cacheSize = 100;
+	static int maxCases = 64;
+	static String[] methods = null;
+	static File file = null;
+	// whether the search is depth-first, see lookup()
+	static boolean canRecord = true;
+	static boolean listenerChecked = false;
+
+	// least recently used summaries go first, unless they are being recorded
+	static final Map<String, Summary> summaries = new LinkedHashMap<String, Summary>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Summary> eldest) {
+			return size() > cacheSize && eldest.getValue().state != Summary.State.RECORDING;
+		}
+	};
+
+	// whether a method can be summarized, decided once per method
+	static final Map<MethodInfo, Boolean> summarized = new HashMap<MethodInfo, Boolean>();
+	static final Map<MethodInfo, String> codeHashes = new HashMap<MethodInfo, String>();
+
+	static final String DFS = "gov.nasa.jpf.search.DFSearch";
+
+	public static void configure(Config conf) {
+		cacheSize = conf.getInt("symbolic.summaries.cache_size", 100);
+		maxCases = conf.getInt("symbolic.summaries.max_cases", 64);
+		methods = conf.getStringArray("symbolic.summaries.methods");
+		String f = conf.getString("symbolic.summaries.file");
+		file = (f == null) ? null : new File(f);
+		String search = conf.getString("search.class", DFS);
+		if (search.startsWith("."))
+			search = "gov.nasa.jpf" + search;
+		canRecord = search.equals(DFS);
+		if (!canRecord)
+			System.out.println("## Warning: method summaries are only recorded with " + DFS + ", not " + search);
+		listenerChecked = false;
+		summaries.clear();
+		summarized.clear();
+		codeHashes.clear();
+		if (file != null && file.exists())
+			load();
+	}
+
+	public static boolean isSummarized(MethodInfo mi) {
+		Boolean b = summarized.get(mi);
+		if (b == null) {
+			b = isSelected(mi) && isSummarizable(mi);
+			summarized.put(mi, b);
+		}
+		return b;
+	}
+
+	static boolean isSelected(MethodInfo mi) {
+		if (mi.getAnnotation("gov.nasa.jpf.symbc.Summarize") != null)
+			return true;
+		if (methods != null) {
+			List<String> list = Arrays.asList(methods);
+			return list.contains(mi.getBaseName()) || list.contains(mi.getFullName());
+		}
+		return false;
+	}
+
+	static boolean isSummarizable(MethodInfo mi) {
+		String reason = null;
+		if (!mi.isStatic() || mi.isNative() || mi.isSynchronized()) {
+			reason = "not a static method";
+		} else if (!isPrimitive(mi.getReturnTypeCode()) || mi.getReturnTypeCode() == Types.T_VOID) {
+			reason = "no primitive result";
+		} else {
+			for (byte t : mi.getArgumentTypes()) {
+				if (!isPrimitive(t))
+					reason = "non-primitive arguments";
+			}
+			for (Instruction insn : mi.getInstructions()) {
+				String m = insn.getMnemonic();
+				// calls, field accesses, allocations and locks
+				if (m.startsWith("invoke") || m.endsWith("field") || m.endsWith("static") || m.contains("new")
+						|| m.startsWith("monitor"))
+					reason = "it has side effects or calls other methods";
+			}
+		}
+		if (reason != null) {
+			System.out.println("## Warning: cannot summarize " + mi.getFullName() + ": " + reason);
+			return false;
+		}
+		return true;
+	}
+
+	static boolean isPrimitive(byte t) {
+		return t != Types.T_REFERENCE && t != Types.T_ARRAY;
+	}
+
+	/**
+	 * Called from BytecodeUtils.execute for every invoke. Returns the next
+	 * instruction if the call was taken care of, or null if the callee is to
+	 * be executed.
+	 */
+	public static Instruction invoke(JVMInvokeInstruction inv, MethodInfo mi, ThreadInfo th) {
+		if (!isSummarized(mi) || !mi.getClassInfo().isInitialized())
+			return null;
+
+		ChoiceGenerator<?> cg = th.getVM().getChoiceGenerator();
+		if (th.isFirstStepInsn()) {
+			if (!(cg instanceof SummaryChoiceGenerator) || ((SummaryChoiceGenerator) cg).invoke != inv)
+				return null;
+			SummaryChoiceGenerator scg = (SummaryChoiceGenerator) cg;
+			if (scg.recording)
+				return record(scg, th);
+			else
+				return apply(scg, th);
+		}
+
+		Expression[] actuals = getActuals(inv, mi, th);
+		if (actuals == null) // all the arguments are concrete
+			return null;
+		String key = key(mi, actuals);
+		Summary s = lookup(key, cg);
+		SummaryChoiceGenerator scg;
+		if (s == null) {
+			if (!canRecord)
+				return null;
+			checkListener(th);
+			s = new Summary(key, formals(mi, actuals));
+			scg = new SummaryChoiceGenerator(s, true, inv, mi, actuals);
+			s.recorder = scg;
+			summaries.put(key, s);
+		} else if (s.state == Summary.State.COMPLETE) {
+			scg = new SummaryChoiceGenerator(s, false, inv, mi, actuals);
+		} else { // recursive call while recording, or unusable
+			return null;
+		}
+		scg.setOffset(inv.getPosition());
+		scg.setMethodName(inv.getMethodInfo().getFullName());
+		th.getVM().setNextChoiceGenerator(scg);
+		return inv;
+	}
+
+	/*
+	 * Without the listener the fresh variables would never be tied to the
+	 * actual arguments.
+	 */
+	static void checkListener(ThreadInfo th) {
+		if (!listenerChecked) {
+			if (th.getVM().getJPF().getListenerOfType(SummaryListener.class) == null)
+				throw new RuntimeException("## Error: symbolic.summaries needs listener="
+						+ SummaryListener.class.getName());
+			listenerChecked = true;
+		}
+	}
+
+	/*
+	 * The callee is executed with fresh variables for the symbolic arguments;
+	 * SummaryListener ties them to the actual ones when it returns.
+	 */
+	static Instruction record(SummaryChoiceGenerator scg, ThreadInfo th) {
+		StackFrame sf = th.getModifiableTopFrame();
+		MethodInfo mi = scg.callee;
+		byte[] types = mi.getArgumentTypes();
+		int stackIdx = scg.invoke.getArgSize() - 1;
+		for (int j = 0; j < types.length; j++) {
+			if (scg.summary.formals[j] != null)
+				sf.setOperandAttr(stackIdx, scg.summary.formals[j]);
+			stackIdx -= Types.getTypeSize(types[j]);
+		}
+
+		PathCondition pc = previousPC(scg);
+		scg.setCurrentPC(pc);
+		scg.entryHeader = pc.header;
+		scg.entryStringCount = pc.spc.count();
+		scg.entering = true;
+		return null;
+	}
+
+	static Instruction apply(SummaryChoiceGenerator scg, ThreadInfo th) {
+		JVMInvokeInstruction inv = scg.invoke;
+		Summary.Case c = scg.summary.cases.get(scg.getNextChoice());
+		Substitution subst = new Substitution(scg.summary.formals, scg.actuals);
+
+		PathCondition pc = previousPC(scg);
+		for (int i = 0; i < c.lefts.length; i++) {
+			Substitution.addConstraint(pc, subst.apply(c.lefts[i]), c.comparators[i], subst.apply(c.rights[i]));
+		}
+		if (!pc.simplify()) {
+			th.getVM().getSystemState().setIgnored(true);
+			return inv.getNext(th);
+		}
+		scg.setCurrentPC(pc);
+
+		Expression result = subst.apply(c.result);
+		StackFrame sf = th.getModifiableTopFrame();
+		sf.pop(inv.getArgSize());
+		switch (scg.callee.getReturnTypeCode()) {
+		case Types.T_LONG:
+			if (result instanceof IntegerConstant) {
+				sf.pushLong(((IntegerConstant) result).value);
+			} else {
+				sf.pushLong(0);
+				sf.setLongOperandAttr(result);
+			}
+			break;
+		case Types.T_DOUBLE:
+			if (result instanceof RealConstant) {
+				sf.pushDouble(((RealConstant) result).value);
+			} else {
+				sf.pushDouble(0);
+				sf.setLongOperandAttr(result);
+			}
+			break;
+		case Types.T_FLOAT:
+			if (result instanceof RealConstant) {
+				sf.pushFloat((float) ((RealConstant) result).value);
+			} else {
+				sf.pushFloat(0);
+				sf.setOperandAttr(result);
+			}
+			break;
+		default:
+			if (result instanceof IntegerConstant) {
+				sf.push((int) ((IntegerConstant) result).value);
+			} else {
+				sf.push(0);
+				sf.setOperandAttr(result);
+			}
+		}
+		return inv.getNext(th);
+	}
+
+	static PathCondition previousPC(ChoiceGenerator<?> cg) {
+		PCChoiceGenerator prev = cg.getPreviousChoiceGeneratorOfType(PCChoiceGenerator.class);
+		if (prev == null || prev.peekCurrentPC() == null)
+			return new PathCondition();
+		return prev.getCurrentPC();
+	}
+
+	/*
+	 * Returns the arguments of the call, with constants for the concrete
+	 * ones, or null if none of them is symbolic.
+	 */
+	static Expression[] getActuals(JVMInvokeInstruction inv, MethodInfo mi, ThreadInfo th) {
+		StackFrame sf = th.getTopFrame();
+		byte[] types = mi.getArgumentTypes();
+		Expression[] actuals = new Expression[types.length];
+		boolean symbolic = false;
+		int stackIdx = inv.getArgSize() - 1;
+		for (int j = 0; j < types.length; j++) {
+			Object attr = sf.getOperandAttr(stackIdx);
+			if (attr instanceof Expression) {
+				actuals[j] = (Expression) attr;
+				symbolic = true;
+			} else {
+				switch (types[j]) {
+				case Types.T_LONG:
+					actuals[j] = new IntegerConstant(sf.peekLong(stackIdx - 1));
+					break;
+				case Types.T_DOUBLE:
+					actuals[j] = new RealConstant(Types.longToDouble(sf.peekLong(stackIdx - 1)));
+					break;
+				case Types.T_FLOAT:
+					actuals[j] = new RealConstant(Types.intToFloat(sf.peek(stackIdx)));
+					break;
+				default:
+					actuals[j] = new IntegerConstant(sf.peek(stackIdx));
+				}
+			}
+			stackIdx -= Types.getTypeSize(types[j]);
+		}
+		return symbolic ? actuals : null;
+	}
+
+	/*
+	 * Summaries are shared by the calls that agree on the concrete arguments;
+	 * the symbolic ones are replaced by the formals.
+	 */
+	static String key(MethodInfo mi, Expression[] actuals) {
+		StringBuilder sb = new StringBuilder(mi.getFullName()).append('#').append(codeHash(mi)).append('[');
+		for (int j = 0; j < actuals.length; j++) {
+			if (j > 0)
+				sb.append(',');
+			if (actuals[j] instanceof IntegerConstant)
+				sb.append(((IntegerConstant) actuals[j]).value);
+			else if (actuals[j] instanceof RealConstant)
+				sb.append(((RealConstant) actuals[j]).value);
+			else
+				sb.append('*');
+		}
+		return sb.append(']').toString();
+	}
+
+	/*
+	 * A hash of the instructions of mi (with their operands), so that
+	 * summaries loaded from a file are only used for the code they were
+	 * recorded with.
+	 */
+	static String codeHash(MethodInfo mi) {
+		String hash = codeHashes.get(mi);
+		if (hash == null) {
+			CRC32 crc = new CRC32();
+			for (Instruction insn : mi.getInstructions()) {
+				crc.update(insn.toString().getBytes());
+				crc.update('\n');
+			}
+			crc.update((mi.getMaxLocals() + " " + mi.getMaxStack()).getBytes());
+			hash = Long.toHexString(crc.getValue());
+			codeHashes.put(mi, hash);
+		}
+		return hash;
+	}
+
+	static Expression[] formals(MethodInfo mi, Expression[] actuals) {
+		byte[] types = mi.getArgumentTypes();
+		LocalVarInfo[] argsInfo = mi.getArgumentLocalVars();
+		Expression[] formals = new Expression[types.length];
+		for (int j = 0; j < types.length; j++) {
+			if (actuals[j] instanceof IntegerConstant || actuals[j] instanceof RealConstant)
+				continue;
+			String name = (argsInfo != null) ? argsInfo[j].getName() : "arg" + j;
+			switch (types[j]) {
+			case Types.T_FLOAT:
+			case Types.T_DOUBLE: {
+				String varname = BytecodeUtils.varName(name, VarType.REAL);
+				formals[j] = new SymbolicReal(varname, MinMax.getVarMinDouble(varname), MinMax.getVarMaxDouble(varname));
+				break;
+			}
+			case Types.T_LONG: {
+				String varname = BytecodeUtils.varName(name, VarType.INT);
+				formals[j] = new SymbolicInteger(varname, MinMax.getVarMinLong(varname), MinMax.getVarMaxLong(varname));
+				break;
+			}
+			case Types.T_SHORT: {
+				String varname = BytecodeUtils.varName(name, VarType.INT);
+				formals[j] = new SymbolicInteger(varname, MinMax.getVarMinShort(varname), MinMax.getVarMaxShort(varname));
+				break;
+			}
+			case Types.T_BYTE: {
+				String varname = BytecodeUtils.varName(name, VarType.INT);
+				formals[j] = new SymbolicInteger(varname, MinMax.getVarMinByte(varname), MinMax.getVarMaxByte(varname));
+				break;
+			}
+			case Types.T_CHAR: {
+				String varname = BytecodeUtils.varName(name, VarType.INT);
+				formals[j] = new SymbolicInteger(varname, MinMax.getVarMinChar(varname), MinMax.getVarMaxChar(varname));
+				break;
+			}
+			case Types.T_BOOLEAN:
+				formals[j] = new SymbolicInteger(BytecodeUtils.varName(name, VarType.INT), 0, 1);
+				break;
+			default: {
+				String varname = BytecodeUtils.varName(name, VarType.INT);
+				formals[j] = new SymbolicInteger(varname, MinMax.getVarMinInt(varname), MinMax.getVarMaxInt(varname));
+			}
+			}
+		}
+		return formals;
+	}
+
+	/*
+	 * A summary that is being recorded is complete as soon as the search has
+	 * backtracked over the call it is recorded at.
+	 */
+	static Summary lookup(String key, ChoiceGenerator<?> cg) {
+		Summary s = summaries.get(key);
+		if (s != null && s.state == Summary.State.RECORDING && !isOnPath(s.recorder, cg))
+			finish(s);
+		return s;
+	}
+
+	static boolean isOnPath(ChoiceGenerator<?> recorder, ChoiceGenerator<?> cg) {
+		for (; cg != null; cg = cg.getPreviousChoiceGenerator()) {
+			if (cg == recorder)
+				return true;
+		}
+		return false;
+	}
+
+	static void finish(Summary s) {
+		s.state = s.cases.isEmpty() ? Summary.State.UNUSABLE : Summary.State.COMPLETE;
+		s.recorder = null;
+	}
+
+	/**
+	 * Returns the summaries whose recorded call is still on the stack, i.e.
+	 * has not returned yet.
+	 */
+	static SummaryChoiceGenerator[] activeRecorders(ThreadInfo ti) {
+		List<SummaryChoiceGenerator> active = new ArrayList<SummaryChoiceGenerator>();
+		for (StackFrame frame = ti.getTopFrame(); frame != null; frame = frame.getPrevious()) {
+			SummaryChoiceGenerator scg = frame.getFrameAttr(SummaryChoiceGenerator.class);
+			if (scg != null)
+				active.add(scg);
+		}
+		return active.toArray(new SummaryChoiceGenerator[active.size()]);
+	}
+
+	/**
+	 * Adds "formal == actual" for the symbolic arguments of a recorded call.
+	 * This always holds, whatever happens to the summary.
+	 */
+	static void bindFormals(SummaryChoiceGenerator scg, PathCondition pc) {
+		Expression[] formals = scg.summary.formals;
+		for (int j = 0; j < formals.length; j++) {
+			if (formals[j] != null)
+				Substitution.addConstraint(pc, formals[j], Comparator.EQ, scg.actuals[j]);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	static void load() {
+		try {
+			ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				summaries.putAll((Map<String, Summary>) in.readObject());
+			} finally {
+				in.close();
+			}
+		} catch (Exception e) {
+			System.out.println("## Warning: cannot read method summaries from " + file + ": " + e);
+		}
+	}
+
+	static void save() {
+		if (file == null)
+			return;
+		Map<String, Summary> complete = new HashMap<String, Summary>();
+		for (Map.Entry<String, Summary> e : summaries.entrySet()) {
+			if (e.getValue().state == Summary.State.COMPLETE)
+				complete.put(e.getKey(), e.getValue());
+		}
+		try {
+			ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			try {
+				out.writeObject(complete);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			System.out.println("## Warning: cannot write method summaries to " + file + ": " + e);
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.summaries;
+
+import gov.nasa.jpf.jvm.bytecode.JVMInvokeInstruction;
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.Expression;
+import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
+import gov.nasa.jpf.vm.MethodInfo;
+
+/**
+ * The choice generator of a call to a summarized method. When the summary is
+ * complete there is one choice per case; otherwise there is a single choice,
+ * under which the callee is executed to record the summary.
+ */
+public class SummaryChoiceGenerator extends PCChoiceGenerator {
+
+	final Summary summary;
+	final boolean recording;
+	final JVMInvokeInstruction invoke;
+	final MethodInfo callee;
+	final Expression[] actuals;
+	// set when the callee is about to be entered for recording, see SummaryListener
+	boolean entering;
+
+	// the path condition and the number of string constraints at the call
+	Constraint entryHeader;
+	int entryStringCount;
+
+	public SummaryChoiceGenerator(Summary summary, boolean recording, JVMInvokeInstruction invoke, MethodInfo callee,
+			Expression[] actuals) {
+		super(recording ? 1 : summary.cases.size());
+		this.summary = summary;
+		this.recording = recording;
+		this.invoke = invoke;
+		this.callee = callee;
+		this.actuals = actuals;
+	}
+
+	public Summary getSummary() {
+		return summary;
+	}
+
+	public boolean isRecording() {
+		return recording;
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.summaries;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.PropertyListenerAdapter;
+import gov.nasa.jpf.jvm.bytecode.DRETURN;
+import gov.nasa.jpf.jvm.bytecode.FRETURN;
+import gov.nasa.jpf.jvm.bytecode.IRETURN;
+import gov.nasa.jpf.jvm.bytecode.JVMInvokeInstruction;
+import gov.nasa.jpf.jvm.bytecode.JVMReturnInstruction;
+import gov.nasa.jpf.jvm.bytecode.LRETURN;
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.Expression;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.MixedConstraint;
+import gov.nasa.jpf.symbc.numeric.NonLinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.RealConstant;
+import gov.nasa.jpf.symbc.numeric.RealConstraint;
+import gov.nasa.jpf.vm.ChoiceGenerator;
+import gov.nasa.jpf.vm.ElementInfo;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.StackFrame;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * Records the cases of method summaries (see {@link SummaryCache}): when a
+ * summarized callee returns, the constraints it added to the path condition
+ * and its result become a case of the summary, and the fresh variables it was
+ * executed with are tied to the actual arguments. Paths that throw an
+ * exception in the callee or are cut by the search make the summary unusable.
+ * Complete summaries are saved to symbolic.summaries.file at the end.
+ */
+public class SummaryListener extends PropertyListenerAdapter {
+
+	public SummaryListener(Config conf, JPF jpf) {
+	}
+
+	/*
+	 * The frame the recorded call pushes carries its choice generator, so
+	 * that only that call's return makes a case: other calls of the same
+	 * method, e.g. later ones on the same path while the summary is still
+	 * being recorded, are executed as usual and leave it alone.
+	 */
+	@Override
+	public void instructionExecuted(VM vm, ThreadInfo ti, Instruction nextInstruction, Instruction insn) {
+		if (vm.getSystemState().isIgnored())
+			return;
+		if (insn instanceof JVMInvokeInstruction) {
+			ChoiceGenerator<?> cg = vm.getChoiceGenerator();
+			if (cg instanceof SummaryChoiceGenerator && ((SummaryChoiceGenerator) cg).entering
+					&& ((SummaryChoiceGenerator) cg).invoke == insn) {
+				SummaryChoiceGenerator scg = (SummaryChoiceGenerator) cg;
+				scg.entering = false;
+				StackFrame frame = ti.getModifiableTopFrame();
+				if (frame.getMethodInfo() == scg.callee)
+					frame.addFrameAttr(scg);
+			}
+		} else if (insn instanceof JVMReturnInstruction) {
+			JVMReturnInstruction ret = (JVMReturnInstruction) insn;
+			SummaryChoiceGenerator scg = ret.getReturnFrame().getFrameAttr(SummaryChoiceGenerator.class);
+			if (scg != null)
+				returned(scg, ret, vm, ti);
+		}
+	}
+
+	void returned(SummaryChoiceGenerator scg, JVMReturnInstruction insn, VM vm, ThreadInfo ti) {
+		ChoiceGenerator<?> cg = vm.getChoiceGenerator();
+		PCChoiceGenerator pcg = (cg instanceof PCChoiceGenerator) ? (PCChoiceGenerator) cg
+				: cg.getPreviousChoiceGeneratorOfType(PCChoiceGenerator.class);
+		PathCondition pc = pcg.getCurrentPC();
+		Summary summary = scg.summary;
+
+		if (summary.state == Summary.State.RECORDING) {
+			Summary.Case c = newCase(scg, pc, result(insn, ti));
+			if (c == null || summary.cases.size() >= SummaryCache.maxCases)
+				summary.state = Summary.State.UNUSABLE;
+			else
+				summary.cases.add(c);
+		}
+
+		SummaryCache.bindFormals(scg, pc);
+		if (pc.simplify()) {
+			pcg.setCurrentPC(pc);
+		} else {
+			vm.getSystemState().setIgnored(true);
+		}
+	}
+
+	/*
+	 * The constraints added since the call, or null if they cannot be part of
+	 * a summary.
+	 */
+	Summary.Case newCase(SummaryChoiceGenerator scg, PathCondition pc, Expression result) {
+		if (pc.spc.count() != scg.entryStringCount)
+			return null;
+		Expression[] formals = scg.summary.formals;
+		List<Expression> lefts = new ArrayList<Expression>();
+		List<Comparator> comparators = new ArrayList<Comparator>();
+		List<Expression> rights = new ArrayList<Expression>();
+		Constraint c = pc.header;
+		for (; c != null && c != scg.entryHeader; c = c.and) {
+			if (!(c instanceof LinearIntegerConstraint || c instanceof NonLinearIntegerConstraint
+					|| c instanceof RealConstraint || c instanceof MixedConstraint))
+				return null;
+			if (!Substitution.isSupported(c.getLeft(), formals) || !Substitution.isSupported(c.getRight(), formals))
+				return null;
+			lefts.add(c.getLeft());
+			comparators.add(c.getComparator());
+			rights.add(c.getRight());
+		}
+		if (c != scg.entryHeader || !Substitution.isSupported(result, formals))
+			return null;
+		return new Summary.Case(lefts, comparators, rights, result);
+	}
+
+	Expression result(JVMReturnInstruction insn, ThreadInfo ti) {
+		Object attr = insn.getReturnAttr(ti);
+		if (attr instanceof Expression)
+			return (Expression) attr;
+		if (insn instanceof IRETURN)
+			return new IntegerConstant(((IRETURN) insn).getReturnValue());
+		if (insn instanceof LRETURN)
+			return new IntegerConstant(((LRETURN) insn).getReturnValue());
+		if (insn instanceof FRETURN)
+			return new RealConstant(((FRETURN) insn).getReturnValue());
+		if (insn instanceof DRETURN)
+			return new RealConstant(((DRETURN) insn).getReturnValue());
+		return null;
+	}
+
+	/*
+	 * Paths that do not return normally would be missing from the summary; the
+	 * fresh variables are still tied to the actual arguments.
+	 */
+	void abandon(ThreadInfo ti) {
+		SummaryChoiceGenerator[] active = SummaryCache.activeRecorders(ti);
+		if (active.length == 0)
+			return;
+		ChoiceGenerator<?> cg = ti.getVM().getChoiceGenerator();
+		PCChoiceGenerator pcg = (cg instanceof PCChoiceGenerator) ? (PCChoiceGenerator) cg
+				: cg.getPreviousChoiceGeneratorOfType(PCChoiceGenerator.class);
+		PathCondition pc = pcg.getCurrentPC();
+		for (SummaryChoiceGenerator scg : active) {
+			scg.summary.state = Summary.State.UNUSABLE;
+			SummaryCache.bindFormals(scg, pc);
+		}
+		pcg.setCurrentPC(pc);
+	}
+
+	@Override
+	public void exceptionThrown(VM vm, ThreadInfo ti, ElementInfo thrownException) {
+		abandon(ti);
+	}
+
+	@Override
+	public void stateAdvanced(Search search) {
+		if (search.isVisitedState())
+			abandon(search.getVM().getCurrentThread());
+	}
+
+	@Override
+	public void searchConstraintHit(Search search) {
+		abandon(search.getVM().getCurrentThread());
+	}
+
+	@Override
+	public void searchFinished(Search search) {
+		SummaryCache.save();
+	}
+}
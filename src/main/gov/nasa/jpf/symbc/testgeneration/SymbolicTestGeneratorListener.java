@@ -148,7 +148,7 @@ public class SymbolicTestGeneratorListener extends ListenerAdapter {
     }
 
     PCChoiceGenerator pccg = vm.getLastChoiceGeneratorOfType(PCChoiceGenerator.class);
-    if (pccg == null || pccg.getCurrentPC() == null) {
+    if (pccg == null || pccg.peekCurrentPC() == null) {
       if (logger.isLoggable(Level.FINE)) {
         logger.log(Level.FINE, "No path condition for " + mi.getBaseName());
       }
@@ -291,7 +291,7 @@ public class SymbolicTestGeneratorListener extends ListenerAdapter {
 
     //check if we have a path condition
     PCChoiceGenerator pccg = vm.getLastChoiceGeneratorOfType(PCChoiceGenerator.class);
-    if (pccg == null || pccg.getCurrentPC() == null) {
+    if (pccg == null || pccg.peekCurrentPC() == null) {
       if (logger.isLoggable(Level.FINE)) {
         logger.log(Level.FINE, "No path condition for exception in {0}", mi.getLongName());
       }
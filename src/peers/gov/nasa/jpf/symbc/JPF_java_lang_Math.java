@@ -39,8 +39,11 @@ package gov.nasa.jpf.symbc;
 
 import gov.nasa.jpf.annotation.MJI;
 import gov.nasa.jpf.symbc.numeric.*;
+import gov.nasa.jpf.vm.ChoiceGenerator;
 import gov.nasa.jpf.vm.MJIEnv;
 import gov.nasa.jpf.vm.NativePeer;
+import gov.nasa.jpf.vm.SystemState;
+import gov.nasa.jpf.vm.ThreadInfo;
 
 /**
  * MJI NativePeer class for java.lang.Math library abstraction
@@ -53,74 +56,207 @@ public class JPF_java_lang_Math extends NativePeer{
   // increase performance. If we want to do that, we should probably inline
   // their real implementation here, instead of delegating (just a compromise)
 
-  // TODO  abs, min, max should be solved symbolically here
+  // abs, min and max are solved symbolically: with a decision procedure that
+  // accepts if-then-else terms the result is an ite expression and the path is
+  // not split; otherwise both outcomes of the comparison are explored, as the
+  // bytecode of the library methods would do
 
-//  public static double abs__D__D (MJIEnv env, int clsObjRef, double a) {
-//    // return Math.abs(a);
-//    System.err.println("Warning: Math.abs not modeled yet");
-//    return (a <= .0) ? -a : a;
-//  }
+  @MJI
+  public static int abs__I__I (MJIEnv env, int clsObjRef, int a) {
+	  IntegerExpression sym_a = intArg(env, 0);
+	  if (sym_a == null)
+		  return Math.abs(a);
+	  env.setReturnAttribute(ite(env, sym_a, Comparator.LT, new IntegerConstant(0), sym_a._neg(), sym_a));
+	  return 0; // don't care about concrete value
+  }
+
+  @MJI
+  public static long abs__J__J (MJIEnv env, int clsObjRef, long a) {
+	  IntegerExpression sym_a = intArg(env, 0);
+	  if (sym_a == null)
+		  return Math.abs(a);
+	  env.setReturnAttribute(ite(env, sym_a, Comparator.LT, new IntegerConstant(0), sym_a._neg(), sym_a));
+	  return 0;
+  }
+
+  @MJI
+  public static double abs__D__D (MJIEnv env, int clsObjRef, double a) {
+	  RealExpression sym_a = realArg(env, 0);
+	  if (sym_a == null)
+		  return Math.abs(a);
+	  env.setReturnAttribute(ite(env, sym_a, Comparator.LT, new RealConstant(0), sym_a._neg(), sym_a));
+	  return 0;
+  }
+
+  @MJI
+  public static float abs__F__F (MJIEnv env, int clsObjRef, float a) {
+	  RealExpression sym_a = realArg(env, 0);
+	  if (sym_a == null)
+		  return Math.abs(a);
+	  env.setReturnAttribute(ite(env, sym_a, Comparator.LT, new RealConstant(0), sym_a._neg(), sym_a));
+	  return 0;
+  }
+
+  @MJI
+  public static int max__II__I (MJIEnv env, int clsObjRef, int a, int b) {
+	  IntegerExpression sym_a = intArg(env, 0);
+	  IntegerExpression sym_b = intArg(env, 1);
+	  if (sym_a == null && sym_b == null)
+		  return Math.max(a, b);
+	  if (sym_a == null) sym_a = new IntegerConstant(a);
+	  if (sym_b == null) sym_b = new IntegerConstant(b);
+	  env.setReturnAttribute(ite(env, sym_a, Comparator.GE, sym_b, sym_a, sym_b));
+	  return 0;
+  }
+
+  @MJI
+  public static long max__JJ__J (MJIEnv env, int clsObjRef, long a, long b) {
+	  IntegerExpression sym_a = intArg(env, 0);
+	  IntegerExpression sym_b = intArg(env, 1);
+	  if (sym_a == null && sym_b == null)
+		  return Math.max(a, b);
+	  if (sym_a == null) sym_a = new IntegerConstant(a);
+	  if (sym_b == null) sym_b = new IntegerConstant(b);
+	  env.setReturnAttribute(ite(env, sym_a, Comparator.GE, sym_b, sym_a, sym_b));
+	  return 0;
+  }
+
+  // NaN and -0.0 are not modeled, as everywhere else for symbolic reals
+  @MJI
+  public static double max__DD__D (MJIEnv env, int clsObjRef, double a, double b) {
+	  RealExpression sym_a = realArg(env, 0);
+	  RealExpression sym_b = realArg(env, 1);
+	  if (sym_a == null && sym_b == null)
+		  return Math.max(a, b);
+	  if (sym_a == null) sym_a = new RealConstant(a);
+	  if (sym_b == null) sym_b = new RealConstant(b);
+	  env.setReturnAttribute(ite(env, sym_a, Comparator.GE, sym_b, sym_a, sym_b));
+	  return 0;
+  }
+
+  @MJI
+  public static float max__FF__F (MJIEnv env, int clsObjRef, float a, float b) {
+	  RealExpression sym_a = realArg(env, 0);
+	  RealExpression sym_b = realArg(env, 1);
+	  if (sym_a == null && sym_b == null)
+		  return Math.max(a, b);
+	  if (sym_a == null) sym_a = new RealConstant(a);
+	  if (sym_b == null) sym_b = new RealConstant(b);
+	  env.setReturnAttribute(ite(env, sym_a, Comparator.GE, sym_b, sym_a, sym_b));
+	  return 0;
+  }
+
+  @MJI
+  public static int min__II__I (MJIEnv env, int clsObjRef, int a, int b) {
+	  IntegerExpression sym_a = intArg(env, 0);
+	  IntegerExpression sym_b = intArg(env, 1);
+	  if (sym_a == null && sym_b == null)
+		  return Math.min(a, b);
+	  if (sym_a == null) sym_a = new IntegerConstant(a);
+	  if (sym_b == null) sym_b = new IntegerConstant(b);
+	  env.setReturnAttribute(ite(env, sym_a, Comparator.LE, sym_b, sym_a, sym_b));
+	  return 0;
+  }
+
+  @MJI
+  public static long min__JJ__J (MJIEnv env, int clsObjRef, long a, long b) {
+	  IntegerExpression sym_a = intArg(env, 0);
+	  IntegerExpression sym_b = intArg(env, 1);
+	  if (sym_a == null && sym_b == null)
+		  return Math.min(a, b);
+	  if (sym_a == null) sym_a = new IntegerConstant(a);
+	  if (sym_b == null) sym_b = new IntegerConstant(b);
+	  env.setReturnAttribute(ite(env, sym_a, Comparator.LE, sym_b, sym_a, sym_b));
+	  return 0;
+  }
+
+  @MJI
+  public static double min__DD__D (MJIEnv env, int clsObjRef, double a, double b) {
+	  RealExpression sym_a = realArg(env, 0);
+	  RealExpression sym_b = realArg(env, 1);
+	  if (sym_a == null && sym_b == null)
+		  return Math.min(a, b);
+	  if (sym_a == null) sym_a = new RealConstant(a);
+	  if (sym_b == null) sym_b = new RealConstant(b);
+	  env.setReturnAttribute(ite(env, sym_a, Comparator.LE, sym_b, sym_a, sym_b));
+	  return 0;
+  }
+
+  @MJI
+  public static float min__FF__F (MJIEnv env, int clsObjRef, float a, float b) {
+	  RealExpression sym_a = realArg(env, 0);
+	  RealExpression sym_b = realArg(env, 1);
+	  if (sym_a == null && sym_b == null)
+		  return Math.min(a, b);
+	  if (sym_a == null) sym_a = new RealConstant(a);
+	  if (sym_b == null) sym_b = new RealConstant(b);
+	  env.setReturnAttribute(ite(env, sym_a, Comparator.LE, sym_b, sym_a, sym_b));
+	  return 0;
+  }
+
+  private static IntegerExpression intArg(MJIEnv env, int i) {
+	  Object [] attrs = env.getArgAttributes();
+	  if (attrs == null || !(attrs[i] instanceof IntegerExpression))
+		  return null;
+	  return (IntegerExpression) attrs[i];
+  }
+
+  private static RealExpression realArg(MJIEnv env, int i) {
+	  Object [] attrs = env.getArgAttributes();
+	  if (attrs == null || !(attrs[i] instanceof RealExpression))
+		  return null;
+	  return (RealExpression) attrs[i];
+  }
+
+  // left comp right ? t : e; null if the invocation is repeated for the choice
+  // generator or the branch is infeasible
+  private static IntegerExpression ite(MJIEnv env, IntegerExpression left, Comparator comp,
+		  IntegerExpression right, IntegerExpression t, IntegerExpression e) {
+	  if (SymbolicConstraintsGeneral.supportsIte())
+		  return new IfThenElseIntegerExpression(left, comp, right, t, e);
+	  Boolean taken = branch(env, comp, left, right);
+	  if (taken == null)
+		  return null;
+	  return taken ? t : e;
+  }
+
+  private static RealExpression ite(MJIEnv env, RealExpression left, Comparator comp,
+		  RealExpression right, RealExpression t, RealExpression e) {
+	  if (SymbolicConstraintsGeneral.supportsIte())
+		  return new IfThenElseRealExpression(left, comp, right, t, e);
+	  Boolean taken = branch(env, comp, left, right);
+	  if (taken == null)
+		  return null;
+	  return taken ? t : e;
+  }
+
+  // splits the path on "left comp right": returns whether the condition holds
+  // on the current path, or null if there is no result (yet)
+  private static Boolean branch(MJIEnv env, Comparator comp, Expression left, Expression right) {
+	  ThreadInfo ti = env.getVM().getCurrentThread();
+	  SystemState ss = env.getVM().getSystemState();
+
+	  if (!ti.isFirstStepInsn()) {
+		  ss.setNextChoiceGenerator(new PCChoiceGenerator(2));
+		  env.repeatInvocation();
+		  return null;
+	  }
+
+	  ChoiceGenerator<?> cg = ss.getChoiceGenerator();
+	  assert (cg instanceof PCChoiceGenerator) : "expected PCChoiceGenerator, got: " + cg;
+	  ChoiceGenerator<?> prev_cg = cg.getPreviousChoiceGeneratorOfType(PCChoiceGenerator.class);
+	  PathCondition pc = (prev_cg == null) ? new PathCondition() : ((PCChoiceGenerator) prev_cg).getCurrentPC();
+
+	  boolean taken = ((PCChoiceGenerator) cg).getNextChoice() == 0;
+	  pc._addDet(taken ? comp : comp.not(), left, right);
+	  if (!pc.simplify()) {
+		  ss.setIgnored(true);
+		  return null;
+	  }
+	  ((PCChoiceGenerator) cg).setCurrentPC(pc);
+	  return taken;
+  }
 
-//  public static float abs__F__F (MJIEnv env, int clsObjRef, float a) {
-//	System.err.println("Warning: Math.abs not modeled yet");
-//    return Math.abs(a);
-//  }
-//
-//  public static int abs__I__I (MJIEnv env, int clsObjRef, int a) {
-//    //return Math.abs(a);
-//	System.err.println("Warning: Math.abs not modeled yet");
-//    return (a < 0) ? -a : a; // that's probably slightly faster
-//  }
-//
-//  public static long abs__J__J (MJIEnv env, int clsObjRef, long a) {
-//    //return Math.abs(a);
-//	System.err.println("Warning: Math.abs not modeled yet");
-//    return (a < 0) ? -a : a;
-//  }
-//
-//  public static double max__DD__D (MJIEnv env, int clsObjRef, double a, double b) {
-//    // that one has to handle inexact numbers, so it's probably not worth the hassle
-//    // to inline it
-//	System.err.println("Warning: Math.max not modeled yet");
-//    return Math.max(a, b);
-//  }
-//
-//  public static float max__FF__F (MJIEnv env, int clsObjRef, float a, float b) {
-//	System.err.println("Warning: Math.max not modeled yet");
-//	return Math.max(a, b);
-//  }
-//
-//  public static int max__II__I (MJIEnv env, int clsObjRef, int a, int b) {
-//    //return Math.max(a, b);
-//	System.err.println("Warning: Math.max not modeled yet");
-//    return (a >= b) ? a : b;
-//  }
-//
-//  public static long max__JJ__J (MJIEnv env, int clsObjRef, long a, long b) {
-//    //return Math.max(a, b);
-//	System.err.println("Warning: Math.max not modeled yet");
-//	return (a >= b) ? a : b;
-//  }
-//
-//  public static double min__DD__D (MJIEnv env, int clsObjRef, double a, double b) {
-//	System.err.println("Warning: Math.min not modeled yet");
-//	return Math.min(a, b);
-//  }
-//
-//  public static float min__FF__F (MJIEnv env, int clsObjRef, float a, float b) {
-//	System.err.println("Warning: Math.min not modeled yet");
-//	return Math.min(a, b);
-//  }
-//
-//  public static int min__II__I (MJIEnv env, int clsObjRef, int a, int b) {
-//	  System.err.println("Warning: Math.min not modeled yet");
-//	  return Math.min(a, b);
-//  }
-//
-//  public static long min__JJ__J (MJIEnv env, int clsObjRef, long a, long b) {
-//	  System.err.println("Warning: Math.min not modeled yet");
-//	  return Math.min(a, b);
-//  }
   @MJI
   public static double sqrt__D__D (MJIEnv env, int clsObjRef, double a) {
 	  Object [] attrs = env.getArgAttributes();
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc;
+
+import org.junit.Test;
+
+public class TestBitVectorSimplifier extends InvokeTest {
+
+  void testBitOps(int x, int y) {
+    if ((x & -1) != x || (x | 0) != x || (x ^ x) != 0)
+      throw new AssertionError("bitwise identity does not hold");
+    if (((x & 0xff) & 0x0f) != (x & 0x0f))
+      throw new AssertionError("masks not merged correctly");
+    if (((y << 3) << 2) != (y << 5) || ((y >>> 1) >>> 2) != (y >>> 3))
+      throw new AssertionError("shifts not merged correctly");
+    // x is within [0, 100]
+    if (((x << 24) >> 24) != x || (x & 0xff) != x)
+      throw new AssertionError("extension of a small value changed it");
+  }
+
+  private static final String SYM_METHOD = "+symbolic.method=gov.nasa.jpf.symbc.TestBitVectorSimplifier.testBitOps(sym#sym)";
+  private static final String[] JPF_ARGS = {INSN_FACTORY, SYM_METHOD, "+symbolic.dp=z3bitvector",
+      "+symbolic.min_int=0", "+symbolic.max_int=100"};
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  @Test
+  public void mainTest() {
+    if (verifyNoPropertyViolation(JPF_ARGS)) {
+      TestBitVectorSimplifier test = new TestBitVectorSimplifier();
+      test.testBitOps(1, 1);
+    }
+  }
+}
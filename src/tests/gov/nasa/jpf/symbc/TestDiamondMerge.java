@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.symbc;
+
+import org.junit.Test;
+
+import gov.nasa.jpf.vm.Verify;
+
+public class TestDiamondMerge extends InvokeTest {
+
+  void testMerge(int x, int y) {
+    int sign;
+    if (x < 0)
+      sign = -1;
+    else
+      sign = 1;
+    int m = (x > y) ? x : y;
+    if (y == 3)
+      m++;
+    if (sign * x < 0)
+      throw new AssertionError("negative magnitude");
+    if (m < x || m < y)
+      throw new AssertionError("max smaller than an argument");
+  }
+
+  // without merging, the three diamonds give 7 feasible paths; merged, the
+  // values are if-then-else terms and there is a single path
+  private static final String SYM_METHOD = "+symbolic.method=gov.nasa.jpf.symbc.TestDiamondMerge.testMerge(sym#sym)";
+  private static final String[] MERGED_ARGS = {INSN_FACTORY, SYM_METHOD, "+symbolic.dp=z3", "+symbolic.merge=true"};
+  private static final String[] FORKED_ARGS = {INSN_FACTORY, SYM_METHOD, "+symbolic.dp=z3", "+symbolic.merge=false"};
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  private int countPaths(String[] args) {
+    if (!isJPFRun()) {
+      Verify.resetCounter(0);
+    }
+    if (verifyNoPropertyViolation(args)) {
+      TestDiamondMerge test = new TestDiamondMerge();
+      test.testMerge(-2, 3);
+      Verify.incrementCounter(0);
+    }
+    return Verify.getCounter(0);
+  }
+
+  @Test
+  public void mergedTest() {
+    int paths = countPaths(MERGED_ARGS);
+    if (!isJPFRun()) {
+      assertEquals("paths with merging", 1, paths);
+    }
+  }
+
+  @Test
+  public void forkedTest() {
+    int paths = countPaths(FORKED_ARGS);
+    if (!isJPFRun()) {
+      assertEquals("paths without merging", 7, paths);
+    }
+  }
+}
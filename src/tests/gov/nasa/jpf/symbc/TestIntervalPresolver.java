@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc;
+
+import org.junit.Test;
+
+public class TestIntervalPresolver extends InvokeTest {
+
+  void testBounds(int x, int y) {
+    if (x > 10 && x < 5)
+      throw new AssertionError("empty range reached");
+    if (x >= 0 && x < 4) {
+      if (x + y == 2 && y > 2)
+        throw new AssertionError("x + y == 2 with y > 2 and x >= 0");
+      if (2 * x != 4 && x == 2)
+        throw new AssertionError("x == 2 but 2 * x != 4");
+    }
+    if (x == y + 1 && y == x + 1)
+      throw new AssertionError("cyclic equalities satisfied");
+  }
+
+  void testReachable(int x, int y) {
+    // decided satisfiable by the presolver, which has to find x == 4
+    if (x > 3 && x < 5 && y == x - 4)
+      throw new AssertionError("reached");
+  }
+
+  private static final String SYM_METHOD = "+symbolic.method=gov.nasa.jpf.symbc.TestIntervalPresolver.testBounds(sym#sym)";
+  private static final String[] JPF_ARGS = {INSN_FACTORY, SYM_METHOD, "+symbolic.dp=choco", "+symbolic.presolve=true"};
+  private static final String SYM_METHOD_REACHABLE = "+symbolic.method=gov.nasa.jpf.symbc.TestIntervalPresolver.testReachable(sym#sym)";
+  private static final String[] JPF_ARGS_REACHABLE = {INSN_FACTORY, SYM_METHOD_REACHABLE, "+symbolic.dp=choco",
+      "+symbolic.presolve=true"};
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  @Test
+  public void mainTest() {
+    if (verifyNoPropertyViolation(JPF_ARGS)) {
+      TestIntervalPresolver test = new TestIntervalPresolver();
+      test.testBounds(1, 1);
+    }
+  }
+
+  @Test
+  public void reachableTest() {
+    if (verifyAssertionError(JPF_ARGS_REACHABLE)) {
+      TestIntervalPresolver test = new TestIntervalPresolver();
+      test.testReachable(0, 0);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc;
+
+import org.junit.Test;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
+import gov.nasa.jpf.vm.Verify;
+
+public class TestKeepModels extends InvokeTest {
+
+  // counts the paths whose path condition still has the solution found by
+  // the branch checks when testModels returns, so solving it at the leaf
+  // does not have to call the solver again
+  public static class ModelCounter extends ListenerAdapter {
+    static int leaves = 0;
+    static int withModel = 0;
+
+    public ModelCounter(Config conf, JPF jpf) {
+    }
+
+    @Override
+    public void methodExited(VM vm, ThreadInfo ti, MethodInfo mi) {
+      if (!mi.getName().equals("testModels"))
+        return;
+      PCChoiceGenerator cg = vm.getSystemState().getLastChoiceGeneratorOfType(PCChoiceGenerator.class);
+      if (cg == null)
+        return;
+      PathCondition pc = cg.getCurrentPC();
+      leaves++;
+      if (pc != null && pc.hasModel())
+        withModel++;
+    }
+  }
+
+  void testModels(int x, int y) {
+    int z = 0;
+    if (x > y)
+      z++;
+    if (x + y > 10)
+      z++;
+    if (z == 2 && x <= y)
+      throw new AssertionError("x > y taken with x <= y");
+  }
+
+  private static final String SYM_METHOD = "+symbolic.method=gov.nasa.jpf.symbc.TestKeepModels.testModels(sym#sym)";
+  private static final String LISTENER = "+listener=gov.nasa.jpf.symbc.TestKeepModels$ModelCounter";
+  private static final String[] KEEP_ARGS = {INSN_FACTORY, SYM_METHOD, "+symbolic.dp=choco", "+symbolic.keep_models=true",
+      LISTENER};
+  private static final String[] DEFAULT_ARGS = {INSN_FACTORY, SYM_METHOD, "+symbolic.dp=choco", LISTENER};
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  private int countPaths(String[] args) {
+    if (!isJPFRun()) {
+      Verify.resetCounter(0);
+      ModelCounter.leaves = 0;
+      ModelCounter.withModel = 0;
+    }
+    if (verifyNoPropertyViolation(args)) {
+      TestKeepModels test = new TestKeepModels();
+      test.testModels(1, 2);
+      Verify.incrementCounter(0);
+    }
+    return Verify.getCounter(0);
+  }
+
+  @Test
+  public void keepModelsTest() {
+    int paths = countPaths(KEEP_ARGS);
+    if (!isJPFRun()) {
+      assertEquals("paths keeping models", 4, paths);
+      assertEquals("leaves keeping models", 4, ModelCounter.leaves);
+      // every leaf reuses the model of the branch check that led to it
+      assertEquals("leaves with a kept model", 4, ModelCounter.withModel);
+    }
+  }
+
+  @Test
+  public void defaultTest() {
+    int paths = countPaths(DEFAULT_ARGS);
+    if (!isJPFRun()) {
+      assertEquals("paths by default", 4, paths);
+      assertEquals("leaves by default", 4, ModelCounter.leaves);
+      // without symbolic.keep_models the branch checks keep nothing
+      assertEquals("leaves with a model by default", 0, ModelCounter.withModel);
+    }
+  }
+}
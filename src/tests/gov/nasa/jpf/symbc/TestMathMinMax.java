@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.symbc;
+
+import org.junit.Test;
+
+import gov.nasa.jpf.vm.Verify;
+
+public class TestMathMinMax extends InvokeTest {
+
+  void testMath(int x, int y, double d) {
+    int max = Math.max(x, y);
+    if (max < x || max < y)
+      throw new AssertionError("max smaller than an argument");
+    int min = Math.min(x, 5);
+    if (min > 5 || min > x)
+      throw new AssertionError("min larger than an argument");
+    if (Math.abs(x) < 0)
+      throw new AssertionError("negative abs");
+    if (Math.abs(d) < 0.0)
+      throw new AssertionError("negative abs");
+  }
+
+  // with choco the calls split the path: 3 ranges of x (abs, min) times 2 of y
+  // (max) times 2 of d (abs); z3, cvc3 and yices get ite terms and do not split
+  private static final String SYM_METHOD = "+symbolic.method=gov.nasa.jpf.symbc.TestMathMinMax.testMath(sym#sym#sym)";
+  private static final String[] SPLIT_ARGS = {INSN_FACTORY, SYM_METHOD, "+symbolic.dp=choco"};
+  private static final String[] ITE_ARGS = {INSN_FACTORY, SYM_METHOD, "+symbolic.dp=z3"};
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  private int countPaths(String[] args) {
+    if (!isJPFRun()) {
+      Verify.resetCounter(0);
+    }
+    if (verifyNoPropertyViolation(args)) {
+      TestMathMinMax test = new TestMathMinMax();
+      test.testMath(3, 7, -1.5);
+      Verify.incrementCounter(0);
+    }
+    return Verify.getCounter(0);
+  }
+
+  @Test
+  public void mainTest() {
+    int paths = countPaths(SPLIT_ARGS);
+    if (!isJPFRun()) {
+      assertEquals("paths with choco", 12, paths);
+    }
+  }
+
+  @Test
+  public void iteTest() {
+    int paths = countPaths(ITE_ARGS);
+    if (!isJPFRun()) {
+      assertEquals("paths with z3", 1, paths);
+    }
+  }
+}
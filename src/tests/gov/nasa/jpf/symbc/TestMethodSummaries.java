@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc;
+
+import org.junit.Test;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
+import gov.nasa.jpf.vm.Verify;
+
+public class TestMethodSummaries extends InvokeTest {
+
+  // counts how often the body of clamp is executed; the summarized method
+  // itself may not have side effects
+  public static class ClampCounter extends ListenerAdapter {
+    static int entered = 0;
+
+    public ClampCounter(Config conf, JPF jpf) {
+    }
+
+    @Override
+    public void methodEntered(VM vm, ThreadInfo ti, MethodInfo mi) {
+      if (mi.getName().equals("clamp"))
+        entered++;
+    }
+  }
+
+  static int clamp(int v, int lo, int hi) {
+    if (v < lo)
+      return lo;
+    if (v > hi)
+      return hi;
+    return v;
+  }
+
+  void testSummaries(int x, int y, int z) {
+    int a, b;
+    // whichever branch comes first records the summary of clamp with its
+    // first call; its second call is executed, as the summary is not complete
+    // yet, and must leave it alone. The other branch reuses it for both calls.
+    if (z > 0) {
+      a = clamp(x, 0, 10);
+      b = clamp(y, 0, 10);
+    } else {
+      a = clamp(x, 0, 10);
+      b = clamp(y, 0, 10);
+    }
+    if (a < 0 || a > 10 || b < 0 || b > 10)
+      throw new AssertionError("clamp out of range");
+    if (x >= 0 && x <= 10 && a != x)
+      throw new AssertionError("clamp changed a value in range");
+    if (y > 10 && b != 10)
+      throw new AssertionError("clamp did not cut a large value");
+  }
+
+  private static final String SYM_METHOD = "+symbolic.method=gov.nasa.jpf.symbc.TestMethodSummaries.testSummaries(sym#sym#sym)";
+  private static final String[] SUMMARIES_ARGS = {INSN_FACTORY, SYM_METHOD, "+symbolic.dp=choco", "+symbolic.summaries=true",
+      "+symbolic.summaries.methods=gov.nasa.jpf.symbc.TestMethodSummaries.clamp",
+      "+listener=gov.nasa.jpf.symbc.summaries.SummaryListener,gov.nasa.jpf.symbc.TestMethodSummaries$ClampCounter"};
+  private static final String[] PLAIN_ARGS = {INSN_FACTORY, SYM_METHOD, "+symbolic.dp=choco",
+      "+listener=gov.nasa.jpf.symbc.TestMethodSummaries$ClampCounter"};
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  private int countPaths(String[] args) {
+    if (!isJPFRun()) {
+      Verify.resetCounter(0);
+      ClampCounter.entered = 0;
+    }
+    if (verifyNoPropertyViolation(args)) {
+      TestMethodSummaries test = new TestMethodSummaries();
+      test.testSummaries(-2, 3, 1);
+      Verify.incrementCounter(0);
+    }
+    return Verify.getCounter(0);
+  }
+
+  @Test
+  public void summariesTest() {
+    int paths = countPaths(SUMMARIES_ARGS);
+    if (!isJPFRun()) {
+      // clamp has 3 outcomes for each call
+      assertEquals("paths with summaries", 18, paths);
+      // the recorded call once, and the second call on each of its 3 paths
+      assertEquals("executions of clamp with summaries", 4, ClampCounter.entered);
+    }
+  }
+
+  @Test
+  public void plainTest() {
+    int paths = countPaths(PLAIN_ARGS);
+    if (!isJPFRun()) {
+      assertEquals("paths without summaries", 18, paths);
+      assertEquals("executions of clamp without summaries", 8, ClampCounter.entered);
+    }
+  }
+}
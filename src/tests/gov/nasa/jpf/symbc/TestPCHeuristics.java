@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.symbc;
+
+import org.junit.Test;
+
+import gov.nasa.jpf.vm.Verify;
+
+public class TestPCHeuristics extends InvokeTest {
+
+  // counters: completed paths, deepest path so far, paths shallower than an
+  // earlier one
+  static final int PATHS = 0;
+  static final int DEEPEST = 1;
+  static final int OUT_OF_ORDER = 2;
+
+  // 5 paths, with path conditions of length 2, 2, 2, 3 and 3; a search that
+  // goes deep first completes the paths of length 3 before some of length 2
+  void testDepths(int x, int y, int z) {
+    int depth = 2;
+    if (x > 0) {
+      if (y > 0) {
+        depth++;
+        if (z > 0)
+          x = z;
+      }
+    } else {
+      if (y > 5)
+        y = 5;
+    }
+    completed(depth);
+  }
+
+  static void completed(int depth) {
+    if (depth < Verify.getCounter(DEEPEST))
+      Verify.incrementCounter(OUT_OF_ORDER);
+    while (Verify.getCounter(DEEPEST) < depth)
+      Verify.incrementCounter(DEEPEST);
+    Verify.incrementCounter(PATHS);
+  }
+
+  private static final String SYM_METHOD = "+symbolic.method=gov.nasa.jpf.symbc.TestPCHeuristics.testDepths(sym#sym#sym)";
+
+  private static String[] args(String search) {
+    return new String[] {INSN_FACTORY, SYM_METHOD, "+symbolic.dp=choco",
+        "+search.class=gov.nasa.jpf.symbc.search." + search};
+  }
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  private boolean explore(String search) {
+    if (!isJPFRun()) {
+      Verify.resetCounter(PATHS);
+      Verify.resetCounter(DEEPEST);
+      Verify.resetCounter(OUT_OF_ORDER);
+    }
+    if (verifyNoPropertyViolation(args(search))) {
+      new TestPCHeuristics().testDepths(1, 2, 3);
+      return false;
+    }
+    return true;
+  }
+
+  @Test
+  public void coverageTest() {
+    if (explore("CoverageHeuristic")) {
+      assertEquals("paths", 5, Verify.getCounter(PATHS));
+    }
+  }
+
+  @Test
+  public void shortestPCTest() {
+    if (explore("ShortestPCHeuristic")) {
+      assertEquals("paths", 5, Verify.getCounter(PATHS));
+      // level by level: no path completes after a longer one
+      assertEquals("paths completed after a longer one", 0, Verify.getCounter(OUT_OF_ORDER));
+    }
+  }
+
+  @Test
+  public void randomPathTest() {
+    if (explore("RandomPathHeuristic")) {
+      assertEquals("paths", 5, Verify.getCounter(PATHS));
+    }
+  }
+}
@@ -20,6 +20,13 @@ package gov.nasa.jpf.symbc;
 
 import org.junit.Test;
 
+import gov.nasa.jpf.symbc.arrays.ArrayExpression;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+
 public class TestPathCondition extends InvokeTest{
 
 	// ------------------------ test1(float, float) -----------------------------
@@ -194,4 +201,57 @@ public class TestPathCondition extends InvokeTest{
       test.test(11.0f, 21.0f, 31.0, 41.0, 51, 61);
     }
   }
+
+  // ------------------------ make_copy shares the constraints, copy-on-write -----------------------------
+
+  private static PathCondition twoConstraints(SymbolicInteger x, SymbolicInteger y) {
+    PathCondition pc = new PathCondition();
+    pc._addDet(Comparator.GT, x, 0);
+    pc._addDet(Comparator.LT, y, 5);
+    return pc;
+  }
+
+  @Test
+  public void copyLeavesOriginalTest() {
+    SymbolicInteger x = new SymbolicInteger("x", 0, 10);
+    SymbolicInteger y = new SymbolicInteger("y", 0, 10);
+    PathCondition pc = twoConstraints(x, y);
+    Constraint header = pc.header;
+    String constraints = pc.toString();
+    int hash = pc.hashCode();
+
+    PathCondition copy = pc.make_copy();
+    copy._addDet(Comparator.NE, x, y);
+    copy.appendAllConjuncts(new LinearIntegerConstraint(x, Comparator.LE, y));
+    copy.prependAllConjuncts(new LinearIntegerConstraint(y, Comparator.GE, x));
+    copy.removeHeader();
+    copy.removeHeader();
+    assertEquals(3, copy.count());
+
+    assertSame(header, pc.header);
+    assertEquals(constraints, pc.toString());
+    assertEquals(2, pc.count());
+    assertEquals(hash, pc.hashCode());
+    pc.resetHashCode();
+    assertEquals(hash, pc.hashCode());
+    assertEquals(twoConstraints(x, y), pc);
+  }
+
+  @Test
+  public void copyArrayExpressionsTest() {
+    PathCondition pc = new PathCondition();
+    ArrayExpression a = new ArrayExpression("a");
+    pc.putArrayExpression("a", a);
+
+    PathCondition copy = pc.make_copy();
+    copy.putArrayExpression("b", new ArrayExpression("b"));
+    assertSame(a, copy.arrayExpressions.get("a"));
+    assertTrue(copy.arrayExpressions.containsKey("b"));
+    assertFalse(pc.arrayExpressions.containsKey("b"));
+
+    // nor the other way around
+    pc.putArrayExpression("c", new ArrayExpression("c"));
+    assertFalse(copy.arrayExpressions.containsKey("c"));
+    assertEquals(2, pc.make_copy().arrayExpressions.size());
+  }
 }
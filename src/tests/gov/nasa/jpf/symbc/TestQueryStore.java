@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+import gov.nasa.jpf.symbc.numeric.solvers.QueryStore;
+
+public class TestQueryStore {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static File newStore() throws IOException {
+    File f = File.createTempFile("spf", ".queries");
+    f.delete();
+    f.deleteOnExit();
+    new File(f.getPath() + ".idx").deleteOnExit();
+    return f;
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(UTF8);
+  }
+
+  @Test
+  public void valuesSurviveReopening() throws IOException {
+    File f = newStore();
+    QueryStore s = QueryStore.open(f);
+    s.put("x > 0", bytes("sat"));
+    s.put("x > 0 && x < 0", bytes("unsat"));
+    assertArrayEquals(bytes("sat"), s.get("x > 0"));
+    s.close();
+
+    s = QueryStore.open(f);
+    assertEquals(2, s.size());
+    assertArrayEquals(bytes("sat"), s.get("x > 0"));
+    assertArrayEquals(bytes("unsat"), s.get("x > 0 && x < 0"));
+    assertNull(s.get("y > 0"));
+    s.close();
+  }
+
+  @Test
+  public void closingCompactsGarbage() throws IOException {
+    File f = newStore();
+    QueryStore s = QueryStore.open(f);
+    for (int i = 0; i < 100; i++) {
+      s.put("x > 0", bytes("value " + i));
+    }
+    s.close();
+    long compacted = f.length();
+    assertTrue("log was not compacted: " + compacted, compacted < 100);
+
+    s = QueryStore.open(f);
+    assertEquals(1, s.size());
+    assertArrayEquals(bytes("value 99"), s.get("x > 0"));
+    s.close();
+  }
+
+  @Test
+  public void compactionKeepsTheLock() throws IOException {
+    File f = newStore();
+    File tmp = new File(f.getPath() + ".tmp");
+    tmp.deleteOnExit();
+    QueryStore s = QueryStore.open(f);
+    for (int i = 0; i < 100; i++) {
+      s.put("x > 0", bytes("value " + i));
+    }
+    // a reader that has the log open, and a second handle that holds the
+    // file the log is compacted into
+    RandomAccessFile reader = new RandomAccessFile(f, "r");
+    RandomAccessFile other = new RandomAccessFile(tmp, "rw");
+    FileLock otherLock = other.getChannel().lock();
+    try {
+      long length = f.length();
+      s.close();
+      assertEquals("log was compacted into a file held by someone else", length, f.length());
+    } finally {
+      otherLock.release();
+      other.close();
+    }
+
+    s = QueryStore.open(f);
+    assertArrayEquals(bytes("value 99"), s.get("x > 0"));
+    s.put("y > 0", bytes("sat"));
+    s.close();
+    assertTrue("log was not compacted: " + f.length(), f.length() < 100);
+    reader.close();
+
+    s = QueryStore.open(f);
+    assertFalse(s.isReadOnly());
+    assertEquals(2, s.size());
+    assertArrayEquals(bytes("value 99"), s.get("x > 0"));
+    assertArrayEquals(bytes("sat"), s.get("y > 0"));
+    s.close();
+  }
+
+  @Test
+  public void incompleteRecordIsDropped() throws IOException {
+    File f = newStore();
+    QueryStore s = QueryStore.open(f);
+    s.put("x > 0", bytes("sat"));
+    s.close();
+    long length = f.length();
+
+    // a record cut short, as left by a crash while writing it
+    FileOutputStream out = new FileOutputStream(f, true);
+    out.write(new byte[] { 0, 0, 0, 5, 0, 0, 0, 3, 'x', ' ' });
+    out.close();
+
+    s = QueryStore.open(f);
+    assertEquals(1, s.size());
+    assertArrayEquals(bytes("sat"), s.get("x > 0"));
+    s.put("y > 0", bytes("sat"));
+    s.close();
+    assertEquals(length + 8 + 5 + 3, f.length());
+
+    s = QueryStore.open(f);
+    assertArrayEquals(bytes("sat"), s.get("y > 0"));
+    s.close();
+  }
+
+  @Test
+  public void otherConfigurationIsRefused() throws IOException {
+    File f = newStore();
+    QueryStore s = QueryStore.open(f);
+    new QueryStore.Answers(s, "bvlength=32");
+    s.close();
+
+    s = QueryStore.open(f);
+    new QueryStore.Answers(s, "bvlength=32");
+    try {
+      new QueryStore.Answers(s, "bvlength=64");
+      fail("store written with another configuration was used");
+    } catch (IOException e) {
+      // expected
+    } finally {
+      s.close();
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.concolic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.nasa.jpf.symbc.numeric.Expression;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.RealConstant;
+
+public class TestFunctionExpression {
+
+  static int calls = 0;
+
+  public static double twice(double x) {
+    calls++;
+    return 2 * x;
+  }
+
+  public static double sum(long x, long y) {
+    calls++;
+    return x + y;
+  }
+
+  @Before
+  public void setUp() {
+    FunctionExpression.reset();
+    // outside of JPF, the functions are loaded from the classpath of the test
+    FunctionExpression.clsLoader = new URLClassLoader(new URL[0], TestFunctionExpression.class.getClassLoader());
+    calls = 0;
+  }
+
+  private static FunctionExpression callTwice(double x) {
+    return new FunctionExpression(TestFunctionExpression.class.getName(), "twice", new Class<?>[] { double.class },
+        new Expression[] { new RealConstant(x) }, null);
+  }
+
+  @Test
+  public void testSolution() {
+    assertEquals(3.0, callTwice(1.5).solution(), 0.0);
+    FunctionExpression f = new FunctionExpression(TestFunctionExpression.class.getName(), "sum",
+        new Class<?>[] { long.class, long.class }, new Expression[] { new IntegerConstant(2), new IntegerConstant(3) }, null);
+    assertEquals(5.0, f.solution(), 0.0);
+    assertEquals(2, calls);
+  }
+
+  @Test
+  public void testResolvedOnce() {
+    FunctionExpression f = callTwice(1.0);
+    FunctionExpression g = callTwice(1.0);
+    f.solution();
+    g.solution();
+    assertEquals(1, FunctionExpression.functions.size());
+    assertEquals(f.function, g.function);
+    // same arguments: the result is remembered
+    assertEquals(1, calls);
+  }
+
+  @Test
+  public void testIntegerAndRealArgs() {
+    FunctionExpression i = new FunctionExpression(TestFunctionExpression.class.getName(), "twice",
+        new Class<?>[] { double.class }, new Expression[] { new IntegerConstant(1) }, null);
+    assertEquals(2.0, i.solution(), 0.0);
+    // the real whose bits are those of the integer 1 is not the same argument
+    double tiny = Double.longBitsToDouble(1);
+    assertEquals(2 * tiny, callTwice(tiny).solution(), 0.0);
+    assertEquals(2, calls);
+  }
+
+  @Test
+  public void testReset() {
+    FunctionExpression f = callTwice(1.0);
+    f.solution();
+    FunctionExpression.reset();
+    assertEquals(0, FunctionExpression.functions.size());
+    // an expression keeps the function it resolved
+    f.solution();
+    assertEquals(0, FunctionExpression.functions.size());
+    assertEquals(1, calls);
+    // a new one resolves it again
+    FunctionExpression.clsLoader = new URLClassLoader(new URL[0], TestFunctionExpression.class.getClassLoader());
+    callTwice(1.0).solution();
+    assertEquals(1, FunctionExpression.functions.size());
+    assertEquals(2, calls);
+  }
+
+  @Test
+  public void testMissingMethod() {
+    FunctionExpression f = new FunctionExpression(TestFunctionExpression.class.getName(), "missing",
+        new Class<?>[] { double.class }, new Expression[] { new RealConstant(1.0) }, null);
+    assertEquals(0.0, f.solution(), 0.0);
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+// the rewrites of BitVectorSimplifier one at a time, at an explicit width;
+// TestBitVectorSimplifier checks that z3bitvector still answers the same
+public class TestBitVectorRewrites {
+
+  private static final int WIDTH = 32;
+
+  // wide enough that no extension of it can be dropped
+  private final SymbolicInteger x = new SymbolicInteger("x", Integer.MIN_VALUE, Integer.MAX_VALUE);
+  private final SymbolicInteger small = new SymbolicInteger("small", 0, 100);
+
+  private static IntegerExpression op(IntegerExpression l, Operator op, long c) {
+    return new BinaryLinearIntegerExpression(l, op, new IntegerConstant(c));
+  }
+
+  private static IntegerExpression simplify(IntegerExpression e) {
+    return BitVectorSimplifier.simplify(e, WIDTH);
+  }
+
+  @Test
+  public void identitiesAreDropped() {
+    assertSame(x, simplify(op(x, Operator.AND, -1)));
+    assertSame(x, simplify(op(x, Operator.OR, 0)));
+    assertSame(x, simplify(op(x, Operator.SHIFTL, 0)));
+    assertEquals(new IntegerConstant(0), simplify(new BinaryLinearIntegerExpression(x, Operator.XOR, x)));
+    assertEquals(new IntegerConstant(0), simplify(op(x, Operator.AND, 0)));
+  }
+
+  @Test
+  public void masksAreMerged() {
+    assertEquals(op(x, Operator.AND, 0x0f), simplify(op(op(x, Operator.AND, 0xff), Operator.AND, 0x0f)));
+    assertEquals(op(x, Operator.OR, 0xf0f), simplify(op(op(x, Operator.OR, 0xf00), Operator.OR, 0x0f)));
+    assertEquals(op(x, Operator.XOR, 0x0f), simplify(op(op(x, Operator.XOR, 0xff), Operator.XOR, 0xf0)));
+    // masks that cancel out
+    assertSame(x, simplify(op(op(x, Operator.XOR, 0xff), Operator.XOR, 0xff)));
+  }
+
+  @Test
+  public void shiftsAreMerged() {
+    assertEquals(op(x, Operator.SHIFTL, 5), simplify(op(op(x, Operator.SHIFTL, 3), Operator.SHIFTL, 2)));
+    assertEquals(op(x, Operator.SHIFTUR, 3), simplify(op(op(x, Operator.SHIFTUR, 1), Operator.SHIFTUR, 2)));
+    // shifted out entirely, except for the sign of an arithmetic shift
+    assertEquals(new IntegerConstant(0), simplify(op(op(x, Operator.SHIFTL, 20), Operator.SHIFTL, 20)));
+    assertEquals(op(x, Operator.SHIFTR, WIDTH - 1), simplify(op(op(x, Operator.SHIFTR, 20), Operator.SHIFTR, 20)));
+    // different shifts are left alone
+    IntegerExpression mixed = op(op(x, Operator.SHIFTL, 3), Operator.SHIFTR, 2);
+    assertSame(mixed, simplify(mixed));
+  }
+
+  @Test
+  public void redundantExtensionsAreRemoved() {
+    // small fits in 8 bits, signed or not
+    assertSame(small, simplify(op(op(small, Operator.SHIFTL, 24), Operator.SHIFTR, 24)));
+    assertSame(small, simplify(op(op(small, Operator.SHIFTL, 24), Operator.SHIFTUR, 24)));
+    assertSame(small, simplify(op(small, Operator.AND, 0xff)));
+    // x does not
+    IntegerExpression signExtension = op(op(x, Operator.SHIFTL, 24), Operator.SHIFTR, 24);
+    assertSame(signExtension, simplify(signExtension));
+    IntegerExpression zeroExtension = op(x, Operator.AND, 0xff);
+    assertSame(zeroExtension, simplify(zeroExtension));
+    // nor does small in 4 bits
+    assertNotSame(small, simplify(op(op(small, Operator.SHIFTL, 28), Operator.SHIFTR, 28)));
+  }
+
+  @Test
+  public void constantsAreWrapped() {
+    assertEquals(new IntegerConstant(0), simplify(new IntegerConstant(1L << WIDTH)));
+    assertEquals(new IntegerConstant(-1), simplify(new IntegerConstant(0xffffffffL)));
+    assertEquals(new IntegerConstant(Integer.MIN_VALUE), simplify(op(new IntegerConstant(Integer.MAX_VALUE),
+        Operator.PLUS, 1)));
+    assertEquals(new IntegerConstant(-56), BitVectorSimplifier.simplify(new IntegerConstant(200), 8));
+    IntegerConstant inRange = new IntegerConstant(42);
+    assertSame(inRange, simplify(inRange));
+  }
+}
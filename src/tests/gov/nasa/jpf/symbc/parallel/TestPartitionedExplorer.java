@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.parallel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import org.junit.Test;
+
+// runs worker JVMs with the class path of this one, so it needs the built
+// classes (ant compile) like the application configs in src/tests
+public class TestPartitionedExplorer {
+
+  public static class Target {
+    static int branches(int x, int y, int z) {
+      int n = 0;
+      if (x > 0)
+        n++;
+      if (y > x)
+        n++;
+      if (z > y)
+        n++;
+      return n;
+    }
+
+    public static void main(String[] args) {
+      branches(0, 0, 0);
+    }
+  }
+
+  private static File newDir() throws IOException {
+    File d = File.createTempFile("spf", ".partitions");
+    d.delete();
+    d.mkdirs();
+    return d;
+  }
+
+  private static File appConfig(File dir) throws IOException {
+    File f = new File(dir, "branches.jpf");
+    PrintWriter pw = new PrintWriter(new FileWriter(f));
+    try {
+      pw.println("target=" + Target.class.getName());
+      pw.println("classpath=${jpf-symbc}/build/tests");
+      pw.println("vm.insn_factory.class=gov.nasa.jpf.symbc.SymbolicInstructionFactory");
+      pw.println("symbolic.method=" + Target.class.getName() + ".branches(sym#sym#sym)");
+      pw.println("symbolic.dp=choco");
+    } finally {
+      pw.close();
+    }
+    return f;
+  }
+
+  private static int paths(PartitionedExplorer explorer) {
+    int paths = 0;
+    for (PartitionedExplorer.Worker w : explorer.finished) {
+      assertTrue("run failed: " + w.out, !w.failed());
+      paths += w.paths;
+    }
+    return paths;
+  }
+
+  @Test
+  public void partitionedFindsAllPaths() throws Exception {
+    File dir = newDir();
+    String app = appConfig(dir).getPath();
+
+    // one run over the whole tree
+    PartitionedExplorer single = new PartitionedExplorer();
+    assertTrue(single.parseArgs(new String[] { "-out", new File(dir, "single").getPath(), app }));
+    single.outDir.mkdirs();
+    single.new Worker(0, new PathPrefix(new int[0]), 0).run();
+    assertEquals(8, paths(single));
+
+    PartitionedExplorer partitioned = new PartitionedExplorer();
+    assertTrue(partitioned.parseArgs(new String[] { "-workers", "2", "-depth", "1", "-out",
+        new File(dir, "partitioned").getPath(), app }));
+    assertTrue(partitioned.run());
+    assertTrue("the tree was not split: " + partitioned.runs.get() + " runs", partitioned.runs.get() > 1);
+    assertEquals(8, paths(partitioned));
+  }
+
+  @Test
+  public void prefixesRoundTrip() {
+    PathPrefix p = new PathPrefix(new int[0]).extend(0).extend(2).extend(1);
+    assertEquals("0,2,1", p.toString());
+    assertEquals(3, p.length());
+    assertEquals(2, p.get(1));
+    assertEquals("0,2,1", PathPrefix.parse(PathPrefix.MARKER + " " + p).toString());
+    assertEquals(0, PathPrefix.parse(PathPrefix.MARKER).length());
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.strings;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.util.test.TestJPF;
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.string.StringComparator;
+import gov.nasa.jpf.symbc.string.StringConstant;
+import gov.nasa.jpf.symbc.string.StringPathCondition;
+import gov.nasa.jpf.symbc.string.StringSymbolic;
+import gov.nasa.jpf.symbc.string.SymbolicStringConstraintsGeneral.Verdict;
+import gov.nasa.jpf.symbc.string.graph.LengthAbstraction;
+
+import org.junit.Test;
+
+/**
+ * Path conditions that are unsat on the lengths alone must be rejected
+ * with and without symbolic.string_length_check; with it, before the
+ * preprocessor gets to see them.
+ */
+public class TestLengthAbstraction extends TestJPF {
+
+	String[] solvers = new String[]{"automata","z3"};
+	
+	private void configure (String solver, boolean lengthCheck) {
+		configure(solver, lengthCheck, -1);
+	}
+	
+	private void configure (String solver, boolean lengthCheck, int maxPcLength) {
+		String[] options = {"+symbolic.dp=choco",
+				"+symbolic.string_dp=" + solver,
+				"+symbolic.string_dp_timeout_ms=0",
+				"+symbolic.string_length_check=" + lengthCheck,
+				"+symbolic.max_pc_length=" + maxPcLength};
+		Config cfg = new Config(options);
+		new SymbolicInstructionFactory(cfg);
+	}
+	
+	private void assertPruned (String solver, boolean lengthCheck, StringPathCondition spc, int rejectedBefore) {
+		boolean result = spc.simplify();
+		assertTrue("Solver " + solver + " failed", !result);
+		assertTrue("Solver " + solver + " gave " + spc.getVerdict(), spc.getVerdict().isUnsat());
+		if (lengthCheck) {
+			assertEquals(Verdict.UNSAT_LENGTHS, spc.getVerdict());
+			assertEquals(rejectedBefore + 1, LengthAbstraction.rejected);
+		} else {
+			assertTrue(spc.getVerdict() != Verdict.UNSAT_LENGTHS);
+			assertEquals(rejectedBefore, LengthAbstraction.rejected);
+		}
+	}
+	
+	@Test
+	public void testStartsWith () {
+		for (String solver: solvers) {
+			for (boolean lengthCheck: new boolean[]{true, false}) {
+				configure(solver, lengthCheck);
+				PathCondition pc = new PathCondition();
+				StringPathCondition stringCurrentPC = new StringPathCondition(pc);
+				StringSymbolic var1 = new StringSymbolic("var1");
+				stringCurrentPC._addDet(StringComparator.STARTSWITH, new StringConstant("abc"), var1);
+				pc._addDet(Comparator.LE, var1._length(), 2);
+				assertPruned(solver, lengthCheck, stringCurrentPC, LengthAbstraction.rejected);
+			}
+		}
+	}
+	
+	@Test
+	public void testCharAt () {
+		for (String solver: solvers) {
+			for (boolean lengthCheck: new boolean[]{true, false}) {
+				configure(solver, lengthCheck);
+				PathCondition pc = new PathCondition();
+				StringPathCondition stringCurrentPC = new StringPathCondition(pc);
+				StringSymbolic var1 = new StringSymbolic("var1");
+				pc._addDet(Comparator.EQ, var1._charAt(new IntegerConstant(5)), new IntegerConstant((int) 'a'));
+				pc._addDet(Comparator.LE, var1._length(), 3);
+				assertPruned(solver, lengthCheck, stringCurrentPC, LengthAbstraction.rejected);
+			}
+		}
+	}
+	
+	@Test
+	public void testUndecided () {
+		// the length problem is longer than symbolic.max_pc_length, so the
+		// numeric solver does not decide it: that is no proof (the constraints
+		// differ from the other tests, so that no cached answer is used)
+		for (String solver: solvers) {
+			configure(solver, true, 2);
+			PathCondition pc = new PathCondition();
+			StringPathCondition stringCurrentPC = new StringPathCondition(pc);
+			StringSymbolic var1 = new StringSymbolic("var1");
+			stringCurrentPC._addDet(StringComparator.STARTSWITH, new StringConstant("abcd"), var1);
+			pc._addDet(Comparator.LE, var1._length(), 3);
+			int rejected = LengthAbstraction.rejected;
+			stringCurrentPC.simplify();
+			assertTrue("Solver " + solver + " gave " + stringCurrentPC.getVerdict(),
+					stringCurrentPC.getVerdict() != Verdict.UNSAT_LENGTHS);
+			assertEquals(rejected, LengthAbstraction.rejected);
+		}
+	}
+	
+	@Test
+	public void testFeasible () {
+		for (String solver: solvers) {
+			for (boolean lengthCheck: new boolean[]{true, false}) {
+				configure(solver, lengthCheck);
+				PathCondition pc = new PathCondition();
+				StringPathCondition stringCurrentPC = new StringPathCondition(pc);
+				StringSymbolic var1 = new StringSymbolic("var1");
+				stringCurrentPC._addDet(StringComparator.STARTSWITH, new StringConstant("ab"), var1);
+				pc._addDet(Comparator.EQ, var1._charAt(new IntegerConstant(2)), new IntegerConstant((int) 'c'));
+				pc._addDet(Comparator.LE, var1._length(), 3);
+				assertTrue("Solver " + solver + " failed", stringCurrentPC.simplify());
+				assertEquals(Verdict.SAT, stringCurrentPC.getVerdict());
+				assertTrue(var1.solution().startsWith("abc"));
+			}
+		}
+	}
+}
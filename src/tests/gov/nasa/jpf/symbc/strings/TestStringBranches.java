@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.symbc.strings;
+
+import org.junit.Test;
+
+import gov.nasa.jpf.symbc.InvokeTest;
+import gov.nasa.jpf.vm.Verify;
+
+public class TestStringBranches extends InvokeTest {
+
+  void testBranches(String s) {
+    if (s.startsWith("ab")) {
+      // the true outcome is proved unsat, so the false one is taken unsolved
+      if (s.equals("b"))
+        throw new AssertionError("\"b\" starts with \"ab\"");
+    } else if (s.endsWith("x")) {
+      if (!s.contains("x"))
+        throw new AssertionError("ends with \"x\" but does not contain it");
+    }
+  }
+
+  // startsWith and endsWith have both outcomes, equals and contains one:
+  // 3 paths whether or not the outcomes are decided together
+  private static final String SYM_METHOD = "+symbolic.method=gov.nasa.jpf.symbc.strings.TestStringBranches.testBranches(sym)";
+  private static final String[] TOGETHER_ARGS = {INSN_FACTORY, SYM_METHOD, "+symbolic.dp=choco",
+      "+symbolic.string_dp=automata", "+symbolic.string_dp_timeout_ms=0", "+symbolic.string_branches_together=true"};
+  private static final String[] APART_ARGS = {INSN_FACTORY, SYM_METHOD, "+symbolic.dp=choco",
+      "+symbolic.string_dp=automata", "+symbolic.string_dp_timeout_ms=0", "+symbolic.string_branches_together=false"};
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  private int countPaths(String[] args) {
+    if (!isJPFRun()) {
+      Verify.resetCounter(0);
+    }
+    if (verifyNoPropertyViolation(args)) {
+      TestStringBranches test = new TestStringBranches();
+      test.testBranches("abc");
+      Verify.incrementCounter(0);
+    }
+    return Verify.getCounter(0);
+  }
+
+  @Test
+  public void togetherTest() {
+    int paths = countPaths(TOGETHER_ARGS);
+    if (!isJPFRun()) {
+      assertEquals("paths with branches decided together", 3, paths);
+    }
+  }
+
+  @Test
+  public void apartTest() {
+    int paths = countPaths(APART_ARGS);
+    if (!isJPFRun()) {
+      assertEquals("paths with branches decided apart", 3, paths);
+    }
+  }
+}